@@ -0,0 +1,109 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import problems.qbf.InstanceRegistry;
+
+/**
+ * Allocation-regression harness of the GRASP solvers. Each variant of the
+ * {@link ScalingBenchmark} runs for a warm-up time, so that the JIT and the
+ * shared instance caches settle, and then for a measured time. The bytes
+ * allocated by the thread running the solver are read from
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} and
+ * divided by the number of iterations. Every variant runs on the calling
+ * thread, so the count covers the constructive heuristic and the local
+ * search, including the fixed setup of a run amortized over its
+ * iterations.
+ *
+ * Usage: {@code AllocationHarness [instance] [seconds] [budgets]}, where
+ * budgets are either a number of bytes per iteration for every variant, or
+ * a list of variants with their budgets, e.g. {@code AllocationHarness
+ * instances/qbf200 5 IntGRASP_QBF=1024,GRASP_QBF=2000000}. Only the variants
+ * listed are run. The process exits with status 1 if a variant exceeds its
+ * budget, so that a build running the harness fails.
+ *
+ * @author aserpa, einnarelli
+ */
+public class AllocationHarness {
+
+    /**
+     * Bytes allocated by the current thread so far.
+     */
+    static long allocatedBytes(com.sun.management.ThreadMXBean threads) {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Runs the harness.
+     */
+    public static void main(String[] args) throws IOException {
+
+        String filename = args.length > 0 ? args[0] : "instances/qbf100";
+        long timeLimit = (long) (1000 * (args.length > 1 ? Double.parseDouble(args[1]) : 5));
+
+        // Budgets in bytes per iteration, by variant.
+        Map<String, Long> budgets = new LinkedHashMap<String, Long>();
+        Long defaultBudget = null;
+        if (args.length > 2) {
+            if (args[2].contains("=")) {
+                for (String b : args[2].split(",")) {
+                    String[] kv = b.split("=");
+                    budgets.put(kv[0].trim(), Long.parseLong(kv[1].trim()));
+                }
+            } else {
+                defaultBudget = Long.parseLong(args[2]);
+            }
+        }
+
+        List<ScalingBenchmark.Variant> variants = new ArrayList<ScalingBenchmark.Variant>();
+        for (ScalingBenchmark.Variant v : ScalingBenchmark.VARIANTS) {
+            if (budgets.isEmpty() || budgets.containsKey(v.name)) variants.add(v);
+        }
+        if (variants.size() < budgets.size()) {
+            System.err.println("Unknown variant in " + budgets.keySet() + ".");
+            System.exit(1);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.err.println("Thread allocation accounting is not supported by this JVM.");
+            System.exit(1);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        InstanceRegistry.load(filename);
+        System.out.println("variant,iterations,bytes,bytes_per_iter,budget,status");
+        boolean exceeded = false;
+
+        for (ScalingBenchmark.Variant v : variants) {
+
+            v.factory.create(filename).solve(null, timeLimit);
+
+            ScalingBenchmark.Solver solver = v.factory.create(filename);
+            long before = allocatedBytes(threads);
+            solver.solve(null, timeLimit);
+            long bytes = allocatedBytes(threads) - before;
+
+            int iterations = Math.max(1, solver.iterations());
+            long perIteration = bytes / iterations;
+            Long budget = budgets.containsKey(v.name) ? budgets.get(v.name) : defaultBudget;
+            boolean ok = budget == null || perIteration <= budget;
+            exceeded |= !ok;
+
+            System.out.println(v.name + "," + solver.iterations() + "," + bytes + "," + perIteration
+                + "," + (budget == null ? "-" : budget) + "," + (ok ? "ok" : "EXCEEDED"));
+
+        }
+
+        InstanceRegistry.release(filename);
+        if (exceeded) System.exit(1);
+
+    }
+
+}
@@ -0,0 +1,326 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import metaheuristics.grasp.AbstractGRASP;
+import metaheuristics.grasp.AbstractIntGRASP;
+import metaheuristics.grasp.LocalSearch;
+import problems.qbf.InstanceGenerator;
+import problems.qbf.InstanceRegistry;
+import problems.qbf.QBF_Inverse;
+import problems.qbf.solvers.GRASP_QBF;
+import problems.qbf.solvers.GRASP_QBF_First_Improving;
+import problems.qbf.solvers.IntGRASP_QBF;
+import problems.qbf.solvers.Tabu_QBF;
+import problems.qbf.solvers.VND_QBF;
+import problems.qbf.solvers.WindowSearch_QBF;
+import problems.qbfpt.QBFPT;
+import problems.qbfpt.TripleConstraint;
+import problems.qbfpt.solvers.GRASP_QBFPT;
+import problems.qbfpt.solvers.GRASP_QBFPT_First_Improving;
+import solutions.IntSolution;
+import solutions.ResultsStore;
+import solutions.Solution;
+
+/**
+ * Scaling benchmark of the GRASP solvers on synthetic instances generated by
+ * the {@link InstanceGenerator}. For each dimension n, it reports the
+ * instance load time and heap footprint and, for each solver variant, the
+ * iterations per second under a time budget, the heap footprint of the
+ * solver, and the time to reach a target derived from the best cost found by
+ * the variants of the same problem. Every run has a seed of its own, so the
+ * time to target is not a replay of the throughput run.
+ *
+ * Usage: {@code ScalingBenchmark [sizes] [density] [seconds] [gap]
+ * [variants] [results]}, e.g. {@code ScalingBenchmark 1000,2000,5000 0.5 30
+ * 0.01 IntGRASP_QBF,GRASP_QBF runs/}. The time limit is only checked
+ * between iterations, so a single iteration of the slower variants may
+ * exceed it on large instances. If a results directory is given, every run
+ * is appended to the {@link ResultsStore} there, keyed by the parameters of
+ * the generated instance.
+ *
+ * @author aserpa, einnarelli
+ */
+public class ScalingBenchmark {
+
+    /**
+     * Uniform view of the generic and primitive solvers.
+     */
+    interface Solver {
+
+        /**
+         * Runs the solver with a target and a time limit.
+         *
+         * @return The cost of the best solution found.
+         */
+        double solve(Double targetCost, long timeLimit);
+
+        /**
+         * @return The number of iterations of the last run.
+         */
+        int iterations();
+
+        /**
+         * @return The best solution of the last run.
+         */
+        Solution<Integer> solution();
+
+        /**
+         * Sets the seed of the random number generator of the solver.
+         */
+        void seed(long seed);
+
+    }
+
+    /**
+     * Builds a solver for an instance file.
+     */
+    interface Factory {
+        Solver create(String filename) throws IOException;
+    }
+
+    /**
+     * A solver variant, solving either the "qbf" or the "qbfpt" problem,
+     * with the parameters recorded along with its runs.
+     */
+    static final class Variant {
+
+        final String name;
+        final String problem;
+        final String config;
+        final Factory factory;
+
+        Variant(String name, String problem, String config, Factory factory) {
+            this.name = name;
+            this.problem = problem;
+            this.config = config;
+            this.factory = factory;
+        }
+
+    }
+
+    /**
+     * The benchmarked variants, including the GRASPs whose local search is
+     * replaced by the VND, the tabu search, or the VND followed by window
+     * enumeration (with k = 16 and 10 windows per round).
+     */
+    static final List<Variant> VARIANTS = new ArrayList<Variant>();
+
+    static {
+        VARIANTS.add(new Variant("GRASP_QBF", "qbf", "alpha=0.2",
+            f -> of(new GRASP_QBF(0.2, Integer.MAX_VALUE, f))));
+        VARIANTS.add(new Variant("GRASP_QBF_First_Improving", "qbf", "alpha=0.2",
+            f -> of(new GRASP_QBF_First_Improving(0.2, Integer.MAX_VALUE, f))));
+        VARIANTS.add(new Variant("IntGRASP_QBF", "qbf", "alpha=0.2",
+            f -> of(new IntGRASP_QBF(0.2, Integer.MAX_VALUE, f))));
+        VARIANTS.add(new Variant("GRASP_QBFPT", "qbfpt", "alpha=0.2",
+            f -> of(new GRASP_QBFPT(0.2, Integer.MAX_VALUE, f))));
+        VARIANTS.add(new Variant("GRASP_QBFPT_First_Improving", "qbfpt", "alpha=0.2",
+            f -> of(new GRASP_QBFPT_First_Improving(0.2, Integer.MAX_VALUE, f))));
+        VARIANTS.add(new Variant("GRASP_QBF_VND", "qbf", "alpha=0.2,depth=3", f -> {
+            QBF_Inverse qbf = new QBF_Inverse(f);
+            return of(new GRASP_QBF(0.2, Integer.MAX_VALUE, qbf), new VND_QBF(qbf));
+        }));
+        VARIANTS.add(new Variant("GRASP_QBFPT_VND", "qbfpt", "alpha=0.2,depth=3", f -> {
+            QBFPT qbfpt = new QBFPT(f);
+            return of(new GRASP_QBFPT(0.2, Integer.MAX_VALUE, qbfpt),
+                new VND_QBF(qbfpt, new TripleConstraint(qbfpt), 3, 0));
+        }));
+        VARIANTS.add(new Variant("GRASP_QBF_Tabu", "qbf", "alpha=0.2", f -> {
+            QBF_Inverse qbf = new QBF_Inverse(f);
+            return of(new GRASP_QBF(0.2, Integer.MAX_VALUE, qbf), new Tabu_QBF(qbf, null));
+        }));
+        VARIANTS.add(new Variant("GRASP_QBFPT_Tabu", "qbfpt", "alpha=0.2", f -> {
+            QBFPT qbfpt = new QBFPT(f);
+            return of(new GRASP_QBFPT(0.2, Integer.MAX_VALUE, qbfpt),
+                new Tabu_QBF(qbfpt, new TripleConstraint(qbfpt)));
+        }));
+        VARIANTS.add(new Variant("GRASP_QBF_Window", "qbf", "alpha=0.2,depth=3,k=16,windows=10", f -> {
+            QBF_Inverse qbf = new QBF_Inverse(f);
+            int k = Math.min(16, qbf.getDomainSize());
+            return of(new GRASP_QBF(0.2, Integer.MAX_VALUE, qbf),
+                new WindowSearch_QBF(qbf, null, new VND_QBF(qbf), k, 10, 0));
+        }));
+        VARIANTS.add(new Variant("GRASP_QBFPT_Window", "qbfpt", "alpha=0.2,depth=3,k=16,windows=10", f -> {
+            QBFPT qbfpt = new QBFPT(f);
+            TripleConstraint constraint = new TripleConstraint(qbfpt);
+            int k = Math.min(16, qbfpt.getDomainSize());
+            return of(new GRASP_QBFPT(0.2, Integer.MAX_VALUE, qbfpt),
+                new WindowSearch_QBF(qbfpt, constraint, new VND_QBF(qbfpt, constraint, 3, 0), k, 10, 0));
+        }));
+    }
+
+    /**
+     * Adapts a generic GRASP.
+     */
+    static Solver of(AbstractGRASP<Integer> grasp) {
+        return new Solver() {
+            Solution<Integer> best;
+            public double solve(Double targetCost, long timeLimit) {
+                grasp.setTargetCost(targetCost);
+                grasp.setTimeLimit(timeLimit);
+                best = grasp.solve();
+                return best.cost;
+            }
+            public int iterations() { return grasp.getIterationsDone(); }
+            public Solution<Integer> solution() { return best; }
+            public void seed(long seed) { grasp.setSeed(seed); }
+        };
+    }
+
+    /**
+     * Adapts a generic GRASP whose local search is replaced.
+     */
+    static Solver of(AbstractGRASP<Integer> grasp, LocalSearch<Integer> localSearch) {
+        grasp.setLocalSearch(localSearch);
+        return of(grasp);
+    }
+
+    /**
+     * Adapts a primitive GRASP.
+     */
+    static Solver of(AbstractIntGRASP grasp) {
+        return new Solver() {
+            IntSolution best;
+            public double solve(Double targetCost, long timeLimit) {
+                grasp.setTargetCost(targetCost);
+                grasp.setTimeLimit(timeLimit);
+                best = grasp.solve();
+                return best.cost;
+            }
+            public int iterations() { return grasp.getIterationsDone(); }
+            public Solution<Integer> solution() { return best.toSolution(); }
+            public void seed(long seed) { grasp.setSeed(seed); }
+        };
+    }
+
+    /**
+     * Records the last run of a solver, if there is a store.
+     *
+     * @param store
+     *      The store, or null.
+     * @param instance
+     *      Name of the instance.
+     * @param v
+     *      The variant of the solver.
+     * @param solver
+     *      The solver, after its run.
+     * @param seed
+     *      Seed of the run.
+     * @param nanos
+     *      Running time, in nanoseconds.
+     */
+    static void record(ResultsStore store, String instance, Variant v, Solver solver, long seed,
+            long nanos) throws IOException {
+        if (store == null) return;
+        store.append(new ResultsStore.Run(instance, v.name, v.config, seed, solver.iterations(),
+            nanos / 1000000, solver.solution()));
+    }
+
+    /**
+     * Measures the heap in use, after asking for a few garbage collections.
+     *
+     * @return The used heap in megabytes.
+     */
+    static double usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int k = 0; k < 3; k++) System.gc();
+        return (rt.totalMemory() - rt.freeMemory()) / (1024.0 * 1024.0);
+    }
+
+    /**
+     * Runs the benchmark.
+     */
+    public static void main(String[] args) throws IOException {
+
+        String[] sizes = (args.length > 0 ? args[0] : "1000,2000").split(",");
+        double density = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+        long timeLimit = (long) (1000 * (args.length > 2 ? Double.parseDouble(args[2]) : 10));
+        double gap = args.length > 3 ? Double.parseDouble(args[3]) : 0.01;
+        List<String> names = new ArrayList<String>();
+        if (args.length > 4) for (String v : args[4].split(",")) names.add(v);
+        ResultsStore store = args.length > 5 ? new ResultsStore(args[5]) : null;
+
+        List<Variant> variants = new ArrayList<Variant>();
+        for (Variant v : VARIANTS) {
+            if (names.isEmpty() || names.contains(v.name)) variants.add(v);
+        }
+        System.out.println("n,variant,load_s,instance_mb,solver_mb,iterations,iter_per_s,best,target,ttt_s");
+        long seed = 0;
+
+        for (String size : sizes) {
+
+            int n = Integer.parseInt(size.trim());
+            File file = File.createTempFile("qbf" + n + "-", "");
+            file.deleteOnExit();
+            String filename = file.getPath();
+            String instance = "generated-n" + n + "-d" + density;
+            InstanceGenerator.generate(filename, n, density, -10, 10, n);
+
+            // Instance load time and footprint.
+            double heapBefore = usedHeap();
+            long loadStart = System.nanoTime();
+            InstanceRegistry.load(filename);
+            double loadTime = (System.nanoTime() - loadStart) / 1e9;
+            double instanceHeap = Math.max(0.0, usedHeap() - heapBefore);
+
+            // Throughput under the time budget.
+            Map<Variant, double[]> results = new HashMap<Variant, double[]>();
+            Map<String, Double> best = new HashMap<String, Double>();
+            for (Variant v : variants) {
+
+                double heap = usedHeap();
+                Solver solver = v.factory.create(filename);
+                double solverHeap = Math.max(0.0, usedHeap() - heap);
+                solver.seed(++seed);
+
+                long start = System.nanoTime();
+                double cost = solver.solve(null, timeLimit);
+                long nanos = System.nanoTime() - start;
+                double elapsed = nanos / 1e9;
+                record(store, instance, v, solver, seed, nanos);
+
+                results.put(v, new double[] {
+                    solverHeap, solver.iterations(), solver.iterations() / elapsed, cost
+                });
+                best.merge(v.problem, cost, Math::min);
+
+            }
+
+            // Time to reach the target of each problem.
+            for (Variant v : variants) {
+
+                double bestCost = best.get(v.problem);
+                double target = bestCost + gap * Math.abs(bestCost);
+                Solver solver = v.factory.create(filename);
+                solver.seed(++seed);
+
+                long start = System.nanoTime();
+                double cost = solver.solve(target, timeLimit);
+                long nanos = System.nanoTime() - start;
+                double ttt = nanos / 1e9;
+                record(store, instance, v, solver, seed, nanos);
+
+                double[] r = results.get(v);
+                System.out.println(n + "," + v.name + "," + String.format(Locale.ROOT, "%.3f", loadTime)
+                    + "," + String.format(Locale.ROOT, "%.1f", instanceHeap)
+                    + "," + String.format(Locale.ROOT, "%.1f", r[0])
+                    + "," + (int) r[1] + "," + String.format(Locale.ROOT, "%.2f", r[2]) + "," + r[3]
+                    + "," + target + "," + (cost <= target ? String.format(Locale.ROOT, "%.3f", ttt) : "-"));
+
+            }
+
+            InstanceRegistry.release(filename);
+            file.delete();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,205 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import problems.qbf.InstanceRegistry;
+import problems.qbf.solvers.GRASP_QBF;
+import problems.qbfpt.solvers.GRASP_QBFPT;
+import solutions.ResultsStore;
+
+/**
+ * Time-to-target benchmark of the GRASP solvers. Each variant runs a number
+ * of independent seeded times on an instance, until it reaches a target
+ * cost or a time limit, and the empirical distribution of its wall-clock
+ * times to target is reported as TTT-plot data: the i-th smallest of N
+ * times is plotted at probability (i - 1/2) / N. Variants are then compared
+ * by the probability that a run of one reaches the target before a run of
+ * another, P(T1 <= T2), estimated over every pair of their runs; runs that
+ * miss the target count as infinite times, and ties count as a half.
+ *
+ * Usage: {@code TTTBenchmark <instance> <target> [runs] [seconds] [variants]
+ * [threads] [results]}, e.g. {@code TTTBenchmark instances/qbf100 -1450 100
+ * 10 GRASP_QBF,GRASP_QBF_First_Improving 1 runs/}. The target is a cost,
+ * which the solvers minimize, or {@code best:<dir>:<gap>} for the best-known
+ * cost of the instance in the {@link ResultsStore} at dir, relaxed by a
+ * relative gap. Runs go in parallel on the given number of threads, by
+ * default one per core; since concurrent runs compete for caches and memory
+ * bandwidth, a single thread gives the most faithful times. If a results
+ * directory is given, every run is appended to the {@link ResultsStore}
+ * there, so later benchmarks can target its best-known costs.
+ *
+ * @author aserpa, einnarelli
+ */
+public class TTTBenchmark {
+
+    /**
+     * The benchmarked variants: those of the {@link ScalingBenchmark} and
+     * the reactive GRASPs.
+     */
+    static final List<ScalingBenchmark.Variant> VARIANTS =
+        new ArrayList<ScalingBenchmark.Variant>(ScalingBenchmark.VARIANTS);
+
+    static {
+        VARIANTS.add(new ScalingBenchmark.Variant("GRASP_QBF_Reactive", "qbf", "alphas=10",
+            f -> ScalingBenchmark.of(new GRASP_QBF(10, Integer.MAX_VALUE, f))));
+        VARIANTS.add(new ScalingBenchmark.Variant("GRASP_QBFPT_Reactive", "qbfpt", "alphas=10",
+            f -> ScalingBenchmark.of(new GRASP_QBFPT(10, Integer.MAX_VALUE, f))));
+    }
+
+    /**
+     * Runs a variant once, recording the run if there is a store.
+     *
+     * @return The time to target in seconds, or infinity if the target was
+     *      not reached.
+     */
+    static double run(ScalingBenchmark.Variant v, String filename, long seed, double target,
+            long timeLimit, ResultsStore store) throws IOException {
+
+        ScalingBenchmark.Solver solver = v.factory.create(filename);
+        solver.seed(seed);
+
+        long start = System.nanoTime();
+        double cost = solver.solve(target, timeLimit);
+        long nanos = System.nanoTime() - start;
+        ScalingBenchmark.record(store, filename, v, solver, seed, nanos);
+
+        return cost <= target ? nanos / 1e9 : Double.POSITIVE_INFINITY;
+
+    }
+
+    /**
+     * Estimates P(T1 <= T2) over every pair of runs, counting ties as a half.
+     *
+     * @param t1
+     *      Sorted times of the first variant.
+     * @param t2
+     *      Sorted times of the second variant.
+     *
+     * @return The probability estimate.
+     */
+    static double probability(double[] t1, double[] t2) {
+
+        // Merge-like count, in O(N1 + N2) over the sorted times.
+        double wins = 0.0;
+        int less = 0, lessOrEqual = 0;
+        for (double t : t2) {
+            while (less < t1.length && t1[less] < t) less++;
+            while (lessOrEqual < t1.length && t1[lessOrEqual] <= t) lessOrEqual++;
+            wins += less + 0.5 * (lessOrEqual - less);
+        }
+
+        return wins / ((double) t1.length * t2.length);
+
+    }
+
+    /**
+     * Parses the target cost.
+     */
+    static double target(String arg, String filename) throws IOException {
+
+        if (!arg.startsWith("best:")) return Double.parseDouble(arg);
+
+        int colon = arg.lastIndexOf(':');
+        ResultsStore store = new ResultsStore(arg.substring(5, colon));
+        ResultsStore.Run best = store.bestKnown(filename);
+        if (best == null) throw new IllegalArgumentException("No best-known cost for " + filename + ".");
+
+        double gap = Double.parseDouble(arg.substring(colon + 1));
+        return best.cost + gap * Math.abs(best.cost);
+
+    }
+
+    /**
+     * Runs the benchmark.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        String filename = args[0];
+        double target = target(args[1], filename);
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        long timeLimit = (long) (1000 * (args.length > 3 ? Double.parseDouble(args[3]) : 60));
+        List<String> names = new ArrayList<String>();
+        if (args.length > 4) for (String v : args[4].split(",")) names.add(v);
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        ResultsStore store = args.length > 6 ? new ResultsStore(args[6]) : null;
+
+        List<ScalingBenchmark.Variant> variants = new ArrayList<ScalingBenchmark.Variant>();
+        for (ScalingBenchmark.Variant v : VARIANTS) {
+            if (names.isEmpty() || names.contains(v.name)) variants.add(v);
+        }
+
+        InstanceRegistry.load(filename);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        double[][] times = new double[variants.size()][runs];
+
+        try {
+            // Every run is submitted first, so that all threads stay busy.
+            List<List<Future<Double>>> futures = new ArrayList<List<Future<Double>>>();
+            for (ScalingBenchmark.Variant v : variants) {
+                List<Future<Double>> vf = new ArrayList<Future<Double>>();
+                for (int r = 0; r < runs; r++) {
+                    long seed = r;
+                    vf.add(executor.submit(() -> run(v, filename, seed, target, timeLimit, store)));
+                }
+                futures.add(vf);
+            }
+            for (int k = 0; k < variants.size(); k++) {
+                for (int r = 0; r < runs; r++) times[k][r] = futures.get(k).get(r).get();
+                Arrays.sort(times[k]);
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("A run failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            InstanceRegistry.release(filename);
+        }
+
+        // TTT-plot data.
+        System.out.println("variant,run,time_s,probability");
+        for (int k = 0; k < variants.size(); k++) {
+            for (int r = 0; r < runs && times[k][r] < Double.POSITIVE_INFINITY; r++) {
+                System.out.println(variants.get(k).name + "," + (r + 1) + ","
+                    + String.format(Locale.ROOT, "%.4f", times[k][r]) + "," + String.format(Locale.ROOT, "%.4f", (r + 0.5) / runs));
+            }
+        }
+
+        // Summary of each distribution.
+        System.out.println();
+        System.out.println("variant,target,reached,median_s,mean_s");
+        for (int k = 0; k < variants.size(); k++) {
+            int reached = 0;
+            double sum = 0.0;
+            for (double t : times[k]) {
+                if (t < Double.POSITIVE_INFINITY) {
+                    reached++;
+                    sum += t;
+                }
+            }
+            double median = times[k][runs / 2];
+            System.out.println(variants.get(k).name + "," + target + "," + reached + "/" + runs + ","
+                + (median < Double.POSITIVE_INFINITY ? String.format(Locale.ROOT, "%.4f", median) : "-") + ","
+                + (reached > 0 ? String.format(Locale.ROOT, "%.4f", sum / reached) : "-"));
+        }
+
+        // Probabilistic comparisons.
+        System.out.println();
+        System.out.println("variant1,variant2,P(T1<=T2)");
+        for (int k = 0; k < variants.size(); k++) {
+            for (int q = 0; q < variants.size(); q++) {
+                if (q == k) continue;
+                System.out.println(variants.get(k).name + "," + variants.get(q).name + ","
+                    + String.format(Locale.ROOT, "%.4f", probability(times[k], times[q])));
+            }
+        }
+
+    }
+
+}
@@ -4,7 +4,12 @@
 package metaheuristics.grasp;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
 import java.util.function.Function;
 import java.util.Random;
 
@@ -13,6 +18,11 @@ import problems.Evaluator;
 import solutions.Solution;
 import utils.WeightedItem;
 import metaheuristics.grasp.bias.RCMap;
+import metaheuristics.grasp.memory.FrequencyMemory;
+import metaheuristics.grasp.progress.ProgressEvent;
+import metaheuristics.grasp.progress.ProgressListener;
+import metaheuristics.grasp.progress.ProgressPublisher;
+import metaheuristics.grasp.progress.SolverStats;
 import metaheuristics.grasp.reactive.Alpha;
 import metaheuristics.grasp.reactive.AlphaMap;
 
@@ -27,15 +37,10 @@ import metaheuristics.grasp.reactive.AlphaMap;
 public abstract class AbstractGRASP<E> {
 
 	/**
-	 * Flag that indicates whether the code should print more information on
-	 * screen.
+	 * A random number generator. Each solver owns its generator, so that
+	 * independent solvers (e.g., islands) can be seeded differently.
 	 */
-	public static boolean verbose = true;
-
-	/**
-	 * A random number generator.
-	 */
-	static Random rng = new Random(0);
+	protected Random rng = new Random(0);
 	/**
 	 * The objective function being optimized.
 	 */
@@ -77,6 +82,23 @@ public abstract class AbstractGRASP<E> {
 	 */
 	protected Integer iterations;
 
+	/**
+	 * Cost that stops the GRASP as soon as the incumbent reaches it, or null
+	 * if the GRASP runs for all its iterations.
+	 */
+	protected Double targetCost;
+
+	/**
+	 * Wall-clock time limit of the GRASP in milliseconds, which is checked
+	 * between iterations, or null if there is no limit.
+	 */
+	protected Long timeLimit;
+
+	/**
+	 * Number of iterations executed by the last call to {@link #solve()}.
+	 */
+	protected int iterationsDone;
+
 	/**
 	 * The Candidate List of elements to enter the solution.
 	 */
@@ -99,6 +121,65 @@ public abstract class AbstractGRASP<E> {
 	 */
 	protected Function<Integer, Double> bias;
 
+	/**
+	 * Solutions received from outside the solver (e.g., migrants from other
+	 * islands) waiting to replace the constructive phase of an iteration.
+	 * It is safe to offer seeds from another thread while {@link #solve()}
+	 * is running.
+	 */
+	protected final Queue<Solution<E>> seeds = new ConcurrentLinkedQueue<Solution<E>>();
+
+	/**
+	 * Known solutions (e.g., from a previous run) from which every call to
+	 * {@link #solve()} starts, before its first iteration.
+	 */
+	protected final List<Solution<E>> initialSolutions = new ArrayList<Solution<E>>();
+
+	/**
+	 * Pool of the best distinct local optima found, which persists across
+	 * calls to {@link #solve()}.
+	 */
+	protected final ElitePool<E> elitePool = new ElitePool<E>(10);
+
+	/**
+	 * Local search strategy replacing {@link #localSearch()}, or null.
+	 */
+	protected LocalSearch<E> localSearchStrategy;
+
+	/**
+	 * Long-term memory of the elements of elite local optima, which biases
+	 * the selection from the {@link #RCL}, or null for a memoryless GRASP.
+	 */
+	protected FrequencyMemory<E> memory;
+
+	/**
+	 * Filter of the constructions sent to the local search, or null to
+	 * search every construction.
+	 */
+	protected LocalSearchFilter filter;
+
+	/**
+	 * Buffer of the cost variations of batch evaluations, grown as needed.
+	 */
+	private double[] deltas = new double[0];
+
+	/**
+	 * Publisher of the progress events of this solver, i.e., improvements of
+	 * the incumbent, iteration summaries and terminations.
+	 */
+	protected final ProgressPublisher<E> progress = new ProgressPublisher<E>();
+
+	/**
+	 * Live statistics of this solver, which can be registered as an MBean.
+	 */
+	protected final SolverStats stats = new SolverStats();
+
+	/**
+	 * Flag raised by {@link #interrupt()}, possibly from another thread, which
+	 * stops the GRASP main loop.
+	 */
+	protected volatile boolean interrupted;
+
 	/**
 	 * Creates the Candidate List, which is an ArrayList of candidate elements
 	 * that can enter a solution.
@@ -209,6 +290,7 @@ public abstract class AbstractGRASP<E> {
 		CL = makeCL();
 		currentSol = createEmptySol();
 		currentCost = Double.POSITIVE_INFINITY;
+		solutionChanged();
 
 		/**
 		 * NOTE:
@@ -233,8 +315,10 @@ public abstract class AbstractGRASP<E> {
 			 * Explore all candidate elements to enter the solution, saving the
 			 * highest and lowest cost variation achieved by the candidates.
 			 */
-			for (E c : CL) {
-				Double deltaCost = ObjFunction.evaluateInsertionCost(c, currentSol);
+			double[] deltas = deltas(CL.size());
+			ObjFunction.evaluateInsertionCosts(CL, currentSol, deltas);
+			for (int k = 0; k < CL.size(); k++) {
+				double deltaCost = deltas[k];
 				if (deltaCost < minCost)
 					minCost = deltaCost;
 				if (deltaCost > maxCost)
@@ -245,29 +329,33 @@ public abstract class AbstractGRASP<E> {
 			 * Among all candidates, insert into the RCL/RCM those with the 
 			 * highest performance using parameter alpha as threshold.
 			 */
-			for (E c : CL) {
-				Double deltaCost = ObjFunction.evaluateInsertionCost(c, currentSol);
+			for (int k = 0; k < CL.size(); k++) {
+				double deltaCost = deltas[k];
 				if (deltaCost <= minCost + alpha * (maxCost - minCost)) {
-					if (bias == null) RCL.add(c);
-					else RCM.put(deltaCost, new WeightedItem<E>(c, 1.0));
+					if (bias == null) RCL.add(CL.get(k));
+					else RCM.put(deltaCost, new WeightedItem<E>(CL.get(k), 1.0));
 				}
 			}
 
+			stats.candidates(CL.size(), bias == null ? RCL.size() : RCM.size());
+
 			/* Choose a candidate randomly from the RCL/RCM. */
 
 			E inCand;
-			if (bias == null) {
+			if (bias == null && memory != null) {
+				/* Weighted by the frequencies of the long-term memory. */
+				inCand = memory.select(RCL, rng);
+			} else if (bias == null) {
 				int rndIndex = rng.nextInt(RCL.size());
 				inCand = RCL.get(rndIndex);
 			} else {
 				/* Update RCM weights if a bias function was provided. */
 				RCM.updateWeights(this.bias);
-				inCand = RCM.selectItem();
+				inCand = RCM.selectItem(rng);
 			}
 
 
-			CL.remove(inCand);
-			currentSol.add(inCand);
+			applyMove(inCand, null);
 			ObjFunction.evaluate(currentSol);
 			if (bias == null) RCL.clear();
 			else RCM.clear();
@@ -277,6 +365,118 @@ public abstract class AbstractGRASP<E> {
 		return currentSol;
 	}
 
+	/**
+	 * Applies a move to the current solution and updates the Candidate List
+	 * accordingly. Solvers that keep structures about the current solution
+	 * override it to update them in place.
+	 * 
+	 * @param in
+	 *		Element entering the solution, or null.
+	 * @param out
+	 *		Element leaving the solution, or null.
+	 */
+	protected void applyMove(E in, E out) {
+		if (out != null) {
+			currentSol.remove(out);
+			CL.add(out);
+		}
+		if (in != null) {
+			currentSol.add(in);
+			CL.remove(in);
+		}
+	}
+
+	/**
+	 * Called whenever the current solution is replaced as a whole, rather
+	 * than changed by {@link #applyMove(Object, Object)}: at the start of a
+	 * construction, in a warm start and after a {@link LocalSearch} strategy.
+	 * By default, it does nothing.
+	 */
+	protected void solutionChanged() {}
+
+	/**
+	 * Gives a buffer for the cost variations of a batch evaluation, which is
+	 * reused by the following batches.
+	 * 
+	 * @param size
+	 *		Number of moves of the batch.
+	 * @return A buffer with at least the given size.
+	 */
+	protected double[] deltas(int size) {
+		if (deltas.length < size) deltas = new double[Math.max(size, 2 * deltas.length)];
+		return deltas;
+	}
+
+	/**
+	 * Repairs a solution given from outside the solver, so that it becomes
+	 * feasible. By default, solutions are assumed feasible.
+	 * 
+	 * @param sol
+	 *		The solution to be repaired, which may be modified.
+	 * @return A feasible solution, not necessarily evaluated.
+	 */
+	public Solution<E> repair(Solution<E> sol) {
+		return sol;
+	}
+
+	/**
+	 * Starts an iteration from a given solution instead of building one with
+	 * the constructive heuristic. The seed is {@link #repair(Solution)
+	 * repaired} and the Candidate List is rebuilt with every element that is
+	 * not in it.
+	 * 
+	 * @param seed
+	 *		The solution from which the iteration starts.
+	 * @return The seed solution, now set as the current solution.
+	 */
+	public Solution<E> warmStart(Solution<E> seed) {
+
+		currentSol = repair(new Solution<E>(seed));
+		currentCost = ObjFunction.evaluate(currentSol);
+		CL = makeCL();
+		CL.removeAll(currentSol);
+		solutionChanged();
+		updateCL();
+
+		return currentSol;
+	}
+
+	/**
+	 * Offers a solution to be used as the starting point of a future
+	 * iteration, in place of the constructive heuristic. Seeds are consumed
+	 * one per iteration, in the order they were offered.
+	 * 
+	 * @param seed
+	 *		The solution to be used as a starting point.
+	 */
+	public void offerSeed(Solution<E> seed) {
+		seeds.add(new Solution<E>(seed));
+	}
+
+	/**
+	 * Adds a known solution from which every call to {@link #solve()}
+	 * starts: it is repaired, locally optimized and offered to the elite
+	 * pool, and the best of the initial solutions is the first incumbent.
+	 * 
+	 * @param sol
+	 *		The initial solution, which is copied.
+	 */
+	public void addInitialSolution(Solution<E> sol) {
+		initialSolutions.add(new Solution<E>(sol));
+	}
+
+	/**
+	 * Replaces the initial solutions.
+	 * 
+	 * @param sols
+	 *		The initial solutions, which are copied.
+	 * @see #addInitialSolution(Solution)
+	 */
+	public void setInitialSolutions(Collection<? extends Solution<E>> sols) {
+		initialSolutions.clear();
+		for (Solution<E> sol : sols) addInitialSolution(sol);
+	}
+
 	/**
 	 * The GRASP mainframe. It consists of a loop, in which each iteration goes
 	 * through the constructive heuristic and local search. The best solution is
@@ -302,45 +502,149 @@ public abstract class AbstractGRASP<E> {
 			alphaMap = new AlphaMap(numAlphas);
 		}
 
-		for (int i = 0; i < iterations; i++) {
+		long startTime = System.currentTimeMillis();
+		iterationsDone = 0;
+		if (filter != null) filter.clear();
+		stats.start();
+		if (isReactive) stats.alphas(alphaMap);
+
+		// Warm start from the initial solutions, which do not count as
+		// iterations.
+		for (Solution<E> initial : initialSolutions) {
+			warmStart(initial);
+			improve();
+			updateIncumbent(-1, startTime);
+		}
+
+		for (int i = 0; i < iterations && !stopCriteria(startTime); i++) {
 
 			// Reactive GRASP:
 			if (isReactive) {
 				// Select a random alpha from the weighted list.
-				alpha = alphaMap.selectItem();
+				alpha = alphaMap.selectItem(rng);
 			}
-
-			// Greedy-random construction.
-			constructiveHeuristic();
-
-			// Try to improve the solution.
-			localSearch();
+			stats.alpha(alpha);
+
+			// Greedy-random construction, unless a seed is waiting.
+			long constructionStart = System.nanoTime();
+			Solution<E> seed = seeds.poll();
+			boolean seeded = seed != null;
+			if (seeded) warmStart(seed);
+			else constructiveHeuristic();
+
+			// Try to improve the solution, unless the filter finds the
+			// construction unpromising. Seeds are always improved.
+			long searchStart = System.nanoTime();
+			stats.construction(searchStart - constructionStart);
+			boolean searched = true;
+			if (filter == null || seeded) {
+				improve();
+			} else if (filter.accept(currentSol.cost, incumbentSol.cost)) {
+				double constructedCost = currentSol.cost;
+				improve();
+				filter.record(constructedCost, currentSol.cost);
+			} else {
+				searched = false;
+			}
+			stats.localSearch(System.nanoTime() - searchStart);
 
 			// Update incumbent solution, if necessary.
-			if (incumbentSol.cost > currentSol.cost) {
-				incumbentSol = new Solution<E>(currentSol);
-				if (verbose)
-					System.out.println("(Iter. " + i + ") BestSol = " + incumbentSol + ", alpha=" + alpha);
-			}
+			updateIncumbent(i, startTime);
 
-			// Reactive GRASP:
-			if (isReactive && i < iterations - 1) {
+			iterationsDone++;
+			stats.iteration(iterationsDone, incumbentSol.cost);
+			if (progress.hasIterationSubscribers())
+				publish(ProgressEvent.Type.ITERATION, i, startTime, null);
+
+			// Reactive GRASP (seeded iterations say nothing about alpha):
+			if (isReactive && !seeded && i < iterations - 1) {
 
-				// Update average cost of solutions that used alpha.
-				((Alpha) alphaMap.get(alpha)).updateA(currentSol.cost);
+				// Update average cost of the local optima that used alpha,
+				// leaving out the constructions the filter did not search.
+				if (searched) ((Alpha) alphaMap.get(alpha)).updateA(currentSol.cost);
 
 				// Update the alpha probabilities at each 10 iterations.
 				if ((i + 1) % (int) Math.sqrt(numAlphas) == 0) {
 					alphaMap.updateWeights(incumbentSol.cost);
+					stats.alphas(alphaMap);
 				}
 
 			}
 
 		}
 
+		stats.finish();
+		if (progress.hasSubscribers())
+			publish(ProgressEvent.Type.TERMINATION, iterationsDone, startTime, new Solution<E>(incumbentSol));
+
 		return incumbentSol;
 	}
 
+	/**
+	 * The local search phase of an iteration: the {@link #localSearch()} of
+	 * the GRASP, unless a {@link LocalSearch} strategy was set.
+	 */
+	protected void improve() {
+		if (localSearchStrategy != null) {
+			currentSol = localSearchStrategy.improve(currentSol);
+			solutionChanged();
+		}
+		else localSearch();
+	}
+
+	/**
+	 * Offers the current solution to the elite pool, recording it in the
+	 * long-term memory if it enters the pool, where it replaces the evicted
+	 * solution, and makes it the incumbent if it is better.
+	 * 
+	 * @param iteration
+	 *		Index of the iteration, or -1 in the warm start.
+	 * @param startTime
+	 *		Time the GRASP started, in milliseconds.
+	 */
+	protected void updateIncumbent(int iteration, long startTime) {
+		if (memory == null) elitePool.offer(currentSol);
+		else if (elitePool.offer(currentSol, memory::forget)) memory.record(currentSol);
+		if (incumbentSol.cost > currentSol.cost) {
+			incumbentSol = new Solution<E>(currentSol);
+			if (progress.hasSubscribers())
+				publish(ProgressEvent.Type.INCUMBENT, iteration, startTime, new Solution<E>(incumbentSol));
+		}
+	}
+
+	/**
+	 * Publishes a progress event about the current iteration.
+	 * 
+	 * @param type
+	 *		Type of the event.
+	 * @param iteration
+	 *		Index of the iteration, or number of iterations at termination.
+	 * @param startTime
+	 *		Time the GRASP started, in milliseconds.
+	 * @param incumbent
+	 *		Copy of the incumbent, or null.
+	 */
+	private void publish(ProgressEvent.Type type, int iteration, long startTime, Solution<E> incumbent) {
+		progress.publish(new ProgressEvent<E>(type, iteration, System.currentTimeMillis() - startTime,
+			alpha == null ? Double.NaN : alpha, currentSol == null ? Double.NaN : currentSol.cost,
+			incumbentSol.cost, incumbent));
+	}
+
+	/**
+	 * Stopping criteria of the GRASP main loop, besides the number of
+	 * iterations: the GRASP was interrupted, the incumbent reached the
+	 * {@link #targetCost} or the {@link #timeLimit} is over.
+	 * 
+	 * @param startTime
+	 *		Time the GRASP started, in milliseconds.
+	 * @return true if the criteria is met.
+	 */
+	public boolean stopCriteria(long startTime) {
+		if (interrupted) return true;
+		if (targetCost != null && incumbentSol.cost <= targetCost) return true;
+		return timeLimit != null && System.currentTimeMillis() - startTime >= timeLimit;
+	}
+
 	/**
 	 * A standard stopping criteria for the constructive heuristic is to repeat
 	 * until the incumbent solution improves by inserting a new candidate
@@ -357,4 +661,155 @@ public abstract class AbstractGRASP<E> {
 	 */
 	public void setBias() {}
 
+	/**
+	 * Sets a target cost, so that the GRASP stops as soon as its incumbent
+	 * reaches it.
+	 * 
+	 * @param targetCost
+	 *		The target cost, or null to disable it.
+	 */
+	public void setTargetCost(Double targetCost) {
+		this.targetCost = targetCost;
+	}
+
+	/**
+	 * Sets a wall-clock time limit, checked between iterations.
+	 * 
+	 * @param timeLimit
+	 *		The time limit in milliseconds, or null to disable it.
+	 */
+	public void setTimeLimit(Long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Adds a listener of the progress events, called asynchronously.
+	 * 
+	 * @param listener
+	 *		The listener.
+	 */
+	public void addListener(ProgressListener<E> listener) {
+		progress.addListener(listener);
+	}
+
+	/**
+	 * Removes a listener of the progress events.
+	 * 
+	 * @param listener
+	 *		The listener.
+	 */
+	public void removeListener(ProgressListener<E> listener) {
+		progress.removeListener(listener);
+	}
+
+	/**
+	 * Publisher getter, for reactive-streams subscribers of the progress
+	 * events.
+	 * 
+	 * @return The publisher of the progress events.
+	 */
+	public Flow.Publisher<ProgressEvent<E>> getPublisher() { return progress; };
+
+	/**
+	 * Closes the publisher of the progress events, waiting until the
+	 * listeners have received the events already published. No event can be
+	 * published afterwards, so it should be called once the solver is done.
+	 * 
+	 * @param timeout
+	 *		Maximum time to wait, in milliseconds.
+	 * @return true if every listener received the events in time.
+	 * @throws InterruptedException
+	 *		If interrupted while waiting.
+	 */
+	public boolean closeProgress(long timeout) throws InterruptedException {
+		return progress.close(timeout);
+	}
+
+	/**
+	 * Stops the GRASP at the end of its current iteration. The flag is never
+	 * cleared, so later calls to {@link #solve()} return without iterating.
+	 * It is safe to call from another thread.
+	 */
+	public void interrupt() {
+		interrupted = true;
+	}
+
+	/**
+	 * Sets a local search strategy, which replaces the
+	 * {@link #localSearch()} of the GRASP.
+	 * 
+	 * @param localSearchStrategy
+	 *		The strategy, or null to use {@link #localSearch()}.
+	 */
+	public void setLocalSearch(LocalSearch<E> localSearchStrategy) {
+		this.localSearchStrategy = localSearchStrategy;
+	}
+
+	/**
+	 * Sets the long-term memory, which biases the selection from the RCL
+	 * (when there is no {@link #bias} function) and follows the solutions
+	 * of the elite pool. It is reset to the solutions already in the pool.
+	 * 
+	 * @param memory
+	 *		The memory, or null for a memoryless GRASP.
+	 */
+	public void setMemory(FrequencyMemory<E> memory) {
+		this.memory = memory;
+		if (memory == null) return;
+		memory.clear();
+		for (Solution<E> sol : elitePool.getSolutions()) memory.record(sol);
+	}
+
+	/**
+	 * Sets the filter of the constructions sent to the local search. It is
+	 * cleared at the start of each solve, and in a reactive GRASP the
+	 * constructions it skips do not count in the statistics of their alphas,
+	 * which only average local optima.
+	 * 
+	 * @param filter
+	 *		The filter, or null to search every construction.
+	 */
+	public void setFilter(LocalSearchFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Objective function getter.
+	 * 
+	 * @return The objective function being optimized.
+	 */
+	public Evaluator<E> getObjFunction() { return ObjFunction; };
+
+	/**
+	 * Stats getter.
+	 * 
+	 * @return The live statistics of this solver.
+	 */
+	public SolverStats getStats() { return stats; };
+
+	/**
+	 * Elite pool getter.
+	 * 
+	 * @return The pool of the best distinct local optima found.
+	 */
+	public ElitePool<E> getElitePool() { return elitePool; };
+
+	/**
+	 * Iterations getter.
+	 * 
+	 * @return The number of iterations executed by the last call to
+	 *		{@link #solve()}.
+	 */
+	public int getIterationsDone() { return iterationsDone; };
+
+	/**
+	 * Resets the solver random number generator with a new seed.
+	 * 
+	 * @param seed
+	 *		The new seed.
+	 */
+	public void setSeed(long seed) {
+		rng.setSeed(seed);
+	}
+
 }
@@ -0,0 +1,523 @@
+/**
+ * GRASP metaheuristic abstract class for integer-indexed problems.
+ */
+package metaheuristics.grasp;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Flow;
+
+import problems.IntEvaluator;
+import solutions.IntSolution;
+import metaheuristics.grasp.progress.ProgressEvent;
+import metaheuristics.grasp.progress.ProgressListener;
+import metaheuristics.grasp.progress.ProgressPublisher;
+import metaheuristics.grasp.progress.SolverStats;
+import metaheuristics.grasp.reactive.Alpha;
+import metaheuristics.grasp.reactive.AlphaMap;
+
+/**
+ * Primitive counterpart of the {@link AbstractGRASP}, for problems whose
+ * domain is the integers {0, ..., n-1} and which implement an
+ * {@link IntEvaluator}. Elements, costs and the candidate lists are kept in
+ * primitive fields and arrays allocated once per solver, so the constructive
+ * and local search loops neither box nor allocate. It considers a
+ * minimization problem and supports the non-reactive and reactive GRASP (the
+ * biased GRASP is only available in the {@link AbstractGRASP}).
+ *
+ * @author aserpa, einnarelli
+ */
+public abstract class AbstractIntGRASP {
+
+	/**
+	 * A random number generator.
+	 */
+	protected Random rng = new Random(0);
+
+	/**
+	 * The objective function being optimized.
+	 */
+	protected final IntEvaluator ObjFunction;
+
+	/**
+	 * Size of the problem domain.
+	 */
+	protected final int n;
+
+	/**
+	 * The non-reactive GRASP greediness-randomness parameter.
+	 */
+	protected double alpha;
+
+	/**
+	 * The reactive GRASP number of possible alphas ({@link #alpha}) to be
+	 * selected, or 0 in the non-reactive GRASP.
+	 */
+	protected final int numAlphas;
+
+	/**
+	 * The best solution cost.
+	 */
+	protected double incumbentCost;
+
+	/**
+	 * The current solution cost.
+	 */
+	protected double currentCost;
+
+	/**
+	 * The best solution.
+	 */
+	protected IntSolution incumbentSol;
+
+	/**
+	 * The current solution.
+	 */
+	protected IntSolution currentSol;
+
+	/**
+	 * The number of iterations the GRASP main loop executes.
+	 */
+	protected final int iterations;
+
+	/**
+	 * Cost that stops the GRASP as soon as the incumbent reaches it, or null
+	 * if the GRASP runs for all its iterations.
+	 */
+	protected Double targetCost;
+
+	/**
+	 * Wall-clock time limit of the GRASP in milliseconds, which is checked
+	 * between iterations, or null if there is no limit.
+	 */
+	protected Long timeLimit;
+
+	/**
+	 * Number of iterations executed by the last call to {@link #solve()}.
+	 */
+	protected int iterationsDone;
+
+	/**
+	 * The Candidate List of elements to enter the solution, in the first
+	 * {@link #CLSize} positions.
+	 */
+	protected final int[] CL;
+
+	/**
+	 * Number of elements in the {@link #CL}.
+	 */
+	protected int CLSize;
+
+	/**
+	 * Position of each element in the {@link #CL}, or -1 if it is not there.
+	 */
+	private final int[] CLPosition;
+
+	/**
+	 * The Restricted Candidate List of elements to enter the solution, in the
+	 * first {@link #RCLSize} positions.
+	 */
+	protected final int[] RCL;
+
+	/**
+	 * Number of elements in the {@link #RCL}.
+	 */
+	protected int RCLSize;
+
+	/**
+	 * Cost variation of inserting each candidate, indexed as the {@link #CL}.
+	 */
+	protected final double[] deltas;
+
+	/**
+	 * Publisher of the progress events of this solver, whose solutions are
+	 * converted to {@link solutions.Solution} only if someone subscribed.
+	 */
+	protected final ProgressPublisher<Integer> progress = new ProgressPublisher<Integer>();
+
+	/**
+	 * Live statistics of this solver, which can be registered as an MBean.
+	 */
+	protected final SolverStats stats = new SolverStats();
+
+	/**
+	 * Fills the Candidate List with the elements that can enter a solution,
+	 * through {@link #addToCL(int)}.
+	 */
+	public abstract void makeCL();
+
+	/**
+	 * Updates the Candidate List according to the current solution
+	 * {@link #currentSol}.
+	 */
+	public abstract void updateCL();
+
+	/**
+	 * Empties the current solution and sets its cost, i.e., the cost of a
+	 * solution without elements.
+	 */
+	public abstract void createEmptySol();
+
+	/**
+	 * The GRASP local search phase, which improves {@link #currentSol} until a
+	 * local optimum is attained.
+	 */
+	public abstract void localSearch();
+
+	/**
+	 * Base constructor for the AbstractIntGRASP class.
+	 *
+	 * @param objFunction
+	 * 		The objective function being minimized.
+	 * @param iterations
+	 * 		The number of iterations which the GRASP will be executed.
+	 * @param alpha
+	 *		The GRASP greediness-randomness parameter (within the range [0,1]),
+	 *		ignored in the reactive GRASP.
+	 * @param numAlphas
+	 *		Number of possible alphas of the reactive GRASP, or 0 for the
+	 *		non-reactive GRASP.
+	 */
+	private AbstractIntGRASP(IntEvaluator objFunction, int iterations, double alpha, int numAlphas) {
+		this.ObjFunction = objFunction;
+		this.iterations = iterations;
+		this.alpha = alpha;
+		this.numAlphas = numAlphas;
+		this.n = objFunction.domainSize();
+		this.CL = new int[n];
+		this.CLPosition = new int[n];
+		this.RCL = new int[n];
+		this.deltas = new double[n];
+		this.currentSol = new IntSolution(n);
+		this.incumbentSol = new IntSolution(n);
+		Arrays.fill(CLPosition, -1);
+	}
+
+	/**
+	 * Constructor for the non-reactive AbstractIntGRASP class.
+	 *
+	 * @param alpha
+	 *		The GRASP greediness-randomness parameter (within the range [0,1]).
+	 */
+	public AbstractIntGRASP(IntEvaluator objFunction, int iterations, double alpha) {
+		this(objFunction, iterations, alpha, 0);
+		assert alpha >= 0.0 && alpha <= 1.0 : "alpha should be a double in [0, 1].";
+	}
+
+	/**
+	 * Constructor for the reactive AbstractIntGRASP class.
+	 *
+	 * @param numAlphas
+	 *		Number of possible alphas to be selected.
+	 */
+	public AbstractIntGRASP(IntEvaluator objFunction, int iterations, int numAlphas) {
+		this(objFunction, iterations, 0.0, numAlphas);
+		assert numAlphas > 1 : "numAlphas should be a integer greater than 1.";
+	}
+
+	/**
+	 * Inserts an element into the Candidate List, if it is not there yet.
+	 *
+	 * @param e
+	 *		The element to be inserted.
+	 */
+	protected void addToCL(int e) {
+		if (CLPosition[e] >= 0) return;
+		CLPosition[e] = CLSize;
+		CL[CLSize++] = e;
+	}
+
+	/**
+	 * Removes an element from the Candidate List, if it is there. The last
+	 * candidate takes its place.
+	 *
+	 * @param e
+	 *		The element to be removed.
+	 */
+	protected void removeFromCL(int e) {
+		int k = CLPosition[e];
+		if (k < 0) return;
+		int last = CL[--CLSize];
+		CL[k] = last;
+		CLPosition[last] = k;
+		CLPosition[e] = -1;
+	}
+
+	/**
+	 * Removes every element from the Candidate List.
+	 */
+	protected void clearCL() {
+		for (int k = 0; k < CLSize; k++) {
+			CLPosition[CL[k]] = -1;
+		}
+		CLSize = 0;
+	}
+
+	/**
+	 * The GRASP constructive heuristic, which is responsible for building a
+	 * feasible solution by selecting in a greedy-random fashion, candidate
+	 * elements to enter the solution.
+	 */
+	public void constructiveHeuristic() {
+
+		clearCL();
+		makeCL();
+		createEmptySol();
+		currentCost = Double.POSITIVE_INFINITY;
+
+		/* Main loop, which repeats until the stopping criteria is reached. */
+		while (!constructiveStopCriteria()) {
+
+			double maxCost = Double.NEGATIVE_INFINITY, minCost = Double.POSITIVE_INFINITY;
+			currentCost = currentSol.cost;
+			updateCL();
+
+			/* Stop if CL is empty after the update. */
+			if (CLSize == 0) { break; }
+
+			/*
+			 * Explore all candidate elements to enter the solution, saving the
+			 * highest and lowest cost variation achieved by the candidates.
+			 */
+			ObjFunction.evaluateInsertionCosts(CL, CLSize, currentSol, deltas);
+			for (int k = 0; k < CLSize; k++) {
+				double deltaCost = deltas[k];
+				if (deltaCost < minCost)
+					minCost = deltaCost;
+				if (deltaCost > maxCost)
+					maxCost = deltaCost;
+			}
+
+			/*
+			 * Among all candidates, insert into the RCL those with the highest
+			 * performance using parameter alpha as threshold.
+			 */
+			RCLSize = 0;
+			double threshold = minCost + alpha * (maxCost - minCost);
+			for (int k = 0; k < CLSize; k++) {
+				if (deltas[k] <= threshold) {
+					RCL[RCLSize++] = CL[k];
+				}
+			}
+
+			stats.candidates(CLSize, RCLSize);
+
+			/* Choose a candidate randomly from the RCL. */
+			int inCand = RCL[rng.nextInt(RCLSize)];
+			double inCost = deltas[CLPosition[inCand]];
+
+			removeFromCL(inCand);
+			currentSol.add(inCand);
+			currentSol.cost += inCost;
+
+		}
+
+		ObjFunction.evaluate(currentSol);
+
+	}
+
+	/**
+	 * The GRASP mainframe. It consists of a loop, in which each iteration goes
+	 * through the constructive heuristic and local search. The best solution is
+	 * returned as result.
+	 *
+	 * @return The best feasible solution obtained throughout all iterations.
+	 */
+	public IntSolution solve() {
+
+		incumbentSol.clear();
+		incumbentSol.cost = Double.POSITIVE_INFINITY;
+		incumbentCost = Double.POSITIVE_INFINITY;
+
+		/* Reactive GRASP alpha map, not instantiated in the non-reactive
+		 * GRASP. */
+		AlphaMap alphaMap = null;
+		boolean isReactive = numAlphas > 0;
+		if (isReactive) {
+			alphaMap = new AlphaMap(numAlphas);
+		}
+
+		long startTime = System.currentTimeMillis();
+		iterationsDone = 0;
+		stats.start();
+		if (isReactive) stats.alphas(alphaMap);
+
+		for (int i = 0; i < iterations && !stopCriteria(startTime); i++) {
+
+			// Reactive GRASP:
+			if (isReactive) {
+				alpha = alphaMap.selectItem(rng);
+			}
+			stats.alpha(alpha);
+
+			// Greedy-random construction.
+			long constructionStart = System.nanoTime();
+			constructiveHeuristic();
+
+			// Try to improve the solution.
+			long searchStart = System.nanoTime();
+			stats.construction(searchStart - constructionStart);
+			localSearch();
+			stats.localSearch(System.nanoTime() - searchStart);
+
+			// Update incumbent solution, if necessary.
+			if (incumbentCost > currentSol.cost) {
+				incumbentSol.copyFrom(currentSol);
+				incumbentCost = currentSol.cost;
+				if (progress.hasSubscribers())
+					publish(ProgressEvent.Type.INCUMBENT, i, startTime);
+			}
+
+			iterationsDone++;
+			stats.iteration(iterationsDone, incumbentCost);
+			if (progress.hasIterationSubscribers())
+				publish(ProgressEvent.Type.ITERATION, i, startTime);
+
+			// Reactive GRASP:
+			if (isReactive && i < iterations - 1) {
+
+				// Update average cost of solutions that used alpha.
+				((Alpha) alphaMap.get(alpha)).updateA(currentSol.cost);
+
+				// Update the alpha probabilities at each sqrt(m) iterations.
+				if ((i + 1) % (int) Math.sqrt(numAlphas) == 0) {
+					alphaMap.updateWeights(incumbentCost);
+					stats.alphas(alphaMap);
+				}
+
+			}
+
+		}
+
+		stats.finish();
+		if (progress.hasSubscribers())
+			publish(ProgressEvent.Type.TERMINATION, iterationsDone, startTime);
+
+		return incumbentSol;
+	}
+
+	/**
+	 * Publishes a progress event about the current iteration, with a copy of
+	 * the incumbent unless it is an iteration event.
+	 */
+	private void publish(ProgressEvent.Type type, int iteration, long startTime) {
+		progress.publish(new ProgressEvent<Integer>(type, iteration, System.currentTimeMillis() - startTime,
+			alpha, currentSol.cost, incumbentCost,
+			type == ProgressEvent.Type.ITERATION ? null : incumbentSol.toSolution()));
+	}
+
+	/**
+	 * Stopping criteria of the GRASP main loop, besides the number of
+	 * iterations: the incumbent reached the {@link #targetCost} or the
+	 * {@link #timeLimit} is over.
+	 * 
+	 * @param startTime
+	 *		Time the GRASP started, in milliseconds.
+	 * @return true if the criteria is met.
+	 */
+	public boolean stopCriteria(long startTime) {
+		if (targetCost != null && incumbentCost <= targetCost) return true;
+		return timeLimit != null && System.currentTimeMillis() - startTime >= timeLimit;
+	}
+
+	/**
+	 * A standard stopping criteria for the constructive heuristic is to repeat
+	 * until the current solution improves by inserting a new candidate
+	 * element.
+	 *
+	 * @return true if the criteria is met.
+	 */
+	public boolean constructiveStopCriteria() {
+		return currentCost <= currentSol.cost;
+	}
+
+	/**
+	 * Sets a target cost, so that the GRASP stops as soon as its incumbent
+	 * reaches it.
+	 * 
+	 * @param targetCost
+	 *		The target cost, or null to disable it.
+	 */
+	public void setTargetCost(Double targetCost) {
+		this.targetCost = targetCost;
+	}
+
+	/**
+	 * Sets a wall-clock time limit, checked between iterations.
+	 * 
+	 * @param timeLimit
+	 *		The time limit in milliseconds, or null to disable it.
+	 */
+	public void setTimeLimit(Long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Adds a listener of the progress events, called asynchronously.
+	 *
+	 * @param listener
+	 *		The listener.
+	 */
+	public void addListener(ProgressListener<Integer> listener) {
+		progress.addListener(listener);
+	}
+
+	/**
+	 * Removes a listener of the progress events.
+	 *
+	 * @param listener
+	 *		The listener.
+	 */
+	public void removeListener(ProgressListener<Integer> listener) {
+		progress.removeListener(listener);
+	}
+
+	/**
+	 * Publisher getter, for reactive-streams subscribers of the progress
+	 * events.
+	 *
+	 * @return The publisher of the progress events.
+	 */
+	public Flow.Publisher<ProgressEvent<Integer>> getPublisher() { return progress; };
+
+	/**
+	 * Closes the publisher of the progress events, waiting until the
+	 * listeners have received the events already published. No event can be
+	 * published afterwards, so it should be called once the solver is done.
+	 * 
+	 * @param timeout
+	 *		Maximum time to wait, in milliseconds.
+	 * @return true if every listener received the events in time.
+	 * @throws InterruptedException
+	 *		If interrupted while waiting.
+	 */
+	public boolean closeProgress(long timeout) throws InterruptedException {
+		return progress.close(timeout);
+	}
+
+	/**
+	 * Iterations getter.
+	 * 
+	 * @return The number of iterations executed by the last call to
+	 *		{@link #solve()}.
+	 */
+	public int getIterationsDone() { return iterationsDone; };
+
+	/**
+	 * Stats getter.
+	 * 
+	 * @return The live statistics of this solver.
+	 */
+	public SolverStats getStats() { return stats; };
+
+	/**
+	 * Resets the solver random number generator with a new seed.
+	 *
+	 * @param seed
+	 *		The new seed.
+	 */
+	public void setSeed(long seed) {
+		rng.setSeed(seed);
+	}
+
+}
@@ -0,0 +1,128 @@
+package metaheuristics.grasp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import solutions.Solution;
+
+/**
+ * Pool of the best distinct solutions found by a GRASP, kept in increasing
+ * order of cost (it considers a minimization problem). Two solutions are
+ * the same if they have the same cost and the same set of elements. The
+ * pool is safe to read from other threads while the GRASP runs.
+ *
+ * @author aserpa, einnarelli
+ * @param <E>
+ *      Generic type of the element which composes the solution.
+ */
+public class ElitePool<E> {
+
+    /**
+     * Maximum number of solutions in the pool.
+     */
+    private final int capacity;
+
+    /**
+     * The solutions, in increasing order of cost.
+     */
+    private final List<Solution<E>> solutions = new ArrayList<Solution<E>>();
+
+    /**
+     * Constructor for the ElitePool class.
+     *
+     * @param capacity
+     *      Maximum number of solutions in the pool.
+     */
+    public ElitePool(int capacity) {
+        assert capacity > 0 : "capacity should be a positive integer.";
+        this.capacity = capacity;
+    }
+
+    /**
+     * Offers a solution to the pool, which keeps a copy of it if it is not
+     * there yet and the pool is not full of better solutions. The worst
+     * solution leaves the pool if it overflows.
+     *
+     * @param sol
+     *      The solution offered.
+     *
+     * @return true if the solution entered the pool.
+     */
+    public boolean offer(Solution<E> sol) {
+        return offer(sol, null);
+    }
+
+    /**
+     * Offers a solution to the pool, as {@link #offer(Solution)}, telling
+     * which solution leaves the pool if it overflows.
+     *
+     * @param sol
+     *      The solution offered.
+     * @param evicted
+     *      Receives the solution that left the pool, if any, or null.
+     *
+     * @return true if the solution entered the pool.
+     */
+    public synchronized boolean offer(Solution<E> sol, Consumer<? super Solution<E>> evicted) {
+
+        int size = solutions.size();
+        if (size == capacity && sol.cost >= solutions.get(size - 1).cost) return false;
+
+        // Position of the solution, after those with a smaller or equal cost.
+        int k = 0;
+        while (k < size && solutions.get(k).cost <= sol.cost) k++;
+
+        // Only solutions with the same cost can be the same solution.
+        HashSet<E> elements = null;
+        for (int j = k - 1; j >= 0 && solutions.get(j).cost.equals(sol.cost); j--) {
+            if (elements == null) elements = new HashSet<E>(sol);
+            if (solutions.get(j).size() == sol.size() && elements.equals(new HashSet<E>(solutions.get(j))))
+                return false;
+        }
+
+        solutions.add(k, new Solution<E>(sol));
+        if (solutions.size() > capacity) {
+            Solution<E> worst = solutions.remove(capacity);
+            if (evicted != null) evicted.accept(worst);
+        }
+        return true;
+
+    }
+
+    /**
+     * @return The best solution of the pool, or null if it is empty.
+     */
+    public synchronized Solution<E> best() {
+        return solutions.isEmpty() ? null : solutions.get(0);
+    }
+
+    /**
+     * Solutions getter. The solutions should not be modified.
+     *
+     * @return A snapshot of the solutions, in increasing order of cost.
+     */
+    public synchronized List<Solution<E>> getSolutions() {
+        return Collections.unmodifiableList(new ArrayList<Solution<E>>(solutions));
+    }
+
+    /**
+     * @return The number of solutions in the pool.
+     */
+    public synchronized int size() { return solutions.size(); };
+
+    /**
+     * @return The maximum number of solutions in the pool.
+     */
+    public int capacity() { return capacity; };
+
+    /**
+     * Removes every solution from the pool.
+     */
+    public synchronized void clear() {
+        solutions.clear();
+    }
+
+}
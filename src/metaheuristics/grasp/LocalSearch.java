@@ -0,0 +1,28 @@
+package metaheuristics.grasp;
+
+import solutions.Solution;
+
+/**
+ * Local search strategy of a GRASP, which can replace its
+ * {@link AbstractGRASP#localSearch()} through
+ * {@link AbstractGRASP#setLocalSearch(LocalSearch)}, so that the same
+ * search engine can be shared by different GRASP variants. It considers a
+ * minimization problem.
+ *
+ * @author aserpa, einnarelli
+ * @param <E>
+ *      Generic type of the element which composes the solution.
+ */
+public interface LocalSearch<E> {
+
+    /**
+     * Improves a solution until a local optimum is attained.
+     *
+     * @param sol
+     *      The evaluated solution to be improved, which may be modified.
+     *
+     * @return A local optimum, evaluated.
+     */
+    Solution<E> improve(Solution<E> sol);
+
+}
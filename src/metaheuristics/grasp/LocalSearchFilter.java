@@ -0,0 +1,157 @@
+package metaheuristics.grasp;
+
+import java.util.Arrays;
+
+/**
+ * Adaptive filter of the constructions sent to the local search of a GRASP.
+ * It records how much the local search improves each construction, and
+ * learns a margin as a quantile of the recent improvements: a construction
+ * is only searched if its cost minus the margin, an optimistic estimate of
+ * its local optimum, is below the incumbent cost (the GRASP minimizes).
+ * Constructions far worse than the incumbent are thus kept, as they are,
+ * and the time budget goes to those likely to improve it.
+ *
+ * The first constructions are always searched, until the margin is learned
+ * from {@link #warmup} of them, and so is a construction after
+ * {@link #warmup} consecutive ones are skipped, so that the margin keeps
+ * following the search.
+ *
+ * @author aserpa, einnarelli
+ */
+public class LocalSearchFilter {
+
+    /**
+     * Quantile of the recent improvements taken as the margin, within (0,1].
+     */
+    private final double quantile;
+
+    /**
+     * Number of searched constructions before the filter starts skipping,
+     * and maximum number of consecutive constructions skipped.
+     */
+    private final int warmup;
+
+    /**
+     * Improvements of the recent searched constructions, as a circular
+     * buffer.
+     */
+    private final double[] improvements;
+
+    /**
+     * Sorted copy of {@link #improvements}, to find the quantile.
+     */
+    private final double[] sorted;
+
+    /**
+     * Number of improvements recorded.
+     */
+    private long recorded;
+
+    /**
+     * The learned margin.
+     */
+    private double margin = Double.POSITIVE_INFINITY;
+
+    /**
+     * Number of constructions searched and skipped, and of consecutive
+     * constructions skipped.
+     */
+    private long accepted, skipped, idle;
+
+    /**
+     * Constructor for a filter with the 0.9 quantile of the last 100
+     * improvements and a warm-up of 20 constructions.
+     */
+    public LocalSearchFilter() {
+        this(0.9, 100, 20);
+    }
+
+    /**
+     * Constructor for the LocalSearchFilter class.
+     *
+     * @param quantile
+     *      Quantile of the recent improvements taken as the margin, within
+     *      (0,1]. Higher quantiles are more optimistic and skip less.
+     * @param window
+     *      Number of recent improvements the margin is learned from.
+     * @param warmup
+     *      Number of searched constructions before the filter starts
+     *      skipping, and maximum number of consecutive ones skipped.
+     */
+    public LocalSearchFilter(double quantile, int window, int warmup) {
+        assert quantile > 0.0 && quantile <= 1.0 : "quantile should be within (0,1].";
+        assert window >= 1 && warmup >= 1 : "window and warmup should be positive integers.";
+        this.quantile = quantile;
+        this.warmup = warmup;
+        this.improvements = new double[window];
+        this.sorted = new double[window];
+    }
+
+    /**
+     * Tells whether a construction should go through the local search.
+     *
+     * @param constructedCost
+     *      Cost of the constructed solution.
+     * @param incumbentCost
+     *      Cost of the incumbent solution.
+     *
+     * @return true if the construction is promising.
+     */
+    public boolean accept(double constructedCost, double incumbentCost) {
+
+        if (recorded < warmup || idle >= warmup || constructedCost - margin < incumbentCost) {
+            accepted++;
+            idle = 0;
+            return true;
+        }
+
+        skipped++;
+        idle++;
+        return false;
+
+    }
+
+    /**
+     * Records the outcome of the local search of a construction, and updates
+     * the margin.
+     *
+     * @param constructedCost
+     *      Cost of the constructed solution.
+     * @param localCost
+     *      Cost of the local optimum found from it.
+     */
+    public void record(double constructedCost, double localCost) {
+
+        improvements[(int) (recorded++ % improvements.length)] = constructedCost - localCost;
+
+        int size = (int) Math.min(recorded, improvements.length);
+        System.arraycopy(improvements, 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+        margin = sorted[Math.min(size - 1, (int) Math.ceil(quantile * size) - 1)];
+
+    }
+
+    /**
+     * Forgets the recorded improvements and counters.
+     */
+    public void clear() {
+        recorded = accepted = skipped = idle = 0;
+        margin = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return The learned margin, or infinity during the warm-up.
+     */
+    public double getMargin() { return recorded < warmup ? Double.POSITIVE_INFINITY : margin; };
+
+    /**
+     * @return The number of constructions sent to the local search.
+     */
+    public long getAccepted() { return accepted; };
+
+    /**
+     * @return The number of constructions skipped.
+     */
+    public long getSkipped() { return skipped; };
+
+}
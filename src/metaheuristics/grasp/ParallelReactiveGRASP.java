@@ -0,0 +1,292 @@
+package metaheuristics.grasp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import metaheuristics.grasp.reactive.Alpha;
+import metaheuristics.grasp.reactive.AlphaMap;
+import solutions.Solution;
+
+/**
+ * Reactive GRASP whose iterations run in parallel batches. Before each
+ * batch, the alphas of all its iterations are drawn from the {@link
+ * AlphaMap}; the iterations then run on the worker threads, which add the
+ * cost of each local optimum to the statistics of its alpha through
+ * contention-free accumulators, and the selection weights are recomputed
+ * from the incumbent once the batch is over. The map is thus only read
+ * while a batch runs, and only written between batches.
+ *
+ * Each worker runs its own solver, made by a factory, since a GRASP keeps
+ * the state of its current iteration; the alpha the solvers were made with
+ * is replaced by the drawn ones. The solvers should share the instance of
+ * their objective functions. The iterations of a batch are split among the
+ * workers in a fixed way, so that a run bounded by iterations is
+ * reproducible from its seed.
+ *
+ * @author aserpa, einnarelli
+ * @param <E>
+ *      Generic type of the element which composes the solution.
+ */
+public class ParallelReactiveGRASP<E> {
+
+    /**
+     * Makes the solver of each worker.
+     */
+    private final Supplier<? extends AbstractGRASP<E>> factory;
+
+    /**
+     * Number of possible alphas.
+     */
+    private final int numAlphas;
+
+    /**
+     * Number of worker threads, and of iterations per batch.
+     */
+    private final int threads, batchSize;
+
+    /**
+     * Distinct local optima found by every worker.
+     */
+    private final ElitePool<E> elitePool = new ElitePool<E>(10);
+
+    /**
+     * Maximum number of iterations, time budget in milliseconds, and target
+     * cost, or null.
+     */
+    private int iterations = Integer.MAX_VALUE;
+    private Long timeLimit;
+    private Double targetCost;
+
+    /**
+     * Seed of the alpha draws; the solvers get the following ones.
+     */
+    private long seed;
+
+    /**
+     * Alphas of the last solve.
+     */
+    private AlphaMap alphaMap;
+
+    /**
+     * Best solution found, guarded by this solver.
+     */
+    private Solution<E> incumbentSol;
+
+    /**
+     * Start time of the current solve.
+     */
+    private long startTime;
+
+    /**
+     * Number of iterations run.
+     */
+    private final LongAdder iterationsDone = new LongAdder();
+
+    /**
+     * Whether the solve was interrupted.
+     */
+    private volatile boolean interrupted;
+
+    /**
+     * Constructor for a reactive GRASP with one worker per core, and batches
+     * of four iterations per worker.
+     *
+     * @param factory
+     *      Makes the solver of each worker.
+     * @param numAlphas
+     *      Number of possible alphas to be selected.
+     */
+    public ParallelReactiveGRASP(Supplier<? extends AbstractGRASP<E>> factory, int numAlphas) {
+        this(factory, numAlphas, Runtime.getRuntime().availableProcessors(),
+            4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for the ParallelReactiveGRASP class.
+     *
+     * @param factory
+     *      Makes the solver of each worker.
+     * @param numAlphas
+     *      Number of possible alphas to be selected.
+     * @param threads
+     *      Number of worker threads.
+     * @param batchSize
+     *      Number of iterations between updates of the alpha weights.
+     */
+    public ParallelReactiveGRASP(Supplier<? extends AbstractGRASP<E>> factory, int numAlphas, int threads,
+            int batchSize) {
+        assert numAlphas > 1 : "numAlphas should be a integer greater than 1.";
+        assert threads >= 1 && batchSize >= 1 : "threads and batchSize should be positive integers.";
+        this.factory = factory;
+        this.numAlphas = numAlphas;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs batches of iterations until a stop criterion is met.
+     *
+     * @return The best solution found.
+     *
+     * @throws InterruptedException
+     *      If the calling thread is interrupted while waiting for a batch.
+     */
+    public Solution<E> solve() throws InterruptedException {
+
+        iterationsDone.reset();
+        interrupted = false;
+        alphaMap = new AlphaMap(numAlphas);
+        Random rng = new Random(seed);
+
+        List<AbstractGRASP<E>> solvers = new ArrayList<AbstractGRASP<E>>();
+        for (int k = 0; k < threads; k++) {
+            AbstractGRASP<E> grasp = factory.get();
+            grasp.setSeed(seed + 1 + k);
+            solvers.add(grasp);
+        }
+        synchronized (this) {
+            incumbentSol = solvers.get(0).createEmptySol();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        startTime = System.currentTimeMillis();
+
+        try {
+            for (int done = 0; done < iterations && !stop(); done += batchSize) {
+
+                // Draw the alphas of the batch.
+                int size = Math.min(batchSize, iterations - done);
+                Alpha[] batch = new Alpha[size];
+                for (int i = 0; i < size; i++) batch[i] = (Alpha) alphaMap.get(alphaMap.selectItem(rng));
+
+                // Worker k runs the iterations k, k + threads, ...
+                List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+                for (int k = 0; k < threads && k < size; k++) {
+                    AbstractGRASP<E> grasp = solvers.get(k);
+                    int first = k;
+                    tasks.add(() -> {
+                        for (int i = first; i < size && !stop(); i += threads) iterate(grasp, batch[i]);
+                        return null;
+                    });
+                }
+                for (Future<Void> f : executor.invokeAll(tasks)) f.get();
+
+                // Update the alpha probabilities.
+                alphaMap.updateWeights(getIncumbent().cost);
+
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw (Error) cause;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return getIncumbent();
+
+    }
+
+    /**
+     * Runs an iteration on a solver, with the given alpha.
+     */
+    private void iterate(AbstractGRASP<E> grasp, Alpha alpha) {
+
+        grasp.alpha = alpha.getValue();
+        grasp.constructiveHeuristic();
+        grasp.improve();
+        Solution<E> local = new Solution<E>(grasp.currentSol);
+
+        alpha.updateA(local.cost);
+        iterationsDone.increment();
+
+        elitePool.offer(local);
+        synchronized (this) {
+            if (local.cost < incumbentSol.cost) incumbentSol = local;
+        }
+
+    }
+
+    /**
+     * @return true if a stop criterion is met.
+     */
+    private boolean stop() {
+        if (interrupted) return true;
+        if (targetCost != null && getIncumbent().cost <= targetCost) return true;
+        return timeLimit != null && System.currentTimeMillis() - startTime >= timeLimit;
+    }
+
+    /**
+     * Stops the search once the workers finish their current iteration.
+     */
+    public void interrupt() {
+        interrupted = true;
+    }
+
+    /**
+     * @return A copy of the best solution found so far.
+     */
+    public synchronized Solution<E> getIncumbent() {
+        return new Solution<E>(incumbentSol);
+    }
+
+    /**
+     * @param iterations
+     *      Maximum number of iterations.
+     */
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * @param timeLimit
+     *      Time budget in milliseconds, or null.
+     */
+    public void setTimeLimit(Long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * @param targetCost
+     *      Cost at which the search stops, or null.
+     */
+    public void setTargetCost(Double targetCost) {
+        this.targetCost = targetCost;
+    }
+
+    /**
+     * @param seed
+     *      Seed of the alpha draws; the solvers get the following ones.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Alpha map getter.
+     *
+     * @return The alphas of the last solve, with their final weights.
+     */
+    public AlphaMap getAlphaMap() { return alphaMap; };
+
+    /**
+     * Elite pool getter.
+     *
+     * @return The pool of the best distinct local optima found.
+     */
+    public ElitePool<E> getElitePool() { return elitePool; };
+
+    /**
+     * @return The number of iterations run.
+     */
+    public long getIterationsDone() { return iterationsDone.sum(); };
+
+}
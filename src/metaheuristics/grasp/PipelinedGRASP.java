@@ -0,0 +1,405 @@
+package metaheuristics.grasp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import solutions.Solution;
+
+/**
+ * Pipelined GRASP, in which the constructions and the local searches of the
+ * iterations run on different threads. Constructor threads push the
+ * constructed solutions into a bounded queue, through a stage that drops
+ * duplicates and, optionally, the constructions a {@link LocalSearchFilter}
+ * finds unpromising; local-search threads take them from the queue, improve
+ * them and update the shared incumbent and elite pool.
+ *
+ * The stages balance themselves: a constructor thread that finds the queue
+ * full searches its own construction, instead of waiting, and a
+ * local-search thread that finds the queue empty constructs one itself. So
+ * every thread keeps busy whether constructions or local searches dominate
+ * the cost of an iteration, and the bounded queue caps the constructions
+ * waiting to be searched.
+ *
+ * Each thread runs its own solver, made by a factory, since a GRASP keeps
+ * the state of its current iteration. The solvers must be non-reactive, and
+ * should share the instance of their objective functions.
+ *
+ * @author aserpa, einnarelli
+ * @param <E>
+ *      Generic type of the element which composes the solution.
+ */
+public class PipelinedGRASP<E> {
+
+    /**
+     * Maximum number of solutions remembered to drop duplicates; the memory
+     * is cleared when it is exceeded.
+     */
+    private static final int DEDUP_CAPACITY = 1 << 16;
+
+    /**
+     * Makes the solver of each thread.
+     */
+    private final Supplier<? extends AbstractGRASP<E>> factory;
+
+    /**
+     * Number of constructor and local-search threads.
+     */
+    private final int constructors, searchers;
+
+    /**
+     * Constructed solutions waiting for the local search.
+     */
+    private final BlockingQueue<Solution<E>> queue;
+
+    /**
+     * Element sets of the solutions constructed recently.
+     */
+    private final Set<Set<E>> seen = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Filter of the constructions sent to the local search, or null.
+     */
+    private LocalSearchFilter filter;
+
+    /**
+     * Distinct local optima found by every thread.
+     */
+    private final ElitePool<E> elitePool = new ElitePool<E>(10);
+
+    /**
+     * Maximum number of local searches, time budget in milliseconds, and
+     * target cost, or null.
+     */
+    private int iterations = Integer.MAX_VALUE;
+    private Long timeLimit;
+    private Double targetCost;
+
+    /**
+     * Seed of the first solver, the others get the following ones.
+     */
+    private long seed;
+
+    /**
+     * Best solution found, guarded by this solver.
+     */
+    private Solution<E> incumbentSol;
+
+    /**
+     * Start time of the current solve.
+     */
+    private long startTime;
+
+    /**
+     * Number of local searches started.
+     */
+    private final AtomicInteger searches = new AtomicInteger();
+
+    /**
+     * Number of constructions, and of those dropped as duplicates or by the
+     * filter.
+     */
+    private final LongAdder constructions = new LongAdder(), duplicates = new LongAdder(),
+        filtered = new LongAdder();
+
+    /**
+     * Whether the solve was interrupted.
+     */
+    private volatile boolean interrupted;
+
+    /**
+     * Constructor for a pipeline with one constructor thread per four cores
+     * and the other cores searching.
+     *
+     * @param factory
+     *      Makes the solver of each thread.
+     */
+    public PipelinedGRASP(Supplier<? extends AbstractGRASP<E>> factory) {
+        this(factory, Math.max(1, Runtime.getRuntime().availableProcessors() / 4),
+            Math.max(1, Runtime.getRuntime().availableProcessors() - Runtime.getRuntime().availableProcessors() / 4),
+            16);
+    }
+
+    /**
+     * Constructor for the PipelinedGRASP class.
+     *
+     * @param factory
+     *      Makes the solver of each thread.
+     * @param constructors
+     *      Number of constructor threads.
+     * @param searchers
+     *      Number of local-search threads.
+     * @param capacity
+     *      Capacity of the queue between the stages.
+     */
+    public PipelinedGRASP(Supplier<? extends AbstractGRASP<E>> factory, int constructors, int searchers,
+            int capacity) {
+        assert constructors >= 1 && searchers >= 1 : "there should be at least one thread per stage.";
+        this.factory = factory;
+        this.constructors = constructors;
+        this.searchers = searchers;
+        this.queue = new ArrayBlockingQueue<Solution<E>>(capacity);
+    }
+
+    /**
+     * Runs the pipeline until a stop criterion is met.
+     *
+     * @return The best solution found.
+     *
+     * @throws InterruptedException
+     *      If the calling thread is interrupted while waiting for the
+     *      workers.
+     */
+    public Solution<E> solve() throws InterruptedException {
+
+        queue.clear();
+        seen.clear();
+        searches.set(0);
+        constructions.reset();
+        duplicates.reset();
+        filtered.reset();
+        interrupted = false;
+
+        List<AbstractGRASP<E>> solvers = new ArrayList<AbstractGRASP<E>>();
+        for (int k = 0; k < constructors + searchers; k++) {
+            AbstractGRASP<E> grasp = factory.get();
+            assert grasp.alpha != null : "the solvers should be non-reactive.";
+            grasp.setSeed(seed + k);
+            solvers.add(grasp);
+        }
+        synchronized (this) {
+            incumbentSol = solvers.get(0).createEmptySol();
+        }
+
+        List<Thread> threads = new ArrayList<Thread>();
+        List<RuntimeException> failures = new ArrayList<RuntimeException>();
+        for (int k = 0; k < solvers.size(); k++) {
+            AbstractGRASP<E> grasp = solvers.get(k);
+            boolean constructor = k < constructors;
+            Thread t = new Thread(() -> {
+                try {
+                    if (constructor) construct(grasp);
+                    else search(grasp);
+                } catch (RuntimeException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                    interrupted = true;
+                }
+            }, (constructor ? "pipeline-constructor-" : "pipeline-searcher-") + k);
+            t.setDaemon(true);
+            threads.add(t);
+        }
+
+        startTime = System.currentTimeMillis();
+        for (Thread t : threads) t.start();
+        try {
+            for (Thread t : threads) t.join();
+        } catch (InterruptedException e) {
+            interrupt();
+            throw e;
+        }
+
+        if (!failures.isEmpty()) throw failures.get(0);
+        return getIncumbent();
+
+    }
+
+    /**
+     * Loop of a constructor thread.
+     */
+    private void construct(AbstractGRASP<E> grasp) {
+
+        while (!stop()) {
+            Solution<E> sol = admit(grasp);
+            if (sol == null) continue;
+            try {
+                // Backpressure: with the queue full, search it here.
+                if (!queue.offer(sol, 1, TimeUnit.MILLISECONDS)) improve(grasp, sol);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+
+    }
+
+    /**
+     * Loop of a local-search thread.
+     */
+    private void search(AbstractGRASP<E> grasp) {
+
+        while (!stop()) {
+            Solution<E> sol = queue.poll();
+            // With the queue empty, construct one here.
+            if (sol == null) sol = admit(grasp);
+            if (sol != null) improve(grasp, sol);
+        }
+
+    }
+
+    /**
+     * Constructs a solution and passes it through the dedup and filter
+     * stage.
+     *
+     * @return The construction, or null if it was dropped.
+     */
+    private Solution<E> admit(AbstractGRASP<E> grasp) {
+
+        Solution<E> sol = new Solution<E>(grasp.constructiveHeuristic());
+        constructions.increment();
+
+        if (seen.size() >= DEDUP_CAPACITY) seen.clear();
+        if (!seen.add(new HashSet<E>(sol))) {
+            duplicates.increment();
+            return null;
+        }
+
+        LocalSearchFilter filter = this.filter;
+        if (filter != null) {
+            double incumbentCost = getIncumbent().cost;
+            boolean accepted;
+            synchronized (filter) {
+                accepted = filter.accept(sol.cost, incumbentCost);
+            }
+            if (!accepted) {
+                filtered.increment();
+                offer(sol);
+                return null;
+            }
+        }
+
+        return sol;
+
+    }
+
+    /**
+     * Improves a construction with the local search of a solver.
+     */
+    private void improve(AbstractGRASP<E> grasp, Solution<E> sol) {
+
+        if (searches.getAndIncrement() >= iterations) return;
+
+        double constructedCost = sol.cost;
+        grasp.warmStart(sol);
+        grasp.improve();
+        Solution<E> local = new Solution<E>(grasp.currentSol);
+
+        LocalSearchFilter filter = this.filter;
+        if (filter != null) {
+            synchronized (filter) {
+                filter.record(constructedCost, local.cost);
+            }
+        }
+        offer(local);
+
+    }
+
+    /**
+     * Offers a solution to the elite pool and the incumbent.
+     */
+    private void offer(Solution<E> sol) {
+        elitePool.offer(sol);
+        synchronized (this) {
+            if (sol.cost < incumbentSol.cost) incumbentSol = new Solution<E>(sol);
+        }
+    }
+
+    /**
+     * @return true if a stop criterion is met.
+     */
+    private boolean stop() {
+        if (interrupted || searches.get() >= iterations) return true;
+        if (targetCost != null && getIncumbent().cost <= targetCost) return true;
+        return timeLimit != null && System.currentTimeMillis() - startTime >= timeLimit;
+    }
+
+    /**
+     * Stops the pipeline once the threads finish their current step.
+     */
+    public void interrupt() {
+        interrupted = true;
+    }
+
+    /**
+     * @return A copy of the best solution found so far.
+     */
+    public synchronized Solution<E> getIncumbent() {
+        return new Solution<E>(incumbentSol);
+    }
+
+    /**
+     * @param iterations
+     *      Maximum number of local searches.
+     */
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * @param timeLimit
+     *      Time budget in milliseconds, or null.
+     */
+    public void setTimeLimit(Long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * @param targetCost
+     *      Cost at which the search stops, or null.
+     */
+    public void setTargetCost(Double targetCost) {
+        this.targetCost = targetCost;
+    }
+
+    /**
+     * @param filter
+     *      Filter of the constructions sent to the local search, or null.
+     */
+    public void setFilter(LocalSearchFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @param seed
+     *      Seed of the first solver, the others get the following ones.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Elite pool getter.
+     *
+     * @return The pool of the best distinct local optima found.
+     */
+    public ElitePool<E> getElitePool() { return elitePool; };
+
+    /**
+     * @return The number of local searches run.
+     */
+    public int getSearches() { return Math.min(searches.get(), iterations); };
+
+    /**
+     * @return The number of constructions.
+     */
+    public long getConstructions() { return constructions.sum(); };
+
+    /**
+     * @return The number of constructions dropped as duplicates.
+     */
+    public long getDuplicates() { return duplicates.sum(); };
+
+    /**
+     * @return The number of constructions not searched by the filter.
+     */
+    public long getFiltered() { return filtered.sum(); };
+
+}
@@ -0,0 +1,167 @@
+package metaheuristics.grasp.island;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+import metaheuristics.grasp.AbstractGRASP;
+import solutions.Solution;
+import solutions.SolutionCodec;
+
+/**
+ * An island of the island model, i.e., a GRASP that searches independently
+ * and, at the end of every epoch, sends its incumbent to the
+ * {@link MigrationCoordinator}. Migrants received from the coordinator are
+ * offered to the GRASP as seeds ({@link AbstractGRASP#offerSeed(Solution)}),
+ * so they warm-start the next iterations of the receiving island.
+ *
+ * @author aserpa, einnarelli
+ */
+public class Island implements Closeable {
+
+    /**
+     * The GRASP running on this island. Each epoch is a call to
+     * {@link AbstractGRASP#solve()}.
+     */
+    private final AbstractGRASP<Integer> grasp;
+
+    /**
+     * Connection to the coordinator.
+     */
+    private final Socket socket;
+
+    /**
+     * Stream used to send solutions to the coordinator.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Stream used to receive migrants from the coordinator.
+     */
+    private final DataInputStream in;
+
+    /**
+     * Size of the domain of the GRASP, which bounds the migrants received.
+     */
+    private final int domainSize;
+
+    /**
+     * Number of migrants received so far.
+     */
+    private volatile int received = 0;
+
+    /**
+     * Constructor for the Island class, which connects to the coordinator.
+     *
+     * @param grasp
+     *      The GRASP running on this island.
+     * @param host
+     *      Host of the coordinator.
+     * @param port
+     *      Port of the coordinator.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public Island(AbstractGRASP<Integer> grasp, String host, int port) throws IOException {
+        this.grasp = grasp;
+        this.domainSize = grasp.getObjFunction().getDomainSize();
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    /**
+     * Received migrants getter.
+     *
+     * @return The number of migrants received so far.
+     */
+    public int getReceived() { return received; };
+
+    /**
+     * Runs the island for a number of epochs. The island incumbent is also
+     * seeded back into its own GRASP, so the search of an epoch continues
+     * from the best solution of the previous ones.
+     *
+     * @param epochs
+     *      Number of epochs, each one a full {@link AbstractGRASP#solve()},
+     *      at least one.
+     *
+     * @return The best solution found by this island.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public Solution<Integer> run(int epochs) throws IOException {
+
+        if (epochs < 1) throw new IllegalArgumentException("An island runs at least one epoch, got " + epochs);
+
+        Thread receiver = new Thread(this::receive, "island-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+
+        Solution<Integer> best = null;
+
+        for (int e = 0; e < epochs; e++) {
+
+            Solution<Integer> sol = grasp.solve();
+            if (best == null || sol.cost < best.cost) {
+                best = new Solution<Integer>(sol);
+            }
+
+            // Migrate the incumbent and keep it for the next epoch.
+            send(MigrationCoordinator.MIGRANT, best);
+            grasp.offerSeed(best);
+
+        }
+
+        send(MigrationCoordinator.FINAL, best);
+        return best;
+
+    }
+
+    /**
+     * Sends a message to the coordinator.
+     *
+     * @param type
+     *      Type of the message.
+     * @param sol
+     *      Solution carried by the message.
+     */
+    private synchronized void send(byte type, Solution<Integer> sol) throws IOException {
+        out.writeByte(type);
+        SolutionCodec.write(out, sol);
+        out.flush();
+    }
+
+    /**
+     * Receives migrants until the connection is closed, offering each one as
+     * a seed to the GRASP.
+     */
+    private void receive() {
+
+        try {
+            while (in.readByte() == MigrationCoordinator.MIGRANT) {
+                grasp.offerSeed(SolutionCodec.read(in, domainSize));
+                received++;
+            }
+        } catch (IOException e) {
+            // Connection closed, no more migrants.
+        }
+
+    }
+
+    /**
+     * Disconnects from the coordinator.
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+}
@@ -0,0 +1,314 @@
+package metaheuristics.grasp.island;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import solutions.Solution;
+import solutions.SolutionCodec;
+
+/**
+ * Coordinator of the island model. Islands connect to it through TCP and
+ * send their elite solutions, which are forwarded to the next island in a
+ * ring topology. The coordinator also keeps the best solution received so
+ * far, which is the result of the whole run.
+ *
+ * On a single machine the coordinator listens on the loopback interface,
+ * but it can be bound to any address so that islands run on other nodes.
+ * Since its peers are not trusted, every solution received is checked
+ * against the domain size, and islands that do not connect within
+ * {@link #ACCEPT_TIMEOUT} are given up.
+ *
+ * @author aserpa, einnarelli
+ */
+public class MigrationCoordinator implements Runnable, Closeable {
+
+    /**
+     * Message carrying a migrant solution.
+     */
+    static final byte MIGRANT = 'M';
+
+    /**
+     * Message carrying the final solution of an island, sent before it
+     * disconnects.
+     */
+    static final byte FINAL = 'F';
+
+    /**
+     * Time, in milliseconds, to wait for the next island to connect.
+     */
+    public static final int ACCEPT_TIMEOUT = 60000;
+
+    /**
+     * The socket islands connect to.
+     */
+    private final ServerSocket server;
+
+    /**
+     * Number of islands expected to connect.
+     */
+    private final int numIslands;
+
+    /**
+     * Size of the domain of the solutions exchanged.
+     */
+    private final int domainSize;
+
+    /**
+     * Connections to the islands, indexed by their position in the ring, or
+     * null for islands not connected yet. Each link is locked on its own
+     * while a migrant is written to it, so a slow island only delays the
+     * migrants sent to it.
+     */
+    private final Link[] links;
+
+    /**
+     * Whether the coordinator was closed, guarded by {@link #links}.
+     */
+    private boolean closed;
+
+    /**
+     * Best solution received from any island.
+     */
+    private Solution<Integer> best;
+
+    /**
+     * Constructor for a coordinator listening on the loopback interface.
+     *
+     * @param port
+     *      Port to listen on, or 0 for an ephemeral port.
+     * @param numIslands
+     *      Number of islands expected to connect.
+     * @param domainSize
+     *      Size of the domain of the solutions exchanged.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public MigrationCoordinator(int port, int numIslands, int domainSize) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, numIslands, domainSize);
+    }
+
+    /**
+     * Constructor for a coordinator listening on a given address.
+     *
+     * @param address
+     *      Address to listen on.
+     * @param port
+     *      Port to listen on, or 0 for an ephemeral port.
+     * @param numIslands
+     *      Number of islands expected to connect.
+     * @param domainSize
+     *      Size of the domain of the solutions exchanged.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public MigrationCoordinator(InetAddress address, int port, int numIslands, int domainSize) throws IOException {
+        this.server = new ServerSocket(port, numIslands, address);
+        this.server.setSoTimeout(ACCEPT_TIMEOUT);
+        this.numIslands = numIslands;
+        this.domainSize = domainSize;
+        this.links = new Link[numIslands];
+    }
+
+    /**
+     * Port getter.
+     *
+     * @return The port the coordinator is listening on.
+     */
+    public int getPort() { return server.getLocalPort(); };
+
+    /**
+     * Address getter.
+     *
+     * @return The address the coordinator is listening on.
+     */
+    public InetAddress getAddress() { return server.getInetAddress(); };
+
+    /**
+     * Best solution getter.
+     *
+     * @return The best solution received so far, or null if none was.
+     */
+    public synchronized Solution<Integer> getBest() { return best; };
+
+    /**
+     * Accepts the expected number of islands and relays their migrants until
+     * every island has sent its final solution or disconnected. If an island
+     * does not connect within {@link #ACCEPT_TIMEOUT}, the run goes on with
+     * the islands already connected.
+     */
+    @Override
+    public void run() {
+
+        List<Thread> handlers = new ArrayList<Thread>();
+
+        try {
+
+            for (int k = 0; k < numIslands; k++) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                socket.setTcpNoDelay(true);
+                Link link = new Link(socket);
+                synchronized (links) {
+                    if (closed) {
+                        socket.close();
+                        break;
+                    }
+                    links[k] = link;
+                }
+                final int index = k;
+                Thread handler = new Thread(() -> handle(socket, index), "coordinator-island-" + k);
+                handler.start();
+                handlers.add(handler);
+            }
+
+            for (Thread handler : handlers) {
+                handler.join();
+            }
+
+        } catch (IOException e) {
+            if (!server.isClosed()) throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+
+    }
+
+    /**
+     * Reads the messages of one island, forwarding each migrant to the next
+     * island in the ring.
+     *
+     * @param socket
+     *      The island connection.
+     * @param index
+     *      The island position in the ring.
+     */
+    private void handle(Socket socket, int index) {
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream()))) {
+
+            while (true) {
+
+                byte type = in.readByte();
+                Solution<Integer> sol = SolutionCodec.read(in, domainSize);
+                offerBest(sol);
+
+                if (type == FINAL) break;
+                forward(index, sol);
+
+            }
+
+        } catch (EOFException e) {
+            // Island disconnected without a final message.
+        } catch (IOException e) {
+            if (!server.isClosed()) e.printStackTrace();
+        }
+
+    }
+
+    /**
+     * Sends a migrant to the island that follows the sender in the ring. The
+     * migrant is dropped if that island is not connected yet.
+     *
+     * @param from
+     *      The sender position in the ring.
+     * @param sol
+     *      The migrant solution.
+     */
+    private void forward(int from, Solution<Integer> sol) {
+
+        int to = (from + 1) % numIslands;
+        if (to == from) return;
+
+        Link next;
+        synchronized (links) {
+            next = links[to];
+        }
+        if (next == null) return;
+
+        try {
+            next.send(sol);
+        } catch (IOException e) {
+            // The receiver may have already finished; drop the migrant.
+        }
+
+    }
+
+    /**
+     * Keeps the best solution received so far.
+     *
+     * @param sol
+     *      A solution received from an island.
+     */
+    private synchronized void offerBest(Solution<Integer> sol) {
+        if (best == null || sol.cost < best.cost) best = sol;
+    }
+
+    /**
+     * Stops listening for islands and closes their connections, which ends
+     * the handlers still reading from them.
+     */
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Nothing left to release.
+        }
+        synchronized (links) {
+            closed = true;
+            for (Link link : links) {
+                if (link == null) continue;
+                try {
+                    link.socket.close();
+                } catch (IOException e) {
+                    // Already closed by its handler.
+                }
+            }
+        }
+    }
+
+    /**
+     * Connection to an island, whose writes are serialized on the link.
+     */
+    private static final class Link {
+
+        private final Socket socket;
+        private final DataOutputStream out;
+
+        Link(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * Sends a migrant to the island.
+         */
+        synchronized void send(Solution<Integer> sol) throws IOException {
+            out.writeByte(MIGRANT);
+            SolutionCodec.write(out, sol);
+            out.flush();
+        }
+
+    }
+
+}
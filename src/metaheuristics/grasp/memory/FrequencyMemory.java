@@ -0,0 +1,188 @@
+package metaheuristics.grasp.memory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+import solutions.Solution;
+
+/**
+ * Long-term memory of a GRASP, which counts how often each element appears
+ * in the elite local optima and biases the selection from the Restricted
+ * Candidate List accordingly. The GRASP records a solution when it enters
+ * its {@link metaheuristics.grasp.ElitePool} and forgets it when it is
+ * evicted, so the frequencies describe the current pool. In intensification mode, elements frequent in
+ * elite solutions are favored; in diversification mode, rare ones are.
+ *
+ * Elements are mapped to the indexes of a primitive counter array, so that
+ * recording a solution costs O(|S|) and a selection costs O(|RCL|). The
+ * selection weight of an element with frequency f (within [0,1]) is
+ * 1 + strength * f when intensifying and 1 + strength * (1 - f) when
+ * diversifying, so a strength of 0 gives the usual uniform selection.
+ *
+ * @author aserpa, einnarelli
+ * @param <E>
+ *      Generic type of the element which composes the solution.
+ */
+public class FrequencyMemory<E> {
+
+    /**
+     * Whether the memory favors frequent or rare elements.
+     */
+    public enum Mode { INTENSIFY, DIVERSIFY }
+
+    /**
+     * Number of elite solutions in which each element appears.
+     */
+    private final int[] counts;
+
+    /**
+     * Number of elite solutions recorded and not forgotten.
+     */
+    private int samples;
+
+    /**
+     * Maps an element to its counter, within [0, n-1].
+     */
+    private final ToIntFunction<E> index;
+
+    /**
+     * The bias mode.
+     */
+    private final Mode mode;
+
+    /**
+     * Strength of the bias, a non-negative number.
+     */
+    private final double strength;
+
+    /**
+     * Selection weights of the RCL candidates, grown as needed.
+     */
+    private double[] weights = new double[16];
+
+    /**
+     * Constructor for the FrequencyMemory class.
+     *
+     * @param n
+     *      Size of the domain.
+     * @param index
+     *      Maps an element to its index, within [0, n-1].
+     * @param mode
+     *      Whether frequent or rare elements are favored.
+     * @param strength
+     *      Strength of the bias, a non-negative number.
+     */
+    public FrequencyMemory(int n, ToIntFunction<E> index, Mode mode, double strength) {
+        assert strength >= 0.0 : "strength should be a non-negative double.";
+        this.counts = new int[n];
+        this.index = index;
+        this.mode = mode;
+        this.strength = strength;
+    }
+
+    /**
+     * Creates a memory for problems whose elements are the integers
+     * {0, ..., n-1}.
+     *
+     * @see #FrequencyMemory(int, ToIntFunction, Mode, double)
+     */
+    public static FrequencyMemory<Integer> ofIntegers(int n, Mode mode, double strength) {
+        return new FrequencyMemory<Integer>(n, Integer::intValue, mode, strength);
+    }
+
+    /**
+     * Records the elements of an elite solution.
+     *
+     * @param sol
+     *      The elite solution.
+     */
+    public void record(Solution<E> sol) {
+        for (E e : sol) counts[index.applyAsInt(e)]++;
+        samples++;
+    }
+
+    /**
+     * Forgets the elements of a solution recorded before, e.g. one evicted
+     * from the elite pool.
+     *
+     * @param sol
+     *      The solution, which should have been recorded.
+     */
+    public void forget(Solution<E> sol) {
+        assert samples > 0 : "no solution was recorded.";
+        for (E e : sol) counts[index.applyAsInt(e)]--;
+        samples--;
+    }
+
+    /**
+     * Gives the frequency of an element in the elite solutions recorded.
+     *
+     * @param e
+     *      The element.
+     *
+     * @return The frequency, within [0,1], or 0 if nothing was recorded.
+     */
+    public double frequency(E e) {
+        return samples == 0 ? 0.0 : (double) counts[index.applyAsInt(e)] / samples;
+    }
+
+    /**
+     * Gives the selection weight of an element.
+     *
+     * @param e
+     *      The element.
+     *
+     * @return The weight, at least 1.
+     */
+    public double weight(E e) {
+        double f = frequency(e);
+        return 1.0 + strength * (mode == Mode.INTENSIFY ? f : 1.0 - f);
+    }
+
+    /**
+     * Selects a candidate from a Restricted Candidate List, with probability
+     * proportional to its weight.
+     *
+     * @param RCL
+     *      The Restricted Candidate List, which should not be empty.
+     * @param rng
+     *      The random number generator of the GRASP.
+     *
+     * @return The selected candidate.
+     */
+    public E select(List<E> RCL, Random rng) {
+
+        int size = RCL.size();
+        if (weights.length < size) weights = new double[Math.max(size, 2 * weights.length)];
+
+        double total = 0.0;
+        for (int k = 0; k < size; k++) {
+            weights[k] = weight(RCL.get(k));
+            total += weights[k];
+        }
+
+        double r = rng.nextDouble() * total;
+        for (int k = 0; k < size - 1; k++) {
+            r -= weights[k];
+            if (r < 0) return RCL.get(k);
+        }
+        return RCL.get(size - 1);
+
+    }
+
+    /**
+     * @return The number of elite solutions recorded and not forgotten.
+     */
+    public int getSamples() { return samples; };
+
+    /**
+     * Forgets every solution recorded.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        samples = 0;
+    }
+
+}
@@ -0,0 +1,18 @@
+package metaheuristics.grasp.progress;
+
+/**
+ * Listener that prints the improvements of the incumbent on the standard
+ * output, as the GRASP used to do when it was verbose.
+ *
+ * @author aserpa, einnarelli
+ * @param <E>
+ *      Generic type of the element which composes the solution.
+ */
+public class ConsoleListener<E> implements ProgressListener<E> {
+
+    @Override
+    public void onIncumbent(ProgressEvent<E> event) {
+        System.out.println(event);
+    }
+
+}
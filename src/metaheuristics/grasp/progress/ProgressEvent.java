@@ -0,0 +1,143 @@
+package metaheuristics.grasp.progress;
+
+import solutions.Solution;
+
+/**
+ * Immutable progress event of a GRASP run: an improvement of the incumbent,
+ * the summary of an iteration or the termination of the run.
+ *
+ * @author aserpa, einnarelli
+ * @param <E>
+ *      Generic type of the element which composes the solution.
+ */
+public final class ProgressEvent<E> {
+
+    /**
+     * Type of an event.
+     */
+    public enum Type { INCUMBENT, ITERATION, TERMINATION }
+
+    /**
+     * Type of the event.
+     */
+    private final Type type;
+
+    /**
+     * Index of the iteration (-1 in the warm start from initial solutions),
+     * or the number of iterations executed in a termination event.
+     */
+    private final int iteration;
+
+    /**
+     * Time elapsed since the start of the run, in milliseconds.
+     */
+    private final long elapsed;
+
+    /**
+     * Alpha used in the iteration.
+     */
+    private final double alpha;
+
+    /**
+     * Cost of the solution of the iteration.
+     */
+    private final double cost;
+
+    /**
+     * Cost of the incumbent solution.
+     */
+    private final double incumbentCost;
+
+    /**
+     * Copy of the incumbent solution, in incumbent and termination events.
+     */
+    private final Solution<E> incumbent;
+
+    /**
+     * Constructor for the ProgressEvent class.
+     *
+     * @param type
+     *      Type of the event.
+     * @param iteration
+     *      Index of the iteration, or number of iterations at termination.
+     * @param elapsed
+     *      Time elapsed since the start of the run, in milliseconds.
+     * @param alpha
+     *      Alpha used in the iteration.
+     * @param cost
+     *      Cost of the solution of the iteration.
+     * @param incumbentCost
+     *      Cost of the incumbent solution.
+     * @param incumbent
+     *      Copy of the incumbent solution, or null in iteration events.
+     */
+    public ProgressEvent(
+        Type type,
+        int iteration,
+        long elapsed,
+        double alpha,
+        double cost,
+        double incumbentCost,
+        Solution<E> incumbent
+    ) {
+        this.type = type;
+        this.iteration = iteration;
+        this.elapsed = elapsed;
+        this.alpha = alpha;
+        this.cost = cost;
+        this.incumbentCost = incumbentCost;
+        this.incumbent = incumbent;
+    }
+
+    /**
+     * @return The type of the event.
+     */
+    public Type getType() { return type; };
+
+    /**
+     * @return The index of the iteration, or the number of iterations executed in a
+     *      termination event.
+     */
+    public int getIteration() { return iteration; };
+
+    /**
+     * @return The time elapsed since the start of the run, in milliseconds.
+     */
+    public long getElapsed() { return elapsed; };
+
+    /**
+     * @return The alpha used in the iteration.
+     */
+    public double getAlpha() { return alpha; };
+
+    /**
+     * @return The cost of the solution of the iteration.
+     */
+    public double getCost() { return cost; };
+
+    /**
+     * @return The cost of the incumbent solution.
+     */
+    public double getIncumbentCost() { return incumbentCost; };
+
+    /**
+     * Incumbent getter, which should not be modified since it is shared by
+     * every subscriber.
+     *
+     * @return The incumbent solution, or null in iteration events.
+     */
+    public Solution<E> getIncumbent() { return incumbent; };
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case INCUMBENT:
+                return "(Iter. " + iteration + ") BestSol = " + incumbent + ", alpha=" + alpha;
+            case ITERATION:
+                return "(Iter. " + iteration + ") cost = " + cost + ", bestCost = " + incumbentCost + ", alpha=" + alpha;
+            default:
+                return "(Iterations = " + iteration + ", time = " + elapsed + " ms) BestSol = " + incumbent;
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package metaheuristics.grasp.progress;
+
+/**
+ * Callbacks for the progress events of a GRASP run. Listeners are called
+ * asynchronously by the {@link ProgressPublisher}, one event at a time, so
+ * they do not slow down the search (but may observe it with some delay).
+ *
+ * @author aserpa, einnarelli
+ * @param <E>
+ *      Generic type of the element which composes the solution.
+ */
+public interface ProgressListener<E> {
+
+    /**
+     * Called when the incumbent solution improves.
+     *
+     * @param event
+     *      The incumbent event.
+     */
+    default void onIncumbent(ProgressEvent<E> event) {}
+
+    /**
+     * Tells whether the listener wants the iteration events, which are only
+     * delivered to those asking for them, and may be dropped if the
+     * listener falls behind. Listeners overriding
+     * {@link #onIteration(ProgressEvent)} should return true.
+     *
+     * @return true to receive the iteration events.
+     */
+    default boolean wantsIterations() { return false; }
+
+    /**
+     * Called at the end of each iteration, if the listener
+     * {@link #wantsIterations()}.
+     *
+     * @param event
+     *      The iteration event.
+     */
+    default void onIteration(ProgressEvent<E> event) {}
+
+    /**
+     * Called when the run terminates.
+     *
+     * @param event
+     *      The termination event.
+     */
+    default void onTermination(ProgressEvent<E> event) {}
+
+}
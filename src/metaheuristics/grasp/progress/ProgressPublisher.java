@@ -0,0 +1,284 @@
+package metaheuristics.grasp.progress;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publisher of the progress events of a solver. Events are handed to
+ * {@link SubmissionPublisher}s, which deliver them asynchronously (in the
+ * common pool) to each subscriber in order, through two channels:
+ * <ul>
+ * <li>incumbent and termination events, which are never dropped: they are
+ * queued without bound and handed over by a drain task, which is the one
+ * that waits for room when a subscriber's buffer is full, so a slow
+ * listener only makes the queue grow by one event per improvement;</li>
+ * <li>iteration events, only delivered to the subscribers that ask for
+ * them, and dropped for a subscriber whose buffer is full, so that they
+ * never slow down the solver.</li>
+ * </ul>
+ * Events of different channels are not ordered with each other. Solvers
+ * skip building events altogether while a channel has no subscribers.
+ *
+ * @author aserpa, einnarelli
+ * @param <E>
+ *      Generic type of the element which composes the solution.
+ */
+public class ProgressPublisher<E> implements Flow.Publisher<ProgressEvent<E>> {
+
+    /**
+     * The channel of the incumbent and termination events.
+     */
+    private final SubmissionPublisher<ProgressEvent<E>> publisher = new SubmissionPublisher<ProgressEvent<E>>();
+
+    /**
+     * The channel of the iteration events.
+     */
+    private final SubmissionPublisher<ProgressEvent<E>> iterations = new SubmissionPublisher<ProgressEvent<E>>();
+
+    /**
+     * Incumbent and termination events not yet handed to their channel.
+     */
+    private final Queue<ProgressEvent<E>> pending = new ConcurrentLinkedQueue<ProgressEvent<E>>();
+
+    /**
+     * Whether a drain task is handing the pending events over.
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * Whether the publisher was closed, after which the drain task closes
+     * the channel of the incumbent and termination events.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Subscribers of the listeners added, by listener.
+     */
+    private final Map<ProgressListener<E>, ListenerSubscriber<E>> listeners =
+        new ConcurrentHashMap<ProgressListener<E>, ListenerSubscriber<E>>();
+
+    /**
+     * Number of iteration events dropped because of full buffers.
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Subscribes to the incumbent and termination events, which are never
+     * dropped.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ProgressEvent<E>> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Subscribes to the iteration events, which are dropped while the
+     * subscriber's buffer is full.
+     *
+     * @param subscriber
+     *      The subscriber.
+     */
+    public void subscribeIterations(Flow.Subscriber<? super ProgressEvent<E>> subscriber) {
+        iterations.subscribe(subscriber);
+    }
+
+    /**
+     * Adds a listener, which is called asynchronously for the incumbent and
+     * termination events, and for the iteration events if it asks for them
+     * through {@link ProgressListener#wantsIterations()}.
+     *
+     * @param listener
+     *      The listener.
+     */
+    public void addListener(ProgressListener<E> listener) {
+        boolean all = listener.wantsIterations();
+        ListenerSubscriber<E> subscriber = new ListenerSubscriber<E>(listener, all ? 2 : 1);
+        if (listeners.putIfAbsent(listener, subscriber) == null) {
+            publisher.subscribe(subscriber);
+            if (all) iterations.subscribe(subscriber);
+        }
+    }
+
+    /**
+     * Removes a listener, which may still receive the events already
+     * buffered for it.
+     *
+     * @param listener
+     *      The listener.
+     */
+    public void removeListener(ProgressListener<E> listener) {
+        ListenerSubscriber<E> subscriber = listeners.remove(listener);
+        if (subscriber != null) subscriber.cancel();
+    }
+
+    /**
+     * Tells whether an incumbent or termination event would reach anyone,
+     * so that solvers only build events when needed.
+     *
+     * @return true if there is a subscriber.
+     */
+    public boolean hasSubscribers() {
+        return publisher.hasSubscribers();
+    }
+
+    /**
+     * Tells whether an iteration event would reach anyone.
+     *
+     * @return true if there is a subscriber of the iteration events.
+     */
+    public boolean hasIterationSubscribers() {
+        return iterations.hasSubscribers();
+    }
+
+    /**
+     * Publishes an event without blocking. Iteration events are dropped
+     * for the subscribers whose buffers are full; the others are queued.
+     *
+     * @param event
+     *      The event.
+     */
+    public void publish(ProgressEvent<E> event) {
+        if (closed) throw new IllegalStateException("Closed");
+        if (event.getType() != ProgressEvent.Type.ITERATION) {
+            pending.add(event);
+            drain();
+            return;
+        }
+        iterations.offer(event, (subscriber, e) -> {
+            dropped.increment();
+            return false;
+        });
+    }
+
+    /**
+     * Starts a drain task, unless one is running.
+     */
+    private void drain() {
+        if (draining.compareAndSet(false, true)) publisher.getExecutor().execute(this::flush);
+    }
+
+    /**
+     * Hands the pending events over to their channel, in order, and closes
+     * it once the publisher is closed and nothing is pending.
+     */
+    private void flush() {
+        do {
+            ProgressEvent<E> event;
+            while ((event = pending.poll()) != null) publisher.submit(event);
+            if (closed) {
+                // Every event published before close() is visible now.
+                while ((event = pending.poll()) != null) publisher.submit(event);
+                publisher.close();
+            }
+            draining.set(false);
+        } while ((!pending.isEmpty() || (closed && !publisher.isClosed()))
+            && draining.compareAndSet(false, true));
+    }
+
+    /**
+     * @return The number of iteration events dropped because of full
+     *      buffers.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Completes every subscriber, once the events already published are
+     * delivered. No event can be published afterwards.
+     */
+    public void close() {
+        closed = true;
+        drain();
+        iterations.close();
+    }
+
+    /**
+     * Closes the publisher and waits until the listeners have received the
+     * events already published.
+     *
+     * @param timeout
+     *      Maximum time to wait, in milliseconds.
+     *
+     * @return true if every listener received them in time.
+     *
+     * @throws InterruptedException
+     *      If interrupted while waiting.
+     */
+    public boolean close(long timeout) throws InterruptedException {
+        close();
+        long deadline = System.currentTimeMillis() + timeout;
+        for (ListenerSubscriber<E> subscriber : listeners.values()) {
+            long left = deadline - System.currentTimeMillis();
+            if (!subscriber.completed.await(Math.max(0, left), TimeUnit.MILLISECONDS)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Subscriber that dispatches the events of one or both channels to a
+     * listener, one at a time.
+     */
+    private static final class ListenerSubscriber<E> implements Flow.Subscriber<ProgressEvent<E>> {
+
+        private final ProgressListener<E> listener;
+
+        private final List<Flow.Subscription> subscriptions = new CopyOnWriteArrayList<Flow.Subscription>();
+
+        /**
+         * Counted down as each channel completes.
+         */
+        private final CountDownLatch completed;
+
+        private volatile boolean cancelled;
+
+        ListenerSubscriber(ProgressListener<E> listener, int channels) {
+            this.listener = listener;
+            this.completed = new CountDownLatch(channels);
+        }
+
+        void cancel() {
+            cancelled = true;
+            for (Flow.Subscription s : subscriptions) s.cancel();
+            while (completed.getCount() > 0) completed.countDown();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscriptions.add(subscription);
+            if (cancelled) subscription.cancel();
+            else subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public synchronized void onNext(ProgressEvent<E> event) {
+            switch (event.getType()) {
+                case INCUMBENT: listener.onIncumbent(event); break;
+                case ITERATION: listener.onIteration(event); break;
+                default: listener.onTermination(event);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,248 @@
+package metaheuristics.grasp.progress;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import utils.WeightedItem;
+import utils.WeightedMap;
+
+/**
+ * Live statistics of a solver, which can be registered as an MBean so that
+ * the standard JMX tools (jconsole, VisualVM, ...) monitor a run. The solver
+ * thread is the only writer, and it writes with opaque stores, which cost
+ * as much as plain ones but are eventually seen by the readers, since they
+ * need not be ordered with the other writes of the solver; the alpha
+ * weights, written once per update of the weights, are published with a
+ * release store.
+ *
+ * @author aserpa, einnarelli
+ */
+public class SolverStats implements SolverStatsMXBean {
+
+    /**
+     * Domain of the names of the MBeans.
+     */
+    public static final String DOMAIN = "metaheuristics.grasp";
+
+    /**
+     * Slots of the values, doubles stored as their bits.
+     */
+    private static final int ITERATIONS = 0, INCUMBENT = 1, ALPHA = 2, CONSTRUCTION = 3, LOCAL_SEARCH = 4,
+        START = 5, END = 6, CL = 7, RCL = 8, SLOTS = 9;
+
+    /**
+     * The values.
+     */
+    private final AtomicLongArray values = new AtomicLongArray(SLOTS);
+
+    /**
+     * Values and weights of the alphas.
+     */
+    private final AtomicReference<double[][]> alphas =
+        new AtomicReference<double[][]>(new double[][] { new double[0], new double[0] });
+
+    /**
+     * Name under which the statistics are registered, or null.
+     */
+    private ObjectName name;
+
+    /**
+     * Constructor for the SolverStats class.
+     */
+    public SolverStats() {
+        values.setOpaque(INCUMBENT, Double.doubleToRawLongBits(Double.NaN));
+        values.setOpaque(ALPHA, Double.doubleToRawLongBits(Double.NaN));
+    }
+
+    /**
+     * Registers the statistics in the platform MBean server, under the name
+     * {@code metaheuristics.grasp:type=SolverStats,name=<name>}. Monitoring
+     * is not essential to a run, so a failure is reported, not thrown.
+     *
+     * @param name
+     *      Name of the solver, unique among the registered ones.
+     *
+     * @return true if the statistics were registered.
+     */
+    public synchronized boolean register(String name) {
+
+        unregister();
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=SolverStats,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.name = objectName;
+            return true;
+        } catch (JMException e) {
+            return false;
+        }
+
+    }
+
+    /**
+     * Unregisters the statistics from the platform MBean server, if they are
+     * registered.
+     */
+    public synchronized void unregister() {
+
+        if (name == null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(name);
+        } catch (JMException e) {
+            // Already unregistered.
+        }
+        name = null;
+
+    }
+
+    /**
+     * Records the start of a run, resetting the statistics.
+     */
+    public void start() {
+        for (int k = 0; k < SLOTS; k++) values.setOpaque(k, 0);
+        values.setOpaque(INCUMBENT, Double.doubleToRawLongBits(Double.NaN));
+        values.setOpaque(ALPHA, Double.doubleToRawLongBits(Double.NaN));
+        values.setOpaque(START, System.nanoTime());
+        alphas.lazySet(new double[][] { new double[0], new double[0] });
+    }
+
+    /**
+     * Records the end of a run.
+     */
+    public void finish() {
+        values.setOpaque(END, System.nanoTime());
+    }
+
+    /**
+     * Records the end of an iteration.
+     *
+     * @param iterations
+     *      Number of iterations executed.
+     * @param incumbentCost
+     *      Cost of the incumbent solution.
+     */
+    public void iteration(long iterations, double incumbentCost) {
+        values.setOpaque(ITERATIONS, iterations);
+        values.setOpaque(INCUMBENT, Double.doubleToRawLongBits(incumbentCost));
+    }
+
+    /**
+     * Records the alpha of the current iteration.
+     *
+     * @param alpha
+     *      The alpha.
+     */
+    public void alpha(double alpha) {
+        values.setOpaque(ALPHA, Double.doubleToRawLongBits(alpha));
+    }
+
+    /**
+     * Adds the time of a construction.
+     *
+     * @param nanos
+     *      The time, in nanoseconds.
+     */
+    public void construction(long nanos) {
+        values.setOpaque(CONSTRUCTION, values.getOpaque(CONSTRUCTION) + nanos);
+    }
+
+    /**
+     * Adds the time of a local search.
+     *
+     * @param nanos
+     *      The time, in nanoseconds.
+     */
+    public void localSearch(long nanos) {
+        values.setOpaque(LOCAL_SEARCH, values.getOpaque(LOCAL_SEARCH) + nanos);
+    }
+
+    /**
+     * Records the sizes of the candidate lists at a construction step.
+     *
+     * @param cl
+     *      Size of the Candidate List.
+     * @param rcl
+     *      Size of the Restricted Candidate List.
+     */
+    public void candidates(int cl, int rcl) {
+        values.setOpaque(CL, cl);
+        values.setOpaque(RCL, rcl);
+    }
+
+    /**
+     * Records the weights of the alphas of a reactive solver.
+     *
+     * @param map
+     *      The map of alphas.
+     */
+    public void alphas(WeightedMap<Double, Double> map) {
+
+        double[] v = new double[map.size()], w = new double[map.size()];
+        int k = 0;
+        for (Map.Entry<Double, WeightedItem<Double>> kv : map.entrySet()) {
+            v[k] = kv.getKey();
+            w[k++] = kv.getValue().getW();
+        }
+        alphas.lazySet(new double[][] { v, w });
+
+    }
+
+    /**
+     * Reads a double slot.
+     */
+    private double doubleValue(int slot) {
+        return Double.longBitsToDouble(values.getOpaque(slot));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return values.getOpaque(START) != 0 && values.getOpaque(END) == 0;
+    }
+
+    @Override
+    public long getIterations() { return values.getOpaque(ITERATIONS); };
+
+    @Override
+    public double getIncumbentCost() { return doubleValue(INCUMBENT); };
+
+    @Override
+    public double getElapsedSeconds() {
+        long start = values.getOpaque(START), end = values.getOpaque(END);
+        if (start == 0) return 0.0;
+        return ((end == 0 ? System.nanoTime() : end) - start) / 1e9;
+    }
+
+    @Override
+    public double getIterationsPerSecond() {
+        double elapsed = getElapsedSeconds();
+        return elapsed > 0.0 ? getIterations() / elapsed : 0.0;
+    }
+
+    @Override
+    public double getConstructionSeconds() { return values.getOpaque(CONSTRUCTION) / 1e9; };
+
+    @Override
+    public double getLocalSearchSeconds() { return values.getOpaque(LOCAL_SEARCH) / 1e9; };
+
+    @Override
+    public double getAlpha() { return doubleValue(ALPHA); };
+
+    @Override
+    public double[] getAlphaValues() { return alphas.get()[0].clone(); };
+
+    @Override
+    public double[] getAlphaWeights() { return alphas.get()[1].clone(); };
+
+    @Override
+    public int getCandidateListSize() { return (int) values.getOpaque(CL); };
+
+    @Override
+    public int getRestrictedCandidateListSize() { return (int) values.getOpaque(RCL); };
+
+}
@@ -0,0 +1,75 @@
+package metaheuristics.grasp.progress;
+
+/**
+ * Management interface of the live statistics of a solver, as seen by the
+ * JMX tools. Values are read without synchronization, so they may lag the
+ * solver slightly and may come from different moments of an iteration.
+ *
+ * @author aserpa, einnarelli
+ */
+public interface SolverStatsMXBean {
+
+    /**
+     * @return true while the solver is running.
+     */
+    boolean isRunning();
+
+    /**
+     * @return The number of iterations executed in the current or last run.
+     */
+    long getIterations();
+
+    /**
+     * @return The cost of the incumbent solution.
+     */
+    double getIncumbentCost();
+
+    /**
+     * @return The time elapsed since the start of the run, in seconds.
+     */
+    double getElapsedSeconds();
+
+    /**
+     * @return The average number of iterations per second.
+     */
+    double getIterationsPerSecond();
+
+    /**
+     * @return The time spent in the constructive heuristic, in seconds.
+     */
+    double getConstructionSeconds();
+
+    /**
+     * @return The time spent in the local search, in seconds.
+     */
+    double getLocalSearchSeconds();
+
+    /**
+     * @return The alpha of the current iteration.
+     */
+    double getAlpha();
+
+    /**
+     * @return The values of the alphas of a reactive solver, or an empty
+     *      array.
+     */
+    double[] getAlphaValues();
+
+    /**
+     * @return The selection weights of the alphas of a reactive solver, in
+     *      the order of {@link #getAlphaValues()}.
+     */
+    double[] getAlphaWeights();
+
+    /**
+     * @return The size of the Candidate List at the last construction step.
+     */
+    int getCandidateListSize();
+
+    /**
+     * @return The size of the Restricted Candidate List at the last
+     *      construction step.
+     */
+    int getRestrictedCandidateListSize();
+
+}
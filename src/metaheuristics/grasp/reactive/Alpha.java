@@ -1,5 +1,8 @@
 package metaheuristics.grasp.reactive;
 
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
 import utils.WeightedItem;
 
 /**
@@ -11,19 +14,16 @@ import utils.WeightedItem;
 public class Alpha extends WeightedItem<Double> {
 
     /**
-     * Average value of all solutions found using this alpha.
-     */
-    private Double A;
-
-    /**
-     * Number of times this alpha was used.
+     * Number of times this alpha was used. Like {@link #accCost}, it is a
+     * contention-free accumulator, so that the iterations of a parallel
+     * Reactive GRASP can update the alpha concurrently.
      */
-    private Integer timesUsed;
+    private final LongAdder timesUsed = new LongAdder();
 
     /**
      * Accumulated cost of solutions that used alpha.
      */
-    private Double accCost;
+    private final DoubleAdder accCost = new DoubleAdder();
 
     /**
      * Constructor for a alpha used in the Reactive GRASP method.
@@ -38,15 +38,11 @@ public class Alpha extends WeightedItem<Double> {
         // Call WeightedItem constructor.
         super(value, w);
 
-        // Initialize attributes.
-        A = accCost = 0.0;
-        timesUsed = 0;
-
     }
 
     /**
      * Calculates the ratio between the cost of the best solution and {@link 
-     * #A}.
+     * #getA()}.
      * 
      * @param incumbentCost
      *      Cost of the best solution found so far.
@@ -55,13 +51,15 @@ public class Alpha extends WeightedItem<Double> {
      */
     public Double getQ(Double incumbentCost) {
         
+        double A = getA();
         if (A == 0.0) return 0.0;
 
         return incumbentCost / A; 
     }
 
     /**
-     * Method to update {@link #A}, after this alpha is used in a new solution.
+     * Method to update {@link #getA()}, after this alpha is used in a new
+     * solution. It may be called concurrently.
      *
      * @param cost
      *      Cost of a new solution that uses this alpha.
@@ -69,12 +67,26 @@ public class Alpha extends WeightedItem<Double> {
     public void updateA(Double cost) {
         
         // Update accCost and timesUsed
-        timesUsed++;
-        accCost += cost;
-        
-        // Calculate average
-        A = accCost / timesUsed;
+        accCost.add(cost);
+        timesUsed.increment();
 
     };
 
+    /**
+     * Average value of all solutions found using this alpha, or 0 if it was
+     * not used. While it is updated concurrently, the value may be off by
+     * the updates in flight.
+     * 
+     * @return The average cost.
+     */
+    public double getA() {
+        long n = timesUsed.sum();
+        return n == 0 ? 0.0 : accCost.sum() / n;
+    }
+
+    /**
+     * @return The number of times this alpha was used.
+     */
+    public long getTimesUsed() { return timesUsed.sum(); };
+
 }
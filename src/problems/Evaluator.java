@@ -1,5 +1,7 @@
 package problems;
 
+import java.util.List;
+
 import solutions.Solution;
 
 /**
@@ -75,4 +77,65 @@ public interface Evaluator<E> {
 	 */
 	public abstract Double evaluateExchangeCost(E elemIn, E elemOut, Solution<E> sol);
 
+	/**
+	 * Evaluates the cost variations of inserting each element of a batch into
+	 * a solution. Implementations may set up the solution once for the whole
+	 * batch, or split it among threads; by default, it calls
+	 * {@link #evaluateInsertionCost(Object, Solution)} for each element.
+	 * 
+	 * @param elems
+	 *            the elements under consideration for insertion.
+	 * @param sol
+	 *            the solution for which the insertions are being evaluated.
+	 * @param deltas
+	 *            receives the cost variation of each element, at the index of
+	 *            the element in elems.
+	 */
+	public default void evaluateInsertionCosts(List<E> elems, Solution<E> sol, double[] deltas) {
+		for (int k = 0; k < elems.size(); k++) {
+			deltas[k] = evaluateInsertionCost(elems.get(k), sol);
+		}
+	}
+
+	/**
+	 * Evaluates the cost variations of removing each element of a batch from
+	 * a solution. By default, it calls
+	 * {@link #evaluateRemovalCost(Object, Solution)} for each element.
+	 * 
+	 * @param elems
+	 *            the elements under consideration for removal.
+	 * @param sol
+	 *            the solution for which the removals are being evaluated.
+	 * @param deltas
+	 *            receives the cost variation of each element, at the index of
+	 *            the element in elems.
+	 */
+	public default void evaluateRemovalCosts(List<E> elems, Solution<E> sol, double[] deltas) {
+		for (int k = 0; k < elems.size(); k++) {
+			deltas[k] = evaluateRemovalCost(elems.get(k), sol);
+		}
+	}
+
+	/**
+	 * Evaluates the cost variations of exchanging an element of a solution
+	 * with each element of a batch. By default, it calls
+	 * {@link #evaluateExchangeCost(Object, Object, Solution)} for each
+	 * element.
+	 * 
+	 * @param elemsIn
+	 *            the elements under consideration for insertion.
+	 * @param elemOut
+	 *            the element under consideration for removal.
+	 * @param sol
+	 *            the solution for which the exchanges are being evaluated.
+	 * @param deltas
+	 *            receives the cost variation of each exchange, at the index of
+	 *            the entering element in elemsIn.
+	 */
+	public default void evaluateExchangeCosts(List<E> elemsIn, E elemOut, Solution<E> sol, double[] deltas) {
+		for (int k = 0; k < elemsIn.size(); k++) {
+			deltas[k] = evaluateExchangeCost(elemsIn.get(k), elemOut, sol);
+		}
+	}
+
 }
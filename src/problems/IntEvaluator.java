@@ -0,0 +1,141 @@
+package problems;
+
+import solutions.IntSolution;
+
+/**
+ * Specialization of the {@link Evaluator} for problems whose domain is the
+ * integers {0, ..., n-1}, where elements are primitive ints, solutions are
+ * {@link IntSolution}s and costs are primitive doubles. Implementations are
+ * expected not to box nor allocate while evaluating, so the evaluator can be
+ * called in the hot loops of the search.
+ *
+ * @author aserpa, einnarelli
+ */
+public interface IntEvaluator {
+
+	/**
+	 * Gives the size of the problem domain. Typically this is the number of
+	 * decision variables of an optimization problem.
+	 *
+	 * @return the size of the problem domain.
+	 */
+	public abstract int domainSize();
+
+	/**
+	 * The evaluating function is responsible for returning the mapping value of
+	 * a solution, which is also stored as the solution cost.
+	 *
+	 * @param sol
+	 *            the solution under evaluation.
+	 * @return the evaluation of a solution.
+	 */
+	public abstract double evaluate(IntSolution sol);
+
+	/**
+	 * Evaluates the cost variation of inserting an element into a solution.
+	 *
+	 * @param elem
+	 *            the element under consideration for insertion.
+	 * @param sol
+	 *            the solution for which the element insertion is being
+	 *            evaluated.
+	 * @return the cost variation resulting from the element insertion into the
+	 *         solution.
+	 */
+	public abstract double evaluateInsertionCost(int elem, IntSolution sol);
+
+	/**
+	 * Evaluates the cost variation of removing an element from a solution.
+	 *
+	 * @param elem
+	 *            the element under consideration for removal.
+	 * @param sol
+	 *            the solution for which the element removal is being
+	 *            evaluated.
+	 * @return the cost variation resulting from the element removal of the
+	 *         solution.
+	 */
+	public abstract double evaluateRemovalCost(int elem, IntSolution sol);
+
+	/**
+	 * Evaluates the cost variation of exchanging candidates, one being
+	 * considered to enter the solution (elemIn) and the other being considered
+	 * for removal (elemOut).
+	 *
+	 * @param elemIn
+	 *            the element under consideration for insertion.
+	 * @param elemOut
+	 *            the element under consideration for removal.
+	 * @param sol
+	 *            the solution for which the elements exchange is being
+	 *            evaluated.
+	 * @return the cost variation resulting from the elements exchange.
+	 */
+	public abstract double evaluateExchangeCost(int elemIn, int elemOut, IntSolution sol);
+
+	/**
+	 * Evaluates the cost variations of inserting each element of a batch into
+	 * a solution. By default, it calls
+	 * {@link #evaluateInsertionCost(int, IntSolution)} for each element.
+	 *
+	 * @param elems
+	 *            the elements under consideration for insertion.
+	 * @param count
+	 *            the number of elements of the batch, at the start of elems.
+	 * @param sol
+	 *            the solution for which the insertions are being evaluated.
+	 * @param deltas
+	 *            receives the cost variation of each element, at the index of
+	 *            the element in elems.
+	 */
+	public default void evaluateInsertionCosts(int[] elems, int count, IntSolution sol, double[] deltas) {
+		for (int k = 0; k < count; k++) {
+			deltas[k] = evaluateInsertionCost(elems[k], sol);
+		}
+	}
+
+	/**
+	 * Evaluates the cost variations of removing each element of a batch from
+	 * a solution. By default, it calls
+	 * {@link #evaluateRemovalCost(int, IntSolution)} for each element.
+	 *
+	 * @param elems
+	 *            the elements under consideration for removal.
+	 * @param count
+	 *            the number of elements of the batch, at the start of elems.
+	 * @param sol
+	 *            the solution for which the removals are being evaluated.
+	 * @param deltas
+	 *            receives the cost variation of each element, at the index of
+	 *            the element in elems.
+	 */
+	public default void evaluateRemovalCosts(int[] elems, int count, IntSolution sol, double[] deltas) {
+		for (int k = 0; k < count; k++) {
+			deltas[k] = evaluateRemovalCost(elems[k], sol);
+		}
+	}
+
+	/**
+	 * Evaluates the cost variations of exchanging an element of a solution
+	 * with each element of a batch. By default, it calls
+	 * {@link #evaluateExchangeCost(int, int, IntSolution)} for each element.
+	 *
+	 * @param elemsIn
+	 *            the elements under consideration for insertion.
+	 * @param count
+	 *            the number of elements of the batch, at the start of elemsIn.
+	 * @param elemOut
+	 *            the element under consideration for removal.
+	 * @param sol
+	 *            the solution for which the exchanges are being evaluated.
+	 * @param deltas
+	 *            receives the cost variation of each exchange, at the index of
+	 *            the entering element in elemsIn.
+	 */
+	public default void evaluateExchangeCosts(int[] elemsIn, int count, int elemOut, IntSolution sol, double[] deltas) {
+		for (int k = 0; k < count; k++) {
+			deltas[k] = evaluateExchangeCost(elemsIn[k], elemOut, sol);
+		}
+	}
+
+}
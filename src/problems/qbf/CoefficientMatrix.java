@@ -0,0 +1,754 @@
+package problems.qbf;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import solutions.IntSolution;
+
+/**
+ * Upper triangular matrix of coefficients of a QBF, stored as one primitive
+ * array per row, where row i holds a_ii, ..., a_in. The element type is the
+ * narrowest of {@code byte}, {@code short}, {@code int} and {@code double}
+ * that holds every coefficient of the instance, chosen by the
+ * {@link Builder} from the observed values. The integer backends sum
+ * coefficients in exact {@code long} arithmetic, and their {@code long}
+ * methods give exact deltas and costs, which the double ones round.
+ *
+ * Since the matrix is upper triangular, the coupling between two variables
+ * i < j is a_ij, and the contribution of a variable is its diagonal plus
+ * its row and its column restricted to the selected variables.
+ *
+ * @author aserpa, einnarelli
+ */
+public abstract class CoefficientMatrix {
+
+    /**
+     * Dimension of the matrix.
+     */
+    protected final int size;
+
+    /**
+     * Base constructor for the CoefficientMatrix class.
+     *
+     * @param size
+     *      Dimension of the matrix.
+     */
+    protected CoefficientMatrix(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Size getter.
+     *
+     * @return The dimension of the matrix.
+     */
+    public int size() { return size; };
+
+    /**
+     * Gives the coefficient a_ij, which is zero below the diagonal.
+     *
+     * @param i
+     *      Row of the coefficient.
+     * @param j
+     *      Column of the coefficient.
+     *
+     * @return The coefficient a_ij.
+     */
+    public abstract double get(int i, int j);
+
+    /**
+     * Gives the coupling between two variables, i.e., a_ij + a_ji.
+     *
+     * @param i
+     *      A variable.
+     * @param j
+     *      Another variable.
+     *
+     * @return The coupling, or a_ii if i == j.
+     */
+    public double coupling(int i, int j) {
+        return i <= j ? get(i, j) : get(j, i);
+    }
+
+    /**
+     * Gives the contribution of a variable given the values of all variables,
+     * i.e., a_ii + sum_{j != i} x_j * (a_ij + a_ji), where x_j is either 0 or 1.
+     *
+     * @param i
+     *      The variable under consideration.
+     * @param x
+     *      Values of the variables.
+     *
+     * @return The contribution of the variable.
+     */
+    public abstract double contribution(int i, double[] x);
+
+    /**
+     * Gives the contribution of a variable given the variables set in a
+     * solution, visiting only these variables.
+     *
+     * @param i
+     *      The variable under consideration.
+     * @param sol
+     *      The solution with the variables set to 1.
+     *
+     * @return The contribution of the variable.
+     */
+    public abstract double contribution(int i, IntSolution sol);
+
+    /**
+     * Evaluates x'.A.x, where each x_j is either 0 or 1.
+     *
+     * @param x
+     *      Values of the variables.
+     *
+     * @return The value of the QBF.
+     */
+    public abstract double evaluate(double[] x);
+
+    /**
+     * Evaluates x'.A.x for the variables set in a solution.
+     *
+     * @param sol
+     *      The solution with the variables set to 1.
+     *
+     * @return The value of the QBF.
+     */
+    public double evaluate(IntSolution sol) {
+
+        if (isIntegral()) return evaluateLong(sol);
+
+        double sum = 0.0;
+        for (int p = 0; p < sol.size(); p++) {
+            int i = sol.get(p);
+            sum += get(i, i);
+            for (int q = 0; q < p; q++) {
+                sum += coupling(i, sol.get(q));
+            }
+        }
+
+        return sum;
+
+    }
+
+    /**
+     * Gives the coefficient a_ij of an integral matrix.
+     *
+     * @param i
+     *      Row of the coefficient.
+     * @param j
+     *      Column of the coefficient.
+     *
+     * @return The coefficient a_ij.
+     *
+     * @throws UnsupportedOperationException
+     *      If the matrix is not {@link #isIntegral() integral}, as are the
+     *      other {@code long} methods.
+     */
+    public long getLong(int i, int j) {
+        if (!isIntegral()) throw new UnsupportedOperationException("The coefficients are not integers.");
+        return (long) get(i, j);
+    }
+
+    /**
+     * Gives the coupling between two variables of an integral matrix.
+     *
+     * @see #coupling(int, int)
+     */
+    public long couplingLong(int i, int j) {
+        return i <= j ? getLong(i, j) : getLong(j, i);
+    }
+
+    /**
+     * Gives the exact contribution of a variable of an integral matrix.
+     *
+     * @see #contribution(int, double[])
+     */
+    public long contributionLong(int i, double[] x) {
+        long sum = getLong(i, i);
+        for (int j = 0; j < size; j++) {
+            if (j != i && x[j] != 0) sum += couplingLong(i, j);
+        }
+        return sum;
+    }
+
+    /**
+     * Gives the exact contribution of a variable of an integral matrix,
+     * visiting only the variables set in a solution.
+     *
+     * @see #contribution(int, IntSolution)
+     */
+    public long contributionLong(int i, IntSolution sol) {
+        long sum = getLong(i, i);
+        for (int p = 0; p < sol.size(); p++) {
+            int j = sol.get(p);
+            if (j != i) sum += couplingLong(i, j);
+        }
+        return sum;
+    }
+
+    /**
+     * Evaluates x'.A.x exactly for an integral matrix.
+     *
+     * @see #evaluate(double[])
+     */
+    public long evaluateLong(double[] x) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (x[i] == 0) continue;
+            for (int j = i; j < size; j++) {
+                if (x[j] != 0) sum += getLong(i, j);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Evaluates x'.A.x exactly for the variables set in a solution, for an
+     * integral matrix.
+     *
+     * @see #evaluate(IntSolution)
+     */
+    public long evaluateLong(IntSolution sol) {
+
+        long sum = 0;
+        for (int p = 0; p < sol.size(); p++) {
+            int i = sol.get(p);
+            sum += getLong(i, i);
+            for (int q = 0; q < p; q++) {
+                sum += couplingLong(i, sol.get(q));
+            }
+        }
+
+        return sum;
+
+    }
+
+    /**
+     * Adds the couplings of a variable, times a factor, to a vector, i.e.,
+     * h_j += factor * (a_ij + a_ji) for every j != i. It reads row i and
+     * column i of the triangle once, which is how flip moves update the
+     * contributions of all variables.
+     *
+     * @param i
+     *      The variable under consideration.
+     * @param factor
+     *      The factor, usually 1 (i enters) or -1 (i leaves).
+     * @param h
+     *      The vector to be updated, with one position per variable.
+     */
+    public void addCouplings(int i, double factor, double[] h) {
+        for (int j = 0; j < i; j++) h[j] += factor * get(j, i);
+        for (int j = i + 1; j < size; j++) h[j] += factor * get(i, j);
+    }
+
+    /**
+     * Tells whether every coefficient is an integer, in which case the sums
+     * of this matrix are exact.
+     *
+     * @return true for the integer backends.
+     */
+    public abstract boolean isIntegral();
+
+    /**
+     * Gives the number of bytes used by each coefficient.
+     *
+     * @return 1, 2, 4 or 8.
+     */
+    public abstract int bytesPerCoefficient();
+
+    /**
+     * Builder of a matrix, whose rows may be set in any order and from
+     * different threads. Each row is narrowed to the smallest type that holds
+     * its values, and {@link #build()} widens all rows to the widest one.
+     */
+    public static final class Builder {
+
+        /**
+         * Dimension of the matrix.
+         */
+        private final int size;
+
+        /**
+         * The rows, as byte[], short[], int[] or double[].
+         */
+        private final Object[] rows;
+
+        /**
+         * Widest number of bytes per coefficient among the rows set.
+         */
+        private final AtomicInteger width = new AtomicInteger(1);
+
+        /**
+         * Constructor for a builder of a given dimension.
+         *
+         * @param size
+         *      Dimension of the matrix.
+         */
+        public Builder(int size) {
+            this.size = size;
+            this.rows = new Object[size];
+        }
+
+        /**
+         * Sets a row of the matrix.
+         *
+         * @param i
+         *      Index of the row.
+         * @param values
+         *      The coefficients a_ii, ..., a_in, in the first n - i positions.
+         *      The array is copied, so it can be reused by the caller.
+         */
+        public void setRow(int i, double[] values) {
+
+            int len = size - i;
+            long min = 0, max = 0;
+            boolean integral = true;
+
+            for (int k = 0; k < len && integral; k++) {
+                double v = values[k];
+                long l = (long) v;
+                if (l != v || v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) {
+                    integral = false;
+                } else {
+                    if (l < min) min = l;
+                    if (l > max) max = l;
+                }
+            }
+
+            int w;
+            if (!integral) w = 8;
+            else if (min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE) w = 1;
+            else if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE) w = 2;
+            else w = 4;
+
+            rows[i] = narrow(values, len, w);
+            width.accumulateAndGet(w, Math::max);
+
+        }
+
+        /**
+         * Builds the matrix, with the widest type among the rows. Rows are
+         * widened one at a time, so the builder should not be used after.
+         *
+         * @return The matrix.
+         */
+        public CoefficientMatrix build() {
+
+            int w = width.get();
+            double[] buffer = new double[size];
+
+            for (int i = 0; i < size; i++) {
+                if (width(rows[i]) != w) rows[i] = narrow(widen(rows[i], buffer), size - i, w);
+            }
+
+            switch (w) {
+                case 1: return new ByteMatrix(size, rows);
+                case 2: return new ShortMatrix(size, rows);
+                case 4: return new IntMatrix(size, rows);
+                default: return new DoubleMatrix(size, rows);
+            }
+
+        }
+
+        /**
+         * Copies values into an array of the given width.
+         */
+        private static Object narrow(double[] values, int len, int w) {
+            switch (w) {
+                case 1: {
+                    byte[] row = new byte[len];
+                    for (int k = 0; k < len; k++) row[k] = (byte) values[k];
+                    return row;
+                }
+                case 2: {
+                    short[] row = new short[len];
+                    for (int k = 0; k < len; k++) row[k] = (short) values[k];
+                    return row;
+                }
+                case 4: {
+                    int[] row = new int[len];
+                    for (int k = 0; k < len; k++) row[k] = (int) values[k];
+                    return row;
+                }
+                default: {
+                    double[] row = new double[len];
+                    System.arraycopy(values, 0, row, 0, len);
+                    return row;
+                }
+            }
+        }
+
+        /**
+         * Copies a row of any width into a double buffer.
+         */
+        private static double[] widen(Object row, double[] buffer) {
+            if (row instanceof byte[]) {
+                byte[] r = (byte[]) row;
+                for (int k = 0; k < r.length; k++) buffer[k] = r[k];
+            } else if (row instanceof short[]) {
+                short[] r = (short[]) row;
+                for (int k = 0; k < r.length; k++) buffer[k] = r[k];
+            } else if (row instanceof int[]) {
+                int[] r = (int[]) row;
+                for (int k = 0; k < r.length; k++) buffer[k] = r[k];
+            } else {
+                double[] r = (double[]) row;
+                System.arraycopy(r, 0, buffer, 0, r.length);
+            }
+            return buffer;
+        }
+
+        /**
+         * Gives the width of a row.
+         */
+        private static int width(Object row) {
+            if (row instanceof byte[]) return 1;
+            if (row instanceof short[]) return 2;
+            if (row instanceof int[]) return 4;
+            return 8;
+        }
+
+    }
+
+    /**
+     * Matrix of {@code byte} coefficients.
+     */
+    static final class ByteMatrix extends CoefficientMatrix {
+
+        private final byte[][] rows;
+
+        ByteMatrix(int size, Object[] rows) {
+            super(size);
+            this.rows = new byte[size][];
+            for (int i = 0; i < size; i++) this.rows[i] = (byte[]) rows[i];
+        }
+
+        @Override
+        public double get(int i, int j) {
+            return i <= j ? rows[i][j - i] : 0.0;
+        }
+
+        @Override
+        public long getLong(int i, int j) {
+            return i <= j ? rows[i][j - i] : 0L;
+        }
+
+        @Override
+        public double contribution(int i, double[] x) {
+            return contributionLong(i, x);
+        }
+
+        @Override
+        public double contribution(int i, IntSolution sol) {
+            return contributionLong(i, sol);
+        }
+
+        @Override
+        public double evaluate(double[] x) {
+            return evaluateLong(x);
+        }
+
+        @Override
+        public long contributionLong(int i, double[] x) {
+            long sum = rows[i][0];
+            for (int j = 0; j < i; j++) {
+                if (x[j] != 0) sum += rows[j][i - j];
+            }
+            byte[] row = rows[i];
+            for (int k = 1; k < row.length; k++) {
+                if (x[i + k] != 0) sum += row[k];
+            }
+            return sum;
+        }
+
+        @Override
+        public long contributionLong(int i, IntSolution sol) {
+            long sum = rows[i][0];
+            for (int p = 0; p < sol.size(); p++) {
+                int j = sol.get(p);
+                if (j > i) sum += rows[i][j - i];
+                else if (j < i) sum += rows[j][i - j];
+            }
+            return sum;
+        }
+
+        @Override
+        public long evaluateLong(double[] x) {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (x[i] == 0) continue;
+                byte[] row = rows[i];
+                for (int k = 0; k < row.length; k++) {
+                    if (x[i + k] != 0) sum += row[k];
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        public void addCouplings(int i, double factor, double[] h) {
+            for (int j = 0; j < i; j++) h[j] += factor * rows[j][i - j];
+            byte[] row = rows[i];
+            for (int k = 1; k < row.length; k++) h[i + k] += factor * row[k];
+        }
+
+        @Override
+        public boolean isIntegral() { return true; };
+
+        @Override
+        public int bytesPerCoefficient() { return 1; };
+
+    }
+
+    /**
+     * Matrix of {@code short} coefficients.
+     */
+    static final class ShortMatrix extends CoefficientMatrix {
+
+        private final short[][] rows;
+
+        ShortMatrix(int size, Object[] rows) {
+            super(size);
+            this.rows = new short[size][];
+            for (int i = 0; i < size; i++) this.rows[i] = (short[]) rows[i];
+        }
+
+        @Override
+        public double get(int i, int j) {
+            return i <= j ? rows[i][j - i] : 0.0;
+        }
+
+        @Override
+        public long getLong(int i, int j) {
+            return i <= j ? rows[i][j - i] : 0L;
+        }
+
+        @Override
+        public double contribution(int i, double[] x) {
+            return contributionLong(i, x);
+        }
+
+        @Override
+        public double contribution(int i, IntSolution sol) {
+            return contributionLong(i, sol);
+        }
+
+        @Override
+        public double evaluate(double[] x) {
+            return evaluateLong(x);
+        }
+
+        @Override
+        public long contributionLong(int i, double[] x) {
+            long sum = rows[i][0];
+            for (int j = 0; j < i; j++) {
+                if (x[j] != 0) sum += rows[j][i - j];
+            }
+            short[] row = rows[i];
+            for (int k = 1; k < row.length; k++) {
+                if (x[i + k] != 0) sum += row[k];
+            }
+            return sum;
+        }
+
+        @Override
+        public long contributionLong(int i, IntSolution sol) {
+            long sum = rows[i][0];
+            for (int p = 0; p < sol.size(); p++) {
+                int j = sol.get(p);
+                if (j > i) sum += rows[i][j - i];
+                else if (j < i) sum += rows[j][i - j];
+            }
+            return sum;
+        }
+
+        @Override
+        public long evaluateLong(double[] x) {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (x[i] == 0) continue;
+                short[] row = rows[i];
+                for (int k = 0; k < row.length; k++) {
+                    if (x[i + k] != 0) sum += row[k];
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        public void addCouplings(int i, double factor, double[] h) {
+            for (int j = 0; j < i; j++) h[j] += factor * rows[j][i - j];
+            short[] row = rows[i];
+            for (int k = 1; k < row.length; k++) h[i + k] += factor * row[k];
+        }
+
+        @Override
+        public boolean isIntegral() { return true; };
+
+        @Override
+        public int bytesPerCoefficient() { return 2; };
+
+    }
+
+    /**
+     * Matrix of {@code int} coefficients.
+     */
+    static final class IntMatrix extends CoefficientMatrix {
+
+        private final int[][] rows;
+
+        IntMatrix(int size, Object[] rows) {
+            super(size);
+            this.rows = new int[size][];
+            for (int i = 0; i < size; i++) this.rows[i] = (int[]) rows[i];
+        }
+
+        @Override
+        public double get(int i, int j) {
+            return i <= j ? rows[i][j - i] : 0.0;
+        }
+
+        @Override
+        public long getLong(int i, int j) {
+            return i <= j ? rows[i][j - i] : 0L;
+        }
+
+        @Override
+        public double contribution(int i, double[] x) {
+            return contributionLong(i, x);
+        }
+
+        @Override
+        public double contribution(int i, IntSolution sol) {
+            return contributionLong(i, sol);
+        }
+
+        @Override
+        public double evaluate(double[] x) {
+            return evaluateLong(x);
+        }
+
+        @Override
+        public long contributionLong(int i, double[] x) {
+            long sum = rows[i][0];
+            for (int j = 0; j < i; j++) {
+                if (x[j] != 0) sum += rows[j][i - j];
+            }
+            int[] row = rows[i];
+            for (int k = 1; k < row.length; k++) {
+                if (x[i + k] != 0) sum += row[k];
+            }
+            return sum;
+        }
+
+        @Override
+        public long contributionLong(int i, IntSolution sol) {
+            long sum = rows[i][0];
+            for (int p = 0; p < sol.size(); p++) {
+                int j = sol.get(p);
+                if (j > i) sum += rows[i][j - i];
+                else if (j < i) sum += rows[j][i - j];
+            }
+            return sum;
+        }
+
+        @Override
+        public long evaluateLong(double[] x) {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (x[i] == 0) continue;
+                int[] row = rows[i];
+                for (int k = 0; k < row.length; k++) {
+                    if (x[i + k] != 0) sum += row[k];
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        public void addCouplings(int i, double factor, double[] h) {
+            for (int j = 0; j < i; j++) h[j] += factor * rows[j][i - j];
+            int[] row = rows[i];
+            for (int k = 1; k < row.length; k++) h[i + k] += factor * row[k];
+        }
+
+        @Override
+        public boolean isIntegral() { return true; };
+
+        @Override
+        public int bytesPerCoefficient() { return 4; };
+
+    }
+
+    /**
+     * Matrix of {@code double} coefficients, used when some coefficient is
+     * not an integer.
+     */
+    static final class DoubleMatrix extends CoefficientMatrix {
+
+        private final double[][] rows;
+
+        DoubleMatrix(int size, Object[] rows) {
+            super(size);
+            this.rows = new double[size][];
+            for (int i = 0; i < size; i++) this.rows[i] = (double[]) rows[i];
+        }
+
+        @Override
+        public double get(int i, int j) {
+            return i <= j ? rows[i][j - i] : 0.0;
+        }
+
+        @Override
+        public double contribution(int i, double[] x) {
+            double sum = rows[i][0];
+            for (int j = 0; j < i; j++) {
+                if (x[j] != 0) sum += rows[j][i - j];
+            }
+            double[] row = rows[i];
+            for (int k = 1; k < row.length; k++) {
+                if (x[i + k] != 0) sum += row[k];
+            }
+            return sum;
+        }
+
+        @Override
+        public double contribution(int i, IntSolution sol) {
+            double sum = rows[i][0];
+            for (int p = 0; p < sol.size(); p++) {
+                int j = sol.get(p);
+                if (j > i) sum += rows[i][j - i];
+                else if (j < i) sum += rows[j][i - j];
+            }
+            return sum;
+        }
+
+        @Override
+        public double evaluate(double[] x) {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (x[i] == 0) continue;
+                double[] row = rows[i];
+                for (int k = 0; k < row.length; k++) {
+                    if (x[i + k] != 0) sum += row[k];
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        public void addCouplings(int i, double factor, double[] h) {
+            for (int j = 0; j < i; j++) h[j] += factor * rows[j][i - j];
+            double[] row = rows[i];
+            for (int k = 1; k < row.length; k++) h[i + k] += factor * row[k];
+        }
+
+        @Override
+        public boolean isIntegral() { return false; };
+
+        @Override
+        public int bytesPerCoefficient() { return 8; };
+
+    }
+
+}
@@ -0,0 +1,52 @@
+package problems.qbf;
+
+/**
+ * Side constraint of a QBF problem, checked by the flip-based local
+ * searches before a variable is set to 1. Setting variables to 0 is always
+ * assumed feasible.
+ *
+ * @author aserpa, einnarelli
+ */
+public interface FlipConstraint {
+
+    /**
+     * Tells whether a variable can be set to 1.
+     *
+     * @param i
+     *      The variable, currently 0.
+     * @param x
+     *      The current values of the variables.
+     *
+     * @return true if the move keeps the solution feasible.
+     */
+    boolean canAdd(int i, boolean[] x);
+
+    /**
+     * Tells whether a variable can be set to 1 while another one is set to 0.
+     *
+     * @param in
+     *      The variable set to 1, currently 0.
+     * @param out
+     *      The variable set to 0, currently 1.
+     * @param x
+     *      The current values of the variables.
+     *
+     * @return true if the move keeps the solution feasible.
+     */
+    boolean canSwap(int in, int out, boolean[] x);
+
+    /**
+     * Tells whether two variables can be set to 1 together.
+     *
+     * @param i
+     *      A variable, currently 0.
+     * @param j
+     *      Another variable, currently 0.
+     * @param x
+     *      The current values of the variables.
+     *
+     * @return true if the move keeps the solution feasible.
+     */
+    boolean canAddPair(int i, int j, boolean[] x);
+
+}
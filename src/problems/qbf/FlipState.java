@@ -0,0 +1,177 @@
+package problems.qbf;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import solutions.Solution;
+
+/**
+ * Assignment of the binary variables of a QBF with the gain of every flip
+ * maintained incrementally, to be shared by the flip-based local searches.
+ * For each variable i it keeps h_i = sum_{j != i} x_j * (a_ij + a_ji), so
+ * that the change of f(x) = x'.A.x caused by flipping i is
+ * (1 - 2x_i) * (a_ii + h_i), and that of flipping i and j together adds
+ * (1 - 2x_i) * (1 - 2x_j) * (a_ij + a_ji). Gains are read in O(1) and a
+ * flip costs O(n), which reads one row and one column of the matrix.
+ *
+ * @author aserpa, einnarelli
+ */
+public class FlipState {
+
+    /**
+     * The matrix of coefficients.
+     */
+    private final CoefficientMatrix A;
+
+    /**
+     * Number of variables.
+     */
+    private final int n;
+
+    /**
+     * The diagonal of the matrix.
+     */
+    private final double[] diagonal;
+
+    /**
+     * Values of the variables.
+     */
+    private final boolean[] x;
+
+    /**
+     * Coupling of each variable with the variables set to 1.
+     */
+    private final double[] h;
+
+    /**
+     * Number of variables set to 1.
+     */
+    private int ones;
+
+    /**
+     * Value of the QBF, f(x).
+     */
+    private double value;
+
+    /**
+     * Constructor for the FlipState class, with every variable set to 0.
+     *
+     * @param A
+     *      The matrix of coefficients.
+     */
+    public FlipState(CoefficientMatrix A) {
+        this.A = A;
+        this.n = A.size();
+        this.diagonal = new double[n];
+        this.x = new boolean[n];
+        this.h = new double[n];
+        for (int i = 0; i < n; i++) diagonal[i] = A.get(i, i);
+    }
+
+    /**
+     * Sets every variable to 0.
+     */
+    public void clear() {
+        Arrays.fill(x, false);
+        Arrays.fill(h, 0.0);
+        ones = 0;
+        value = 0.0;
+    }
+
+    /**
+     * Sets the variables of a solution to 1, and the others to 0, in
+     * O(n * |S|).
+     *
+     * @param sol
+     *      The elements of the solution.
+     */
+    public void load(Collection<Integer> sol) {
+        clear();
+        for (Integer e : sol) {
+            if (!x[e]) flip(e);
+        }
+    }
+
+    /**
+     * Writes the variables set to 1 into a solution, replacing its elements.
+     *
+     * @param sol
+     *      The solution, whose cost is not changed.
+     */
+    public void store(Solution<Integer> sol) {
+        sol.clear();
+        for (int i = 0; i < n; i++) {
+            if (x[i]) sol.add(i);
+        }
+    }
+
+    /**
+     * Change of f(x) caused by flipping a variable.
+     *
+     * @param i
+     *      The variable.
+     *
+     * @return The change of the value.
+     */
+    public double gain(int i) {
+        double d = diagonal[i] + h[i];
+        return x[i] ? -d : d;
+    }
+
+    /**
+     * Change of f(x) caused by flipping two distinct variables.
+     *
+     * @param i
+     *      A variable.
+     * @param j
+     *      Another variable.
+     *
+     * @return The change of the value.
+     */
+    public double gain(int i, int j) {
+        double c = A.coupling(i, j);
+        return gain(i) + gain(j) + (x[i] == x[j] ? c : -c);
+    }
+
+    /**
+     * Flips a variable, updating the value and the couplings in O(n).
+     *
+     * @param i
+     *      The variable.
+     */
+    public void flip(int i) {
+        value += gain(i);
+        x[i] = !x[i];
+        ones += x[i] ? 1 : -1;
+        A.addCouplings(i, x[i] ? 1.0 : -1.0, h);
+    }
+
+    /**
+     * @return The values of the variables, which should not be modified.
+     */
+    public boolean[] variables() { return x; };
+
+    /**
+     * @param i
+     *      A variable.
+     *
+     * @return true if the variable is set to 1.
+     */
+    public boolean get(int i) { return x[i]; };
+
+    /**
+     * @return The number of variables.
+     */
+    public int size() { return n; };
+
+    /**
+     * @return The number of variables set to 1.
+     */
+    public int ones() { return ones; };
+
+    /**
+     * @return The value of the QBF, f(x).
+     */
+    public double value() { return value; };
+
+}
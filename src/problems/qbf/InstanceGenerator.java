@@ -0,0 +1,158 @@
+package problems.qbf;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Seeded generator of synthetic QBF instances, written in the same format as
+ * the {@code instances/} folder (and read by the {@link InstanceReader}).
+ * The same files are QBFPT instances, since the prohibited triples only
+ * depend on the dimension n.
+ *
+ * Each coefficient of the upper triangular matrix is non-zero with a given
+ * density, in which case it is drawn uniformly from a given range.
+ *
+ * @author aserpa, einnarelli
+ */
+public final class InstanceGenerator {
+
+    /**
+     * Size of the output buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * No instances, only static helpers.
+     */
+    private InstanceGenerator() {}
+
+    /**
+     * Writes a random instance to a file, which is gzip-compressed if its
+     * name ends with {@code .gz}.
+     *
+     * @param filename
+     *      Name of the file to be written.
+     * @param n
+     *      Dimension of the instance.
+     * @param density
+     *      Probability of a coefficient being non-zero (within the range
+     *      [0,1]).
+     * @param min
+     *      Smallest value of a non-zero coefficient.
+     * @param max
+     *      Largest value of a non-zero coefficient.
+     * @param seed
+     *      Seed of the random number generator.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public static void generate(
+        String filename,
+        int n,
+        double density,
+        int min,
+        int max,
+        long seed
+    ) throws IOException {
+
+        try (OutputStream file = new FileOutputStream(filename)) {
+            if (filename.endsWith(".gz")) {
+                try (OutputStream gzip = new GZIPOutputStream(file, BUFFER_SIZE)) {
+                    generate(gzip, n, density, min, max, seed);
+                }
+            } else {
+                generate(file, n, density, min, max, seed);
+            }
+        }
+
+    }
+
+    /**
+     * Writes a random instance to a stream, which is not closed.
+     *
+     * @see #generate(String, int, double, int, int, long)
+     */
+    public static void generate(
+        OutputStream stream,
+        int n,
+        double density,
+        int min,
+        int max,
+        long seed
+    ) throws IOException {
+
+        assert density >= 0.0 && density <= 1.0 : "density should be a double in [0, 1].";
+        assert min <= max : "min should not be greater than max.";
+
+        SplittableRandom rng = new SplittableRandom(seed);
+        BufferedOutputStream out = new BufferedOutputStream(stream, BUFFER_SIZE);
+        byte[] digits = new byte[12];
+
+        writeInt(out, n, digits);
+        out.write('\n');
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                int a = rng.nextDouble() < density ? rng.nextInt(min, max + 1) : 0;
+                if (j > i) out.write(' ');
+                writeInt(out, a, digits);
+            }
+            out.write('\n');
+        }
+
+        out.flush();
+
+    }
+
+    /**
+     * Writes an integer in decimal notation without creating strings.
+     */
+    private static void writeInt(OutputStream out, int value, byte[] digits) throws IOException {
+
+        if (value == 0) {
+            out.write('0');
+            return;
+        }
+
+        long v = value;
+        if (v < 0) {
+            out.write('-');
+            v = -v;
+        }
+
+        int k = digits.length;
+        while (v > 0) {
+            digits[--k] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        out.write(digits, k, digits.length - k);
+
+    }
+
+    /**
+     * Generates an instance from the command line:
+     * {@code <output> <n> [density] [min] [max] [seed]}.
+     */
+    public static void main(String[] args) throws IOException {
+
+        String filename = args[0];
+        int n = Integer.parseInt(args[1]);
+        double density = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+        int min = args.length > 3 ? Integer.parseInt(args[3]) : -10;
+        int max = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 0;
+
+        long startTime = System.currentTimeMillis();
+        generate(filename, n, density, min, max, seed);
+        long endTime   = System.currentTimeMillis();
+        long totalTime = endTime - startTime;
+        System.out.println("Time = "+(double)totalTime/(double)1000+" seg");
+
+    }
+
+}
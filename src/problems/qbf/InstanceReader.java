@@ -0,0 +1,377 @@
+package problems.qbf;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.stream.IntStream;
+
+/**
+ * Reader for the QBF instance format of the {@code instances/} folder: the
+ * dimension N followed by the upper triangular matrix of coefficients, one
+ * row per line (see {@code instances/README.md}). Gzip-compressed files are
+ * detected by their magic number and decompressed on the fly.
+ *
+ * Instead of tokenizing characters into doubles, the input is read through
+ * large byte buffers and integers are parsed by hand (other numbers fall back
+ * to {@link Double#parseDouble(String)}). When the whole input fits in a
+ * single array, the rows are located first and then parsed in parallel.
+ *
+ * @author aserpa, einnarelli
+ */
+public final class InstanceReader {
+
+    /**
+     * Size of the buffers used to read the input.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Largest input that is read into a single array and parsed in parallel.
+     * Larger inputs are parsed sequentially while they are streamed.
+     */
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Minimum dimension for which rows are parsed in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    /**
+     * No instances, only static helpers.
+     */
+    private InstanceReader() {}
+
+    /**
+     * Reads a QBF instance from a file, which may be gzip-compressed.
+     *
+     * @param filename
+     *      Name of the file containing the instance.
+     *
+     * @return The matrix of coefficients, in the narrowest type that holds
+     *      them.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public static CoefficientMatrix read(String filename) throws IOException {
+
+        try (FileInputStream in = new FileInputStream(filename)) {
+            return read(in, in.getChannel().size());
+        }
+
+    }
+
+    /**
+     * Reads a QBF instance from a stream, which may be gzip-compressed. The
+     * stream is not closed.
+     *
+     * @param in
+     *      Stream containing the instance.
+     *
+     * @return The matrix of coefficients, in the narrowest type that holds
+     *      them.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public static CoefficientMatrix read(InputStream in) throws IOException {
+        return read(in, BUFFER_SIZE);
+    }
+
+    /**
+     * Reads only the dimension N of a QBF instance file, which may be
+     * gzip-compressed, without reading its coefficients.
+     *
+     * @param filename
+     *      Name of the file containing the instance.
+     *
+     * @return The dimension of the instance.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public static int readDimension(String filename) throws IOException {
+
+        try (FileInputStream in = new FileInputStream(filename)) {
+            return (int) new Tokenizer(open(in)).next();
+        }
+
+    }
+
+    /**
+     * Reads a QBF instance from a stream, given a hint of its size in bytes
+     * which is used to size the buffer of the parallel strategy.
+     */
+    private static CoefficientMatrix read(InputStream in, long sizeHint) throws IOException {
+
+        InputStream buffered = open(in);
+        return parse(buffered, buffered instanceof GZIPInputStream ? BUFFER_SIZE : sizeHint);
+
+    }
+
+    /**
+     * Buffers a stream, decompressing it if it starts with the gzip magic
+     * number (0x1f 0x8b), which is checked without being consumed.
+     */
+    private static InputStream open(InputStream in) throws IOException {
+
+        InputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        boolean gzip = buffered.read() == 0x1f && buffered.read() == 0x8b;
+        buffered.reset();
+
+        return gzip ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+
+    }
+
+    /**
+     * Parses an instance, choosing between the parallel (whole input in one
+     * array) and the streaming strategies.
+     */
+    private static CoefficientMatrix parse(InputStream in, long sizeHint) throws IOException {
+
+        Tokenizer tok = new Tokenizer(in);
+        int n = (int) tok.next();
+        CoefficientMatrix.Builder A = new CoefficientMatrix.Builder(n);
+
+        // Each coefficient takes at least two bytes ("0 "), so small inputs
+        // are known to fit in an array before they are read.
+        long expected = 2L * n * (n + 1) / 2;
+        if (n >= PARALLEL_THRESHOLD && expected <= MAX_ARRAY_SIZE) {
+            byte[] rest = tok.remaining(sizeHint, MAX_ARRAY_SIZE);
+            if (rest != null) {
+                parseRows(rest, tok.end, n, A);
+                return A.build();
+            }
+        }
+
+        parseSequence(tok, n, A);
+        return A.build();
+
+    }
+
+    /**
+     * Parses the matrix rows in parallel, one row per non-blank line. If the
+     * lines do not match the rows, the input is parsed as a single sequence
+     * of numbers instead.
+     */
+    private static void parseRows(byte[] buf, int len, int n, CoefficientMatrix.Builder A) throws IOException {
+
+        int[] starts = new int[n + 1];
+        int rows = 0;
+
+        // Locate the non-blank lines.
+        int p = 0;
+        while (p < len) {
+            int start = p;
+            boolean blank = true;
+            while (p < len && buf[p] != '\n') {
+                if (buf[p] > ' ') blank = false;
+                p++;
+            }
+            p++;
+            if (!blank) {
+                if (rows == n) { rows = -1; break; }
+                starts[rows++] = start;
+            }
+        }
+        starts[n] = len;
+
+        if (rows == n) {
+            ThreadLocal<double[]> buffers = ThreadLocal.withInitial(() -> new double[n]);
+            try {
+                IntStream.range(0, n).parallel().forEach(i -> {
+                    Tokenizer tok = new Tokenizer(buf, starts[i], starts[i + 1]);
+                    double[] row = buffers.get();
+                    for (int j = i; j < n; j++) {
+                        row[j - i] = tok.nextUnchecked();
+                    }
+                    if (tok.hasNext()) throw new IllegalStateException("row " + i);
+                    A.setRow(i, row);
+                });
+                return;
+            } catch (RuntimeException e) {
+                // Rows are not one per line, fall back to the sequence.
+            }
+        }
+
+        parseSequence(new Tokenizer(buf, 0, len), n, A);
+
+    }
+
+    /**
+     * Parses the matrix rows as a single sequence of numbers.
+     */
+    private static void parseSequence(Tokenizer tok, int n, CoefficientMatrix.Builder A) throws IOException {
+
+        double[] row = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                row[j - i] = tok.next();
+            }
+            A.setRow(i, row);
+        }
+
+    }
+
+    /**
+     * Number tokenizer over a byte buffer, which is either refilled from a
+     * stream or fixed to a range of an array.
+     */
+    private static final class Tokenizer {
+
+        private final InputStream in;
+        private byte[] buf;
+        private int pos;
+        private int end;
+
+        Tokenizer(InputStream in) {
+            this.in = in;
+            this.buf = new byte[BUFFER_SIZE];
+        }
+
+        Tokenizer(byte[] buf, int from, int to) {
+            this.in = null;
+            this.buf = buf;
+            this.pos = from;
+            this.end = to;
+        }
+
+        /**
+         * Reads the rest of the input into a single array, whose used length
+         * is left in {@link #end}. The array is initially sized from a hint
+         * (e.g., the file size) and grows if the hint is too small.
+         *
+         * @return The rest of the input, or null if it is larger than the
+         *      given limit (the tokenizer is then left ready to stream).
+         */
+        byte[] remaining(long sizeHint, long limit) throws IOException {
+
+            // One extra byte, so that reaching the hint does not grow it.
+            long initial = Math.min(limit, Math.max(sizeHint + 1, BUFFER_SIZE));
+            byte[] all = new byte[(int) Math.max(initial, end - pos)];
+            int len = end - pos;
+            System.arraycopy(buf, pos, all, 0, len);
+
+            while (true) {
+                if (len == all.length) {
+                    if (all.length >= limit) {
+                        // Keep streaming from what was already read.
+                        buf = all;
+                        pos = 0;
+                        end = len;
+                        return null;
+                    }
+                    byte[] grown = new byte[(int) Math.min(limit, 2L * all.length)];
+                    System.arraycopy(all, 0, grown, 0, len);
+                    all = grown;
+                }
+                int r = in.read(all, len, all.length - len);
+                if (r < 0) break;
+                len += r;
+            }
+
+            buf = all;
+            pos = 0;
+            end = len;
+            return all;
+
+        }
+
+        /**
+         * Skips whitespace, refilling the buffer from the stream if needed.
+         *
+         * @return false if the input is over.
+         */
+        private boolean skip() throws IOException {
+            while (true) {
+                while (pos < end && buf[pos] <= ' ') pos++;
+                if (pos < end) return true;
+                if (in == null || !fill()) return false;
+            }
+        }
+
+        /**
+         * Refills the buffer, keeping the unread bytes.
+         */
+        private boolean fill() throws IOException {
+
+            int left = end - pos;
+            if (left == buf.length) {
+                byte[] grown = new byte[2 * buf.length];
+                System.arraycopy(buf, pos, grown, 0, left);
+                buf = grown;
+            } else {
+                System.arraycopy(buf, pos, buf, 0, left);
+            }
+            pos = 0;
+            end = left;
+
+            int r = in.read(buf, end, buf.length - end);
+            if (r < 0) return false;
+            end += r;
+            return true;
+
+        }
+
+        boolean hasNext() {
+            while (pos < end && buf[pos] <= ' ') pos++;
+            return pos < end;
+        }
+
+        /**
+         * Parses the next number of an array range.
+         */
+        double nextUnchecked() {
+            try {
+                return next();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Parses the next number, by hand if it is an integer.
+         */
+        double next() throws IOException {
+
+            if (!skip()) throw new EOFException("Missing coefficients");
+
+            // Make sure a whole token is in the buffer.
+            int q = pos;
+            while (true) {
+                while (q < end && buf[q] > ' ') q++;
+                if (q < end || in == null) break;
+                int offset = q - pos;
+                if (!fill()) { q = end; break; }
+                q = pos + offset;
+            }
+
+            int p = pos;
+            boolean negative = buf[p] == '-';
+            if (negative || buf[p] == '+') p++;
+
+            int digits = p;
+            long value = 0;
+            while (p < q && buf[p] >= '0' && buf[p] <= '9') {
+                value = 10 * value + (buf[p++] - '0');
+            }
+
+            double result;
+            if (p == q && p > digits && p - digits <= 18) {
+                result = negative ? -value : value;
+            } else {
+                result = Double.parseDouble(new String(buf, pos, q - pos, "US-ASCII"));
+            }
+
+            pos = q;
+            return result;
+
+        }
+
+    }
+
+}
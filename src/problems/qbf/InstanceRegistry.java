@@ -0,0 +1,96 @@
+package problems.qbf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Registry of the QBF instances loaded by the JVM. Each file is read once,
+ * even if many solvers ask for it at the same time, and every solver gets
+ * the same immutable {@link QBFInstance}. Binary matrix files are mapped
+ * off-heap as an {@link OffHeapMatrix}, text files are parsed by the
+ * {@link InstanceReader}.
+ * 
+ * @author aserpa, einnarelli
+ */
+public final class InstanceRegistry {
+
+    /**
+     * Instances by canonical file path. Futures are stored, so that threads
+     * asking for an instance being loaded wait for it instead of loading it
+     * again.
+     */
+    private static final ConcurrentMap<String, CompletableFuture<QBFInstance>> instances = 
+        new ConcurrentHashMap<String, CompletableFuture<QBFInstance>>();
+
+    /**
+     * No instances, only static helpers.
+     */
+    private InstanceRegistry() {}
+
+    /**
+     * Gets the instance of a file, loading it if it is not registered yet.
+     * 
+     * @param filename
+     *      Name of the file containing the instance.
+     * 
+     * @return The shared instance.
+     * 
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public static QBFInstance load(String filename) throws IOException {
+
+        String key = new File(filename).getCanonicalPath();
+        CompletableFuture<QBFInstance> future = new CompletableFuture<QBFInstance>();
+        CompletableFuture<QBFInstance> loaded = instances.putIfAbsent(key, future);
+
+        // This thread registered the future, so it is the one that loads.
+        if (loaded == null) {
+            try {
+                future.complete(new QBFInstance(OffHeapMatrix.isMatrixFile(key)
+                    ? OffHeapMatrix.map(key) : InstanceReader.read(key)));
+            } catch (Throwable e) {
+                // Errors too, e.g. running out of memory, or the threads
+                // waiting for the future would hang.
+                instances.remove(key, future);
+                future.completeExceptionally(e);
+            }
+            loaded = future;
+        }
+
+        try {
+            return loaded.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + filename, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new UncheckedIOException(new IOException(cause));
+        }
+
+    }
+
+    /**
+     * Removes an instance from the registry, so that its memory can be
+     * reclaimed once the solvers using it are gone. The next
+     * {@link #load(String)} reads the file again.
+     * 
+     * @param filename
+     *      Name of the file containing the instance.
+     * 
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public static void release(String filename) throws IOException {
+        instances.remove(new File(filename).getCanonicalPath());
+    }
+
+}
@@ -0,0 +1,522 @@
+package problems.qbf;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import solutions.IntSolution;
+
+/**
+ * Coefficient matrix stored outside the Java heap, either in direct buffers
+ * or mapped read-only from a binary matrix file. The garbage collector
+ * neither scans nor copies the coefficients, so the heap of a solver stays
+ * small however large the instance is, and a mapped file is shared through
+ * the page cache by every solver (and JVM) that maps it.
+ *
+ * The upper triangle is laid out row after row, i.e., a_ij (i <= j) is at
+ * element index i*n - i*(i-1)/2 + (j - i), with the width of the
+ * {@link CoefficientMatrix} it was built from. Since a buffer is limited to
+ * 2 GB, the elements are split into chunks of 1 GB, and each element is read
+ * with an absolute, naturally aligned, little-endian access within its chunk.
+ * These reads are slower than the array accesses of the heap backends, so
+ * this backend pays off for instances whose heap copy would be a burden.
+ *
+ * A binary matrix file has a 16-byte header (magic number, version,
+ * dimension and width, as little-endian ints) followed by the elements. It
+ * is written by {@link #write(CoefficientMatrix, String)} or by the
+ * {@link #main(String[])} converter, and is recognized by the
+ * {@link InstanceRegistry}, which maps it instead of parsing it.
+ *
+ * @author aserpa, einnarelli
+ */
+public abstract class OffHeapMatrix extends CoefficientMatrix {
+
+    /**
+     * Magic number of the binary matrix files ("QBFM").
+     */
+    private static final int MAGIC = 0x4D464251;
+
+    /**
+     * Version of the binary matrix format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the header of the binary matrix files.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Chunks have 2^CHUNK_SHIFT bytes, a multiple of every width.
+     */
+    private static final int CHUNK_SHIFT = 30;
+
+    /**
+     * Size of the chunks, in bytes.
+     */
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    /**
+     * The elements, in chunks of {@link #CHUNK_SIZE} bytes (the last one may
+     * be smaller). Only absolute accesses are used, so the buffers are never
+     * modified and can be read concurrently.
+     */
+    private final ByteBuffer[] chunks;
+
+    /**
+     * Number of bytes per coefficient.
+     */
+    private final int width;
+
+    /**
+     * The only chunk, if the matrix has one, which spares the chunk lookup.
+     */
+    private final ByteBuffer first;
+
+    /**
+     * Constructor for the OffHeapMatrix class.
+     *
+     * @param size
+     *      Dimension of the matrix.
+     * @param width
+     *      Number of bytes per coefficient.
+     * @param chunks
+     *      The buffers with the elements.
+     */
+    OffHeapMatrix(int size, int width, ByteBuffer[] chunks) {
+        super(size);
+        this.width = width;
+        this.chunks = chunks;
+        this.first = chunks.length == 1 ? chunks[0] : null;
+    }
+
+    /**
+     * Copies a matrix into direct buffers.
+     *
+     * @param source
+     *      The matrix to be copied.
+     *
+     * @return The off-heap copy of the matrix.
+     */
+    public static OffHeapMatrix allocate(CoefficientMatrix source) {
+
+        int n = source.size();
+        int width = source.bytesPerCoefficient();
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(n, width)];
+
+        long remaining = elements(n) * width;
+        for (int c = 0; c < chunks.length; c++) {
+            int length = (int) Math.min(CHUNK_SIZE, remaining);
+            chunks[c] = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+            remaining -= length;
+        }
+
+        OffHeapMatrix matrix = create(n, width, chunks);
+        long offset = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++, offset += width) {
+                matrix.put(offset, source.get(i, j));
+            }
+        }
+
+        return matrix;
+
+    }
+
+    /**
+     * Maps a binary matrix file into memory, read-only.
+     *
+     * @param filename
+     *      Name of the binary matrix file.
+     *
+     * @return The mapped matrix.
+     *
+     * @throws IOException
+     *      If the file cannot be read or is not a valid binary matrix file.
+     */
+    public static OffHeapMatrix map(String filename) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0);
+            header.flip();
+
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+                throw new IOException(filename + " is not a binary matrix file.");
+            if (header.getInt() != VERSION)
+                throw new IOException(filename + " has an unsupported version.");
+
+            int n = header.getInt();
+            int width = header.getInt();
+            if (n < 0 || (width != 1 && width != 2 && width != 4 && width != 8))
+                throw new IOException(filename + " has an invalid header.");
+
+            long remaining = elements(n) * width;
+            if (channel.size() < HEADER_SIZE + remaining)
+                throw new IOException(filename + " is truncated.");
+
+            // Mappings remain valid after the channel is closed.
+            ByteBuffer[] chunks = new ByteBuffer[chunkCount(n, width)];
+            for (int c = 0; c < chunks.length; c++) {
+                long length = Math.min(CHUNK_SIZE, remaining);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + c * CHUNK_SIZE, length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+                remaining -= length;
+            }
+
+            return create(n, width, chunks);
+
+        }
+
+    }
+
+    /**
+     * Writes a matrix to a binary matrix file, in the width of the matrix.
+     *
+     * @param source
+     *      The matrix to be written.
+     * @param filename
+     *      Name of the binary matrix file.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public static void write(CoefficientMatrix source, String filename) throws IOException {
+
+        int n = source.size();
+        int width = source.bytesPerCoefficient();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(HEADER_SIZE, n * width))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(width).flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+
+            for (int i = 0; i < n; i++) {
+                buffer.clear();
+                for (int j = i; j < n; j++) {
+                    double v = source.get(i, j);
+                    switch (width) {
+                        case 1: buffer.put((byte) v); break;
+                        case 2: buffer.putShort((short) v); break;
+                        case 4: buffer.putInt((int) v); break;
+                        default: buffer.putDouble(v);
+                    }
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+
+        }
+
+    }
+
+    /**
+     * Tells whether a file is a binary matrix file, by its magic number.
+     *
+     * @param filename
+     *      Name of the file.
+     *
+     * @return true if the file starts with the magic number.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public static boolean isMatrixFile(String filename) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filename))) {
+            return Integer.reverseBytes(in.readInt()) == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the matrix of a given width, each of which reads its elements
+     * with the accessor of its type.
+     */
+    private static OffHeapMatrix create(int n, int width, ByteBuffer[] chunks) {
+        switch (width) {
+            case 1: return new Bytes(n, chunks);
+            case 2: return new Shorts(n, chunks);
+            case 4: return new Ints(n, chunks);
+            default: return new Doubles(n, chunks);
+        }
+    }
+
+    /**
+     * Number of elements of the upper triangle.
+     */
+    private static long elements(int n) {
+        return (long) n * (n + 1) / 2;
+    }
+
+    /**
+     * Number of chunks of a matrix.
+     */
+    private static int chunkCount(int n, int width) {
+        return (int) ((elements(n) * width + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Element index of a_ii, the first element of row i.
+     */
+    private long rowStart(int i) {
+        return (long) i * size - (long) i * (i - 1) / 2;
+    }
+
+    /**
+     * Gives the chunk holding a byte offset.
+     */
+    final ByteBuffer chunk(long offset) {
+        return first != null ? first : chunks[(int) (offset >>> CHUNK_SHIFT)];
+    }
+
+    /**
+     * Gives the position of a byte offset within its chunk.
+     */
+    static int position(long offset) {
+        return (int) (offset & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * Reads the coefficient at a byte offset.
+     */
+    abstract double value(long offset);
+
+    /**
+     * Reads the integer coefficient at a byte offset, for widths up to 4.
+     */
+    abstract long longValue(long offset);
+
+    /**
+     * Writes the coefficient at a byte offset, while the matrix is allocated.
+     */
+    private void put(long offset, double v) {
+        ByteBuffer chunk = chunk(offset);
+        int p = position(offset);
+        switch (width) {
+            case 1: chunk.put(p, (byte) v); break;
+            case 2: chunk.putShort(p, (short) v); break;
+            case 4: chunk.putInt(p, (int) v); break;
+            default: chunk.putDouble(p, v);
+        }
+    }
+
+    /**
+     * Byte offset of a_ij, where i <= j.
+     */
+    private long offset(int i, int j) {
+        return (rowStart(i) + j - i) * width;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        return i <= j ? value(offset(i, j)) : 0.0;
+    }
+
+    @Override
+    public long getLong(int i, int j) {
+        integral();
+        return i <= j ? longValue(offset(i, j)) : 0L;
+    }
+
+    /**
+     * Checks that the coefficients are integers, before a {@code long} sum.
+     */
+    private void integral() {
+        if (width == 8) throw new UnsupportedOperationException("The coefficients are not integers.");
+    }
+
+    @Override
+    public double contribution(int i, double[] x) {
+
+        long row = offset(i, i);
+
+        if (width == 8) {
+            double sum = value(row);
+            for (int j = 0; j < i; j++) {
+                if (x[j] != 0) sum += value(offset(j, i));
+            }
+            for (int j = i + 1; j < size; j++) {
+                if (x[j] != 0) sum += value(row + (long) (j - i) * width);
+            }
+            return sum;
+        }
+
+        return contributionLong(i, x);
+
+    }
+
+    @Override
+    public long contributionLong(int i, double[] x) {
+
+        integral();
+        long row = offset(i, i);
+        long sum = longValue(row);
+        for (int j = 0; j < i; j++) {
+            if (x[j] != 0) sum += longValue(offset(j, i));
+        }
+        for (int j = i + 1; j < size; j++) {
+            if (x[j] != 0) sum += longValue(row + (long) (j - i) * width);
+        }
+        return sum;
+
+    }
+
+    @Override
+    public double contribution(int i, IntSolution sol) {
+
+        if (width == 8) {
+            double sum = value(offset(i, i));
+            for (int p = 0; p < sol.size(); p++) {
+                int j = sol.get(p);
+                if (j > i) sum += value(offset(i, j));
+                else if (j < i) sum += value(offset(j, i));
+            }
+            return sum;
+        }
+
+        return contributionLong(i, sol);
+
+    }
+
+    @Override
+    public long contributionLong(int i, IntSolution sol) {
+
+        integral();
+        long sum = longValue(offset(i, i));
+        for (int p = 0; p < sol.size(); p++) {
+            int j = sol.get(p);
+            if (j > i) sum += longValue(offset(i, j));
+            else if (j < i) sum += longValue(offset(j, i));
+        }
+        return sum;
+
+    }
+
+    @Override
+    public double evaluate(double[] x) {
+
+        if (width == 8) {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (x[i] == 0) continue;
+                long row = offset(i, i);
+                for (int j = i; j < size; j++) {
+                    if (x[j] != 0) sum += value(row + (long) (j - i) * width);
+                }
+            }
+            return sum;
+        }
+
+        return evaluateLong(x);
+
+    }
+
+    @Override
+    public long evaluateLong(double[] x) {
+
+        integral();
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (x[i] == 0) continue;
+            long row = offset(i, i);
+            for (int j = i; j < size; j++) {
+                if (x[j] != 0) sum += longValue(row + (long) (j - i) * width);
+            }
+        }
+        return sum;
+
+    }
+
+    @Override
+    public boolean isIntegral() { return width < 8; };
+
+    @Override
+    public int bytesPerCoefficient() { return width; };
+
+    /**
+     * Matrix of {@code byte} coefficients.
+     */
+    static final class Bytes extends OffHeapMatrix {
+
+        Bytes(int size, ByteBuffer[] chunks) { super(size, 1, chunks); }
+
+        @Override
+        double value(long offset) { return chunk(offset).get(position(offset)); }
+
+        @Override
+        long longValue(long offset) { return chunk(offset).get(position(offset)); }
+
+    }
+
+    /**
+     * Matrix of {@code short} coefficients.
+     */
+    static final class Shorts extends OffHeapMatrix {
+
+        Shorts(int size, ByteBuffer[] chunks) { super(size, 2, chunks); }
+
+        @Override
+        double value(long offset) { return chunk(offset).getShort(position(offset)); }
+
+        @Override
+        long longValue(long offset) { return chunk(offset).getShort(position(offset)); }
+
+    }
+
+    /**
+     * Matrix of {@code int} coefficients.
+     */
+    static final class Ints extends OffHeapMatrix {
+
+        Ints(int size, ByteBuffer[] chunks) { super(size, 4, chunks); }
+
+        @Override
+        double value(long offset) { return chunk(offset).getInt(position(offset)); }
+
+        @Override
+        long longValue(long offset) { return chunk(offset).getInt(position(offset)); }
+
+    }
+
+    /**
+     * Matrix of {@code double} coefficients.
+     */
+    static final class Doubles extends OffHeapMatrix {
+
+        Doubles(int size, ByteBuffer[] chunks) { super(size, 8, chunks); }
+
+        @Override
+        double value(long offset) { return chunk(offset).getDouble(position(offset)); }
+
+        @Override
+        long longValue(long offset) { return (long) value(offset); }
+
+    }
+
+    /**
+     * Converts a text instance into a binary matrix file from the command
+     * line: {@code <input> <output>}.
+     */
+    public static void main(String[] args) throws IOException {
+
+        long startTime = System.currentTimeMillis();
+        write(InstanceReader.read(args[0]), args[1]);
+        long endTime   = System.currentTimeMillis();
+        long totalTime = endTime - startTime;
+        System.out.println("Time = "+(double)totalTime/(double)1000+" seg");
+
+    }
+
+}
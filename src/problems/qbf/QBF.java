@@ -1,12 +1,15 @@
 package problems.qbf;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.StreamTokenizer;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.stream.IntStream;
+
 import problems.Evaluator;
+import problems.IntEvaluator;
+import solutions.IntSolution;
 import solutions.Solution;
 
 /**
@@ -23,7 +26,13 @@ import solutions.Solution;
  * @author ccavellucci, fusberti
  *
  */
-public class QBF implements Evaluator<Integer> {
+public class QBF implements Evaluator<Integer>, IntEvaluator {
+
+	/**
+	 * Number of coefficients a batch evaluation must visit to be split among
+	 * the threads of the common pool.
+	 */
+	private static final long PARALLEL_WORK = 1L << 22;
 
 	/**
 	 * Dimension of the domain.
@@ -33,17 +42,21 @@ public class QBF implements Evaluator<Integer> {
 	/**
 	 * The array of numbers representing the domain.
 	 */
-	public final Double[] variables;
+	public final double[] variables;
 
 	/**
-	 * The matrix A of coefficients for the QBF f(x) = x'.A.x
+	 * The matrix A of coefficients for the QBF f(x) = x'.A.x, shared with
+	 * every QBF of the same {@link QBFInstance}. It is stored in the narrowest
+	 * type that holds the coefficients, and sums integer coefficients
+	 * exactly.
 	 */
-	public Double[][] A;
+	protected final CoefficientMatrix A;
 
 	/**
 	 * The constructor for QuadracticBinaryFunction class. The filename of the
-	 * input for setting matrix of coefficients A of the QBF. The dimension of
-	 * the array of variables x is returned from the {@link #readInput} method.
+	 * input for setting matrix of coefficients A of the QBF. The instance is
+	 * obtained from the {@link InstanceRegistry}, so the file is only read
+	 * once no matter how many QBFs are built from it.
 	 * 
 	 * @param filename
 	 *            Name of the file containing the input for setting the QBF.
@@ -51,10 +64,32 @@ public class QBF implements Evaluator<Integer> {
 	 *             Necessary for I/O operations.
 	 */
 	public QBF(String filename) throws IOException {
-		size = readInput(filename);
+		this(InstanceRegistry.load(filename));
+	}
+
+	/**
+	 * The constructor for QuadracticBinaryFunction class from an already
+	 * loaded instance. Only the array of variables is allocated, the matrix
+	 * of coefficients A is shared with the instance.
+	 * 
+	 * @param instance
+	 *            The instance for setting the QBF.
+	 */
+	public QBF(QBFInstance instance) {
+		size = instance.getSize();
+		A = instance.getMatrix();
 		variables = allocateVariables();
 	}
 
+	/**
+	 * Matrix getter.
+	 * 
+	 * @return The matrix of coefficients.
+	 */
+	public CoefficientMatrix getMatrix() {
+		return A;
+	}
+
 	/**
 	 * Evaluates the value of a solution by transforming it into a vector. This
 	 * is required to perform the matrix multiplication which defines a QBF.
@@ -108,19 +143,7 @@ public class QBF implements Evaluator<Integer> {
 	 */
 	public Double evaluateQBF() {
 
-		Double aux = (double) 0, sum = (double) 0;
-		Double vecAux[] = new Double[size];
-
-		for (int i = 0; i < size; i++) {
-			for (int j = 0; j < size; j++) {
-				aux += variables[j] * A[i][j];
-			}
-			vecAux[i] = aux;
-			sum += aux * variables[i];
-			aux = (double) 0;
-		}
-
-		return sum;
+		return A.evaluate(variables);
 
 	}
 
@@ -216,7 +239,7 @@ public class QBF implements Evaluator<Integer> {
 	 */
 	public Double evaluateExchangeQBF(int in, int out) {
 
-		Double sum = 0.0;
+		double sum = 0.0;
 
 		if (in == out)
 			return 0.0;
@@ -227,11 +250,229 @@ public class QBF implements Evaluator<Integer> {
 
 		sum += evaluateContributionQBF(in);
 		sum -= evaluateContributionQBF(out);
-		sum -= (A[in][out] + A[out][in]);
+		sum -= A.coupling(in, out);
 
 		return sum;
 	}
 
+	/**
+	 * {@inheritDoc} The variables are set once for the whole batch, which is
+	 * then split among threads if it is large enough.
+	 */
+	@Override
+	public void evaluateInsertionCosts(List<Integer> elems, Solution<Integer> sol, double[] deltas) {
+
+		setVariables(sol);
+		evaluateBatch(elems.size(), deltas, k -> evaluateInsertionQBF(elems.get(k)));
+
+	}
+
+	/**
+	 * {@inheritDoc} The variables are set once for the whole batch, which is
+	 * then split among threads if it is large enough.
+	 */
+	@Override
+	public void evaluateRemovalCosts(List<Integer> elems, Solution<Integer> sol, double[] deltas) {
+
+		setVariables(sol);
+		evaluateBatch(elems.size(), deltas, k -> evaluateRemovalQBF(elems.get(k)));
+
+	}
+
+	/**
+	 * {@inheritDoc} The variables are set once for the whole batch, which is
+	 * then split among threads if it is large enough.
+	 */
+	@Override
+	public void evaluateExchangeCosts(List<Integer> elemsIn, Integer elemOut, Solution<Integer> sol, double[] deltas) {
+
+		setVariables(sol);
+		int out = elemOut;
+		evaluateBatch(elemsIn.size(), deltas, k -> evaluateExchangeQBF(elemsIn.get(k), out));
+
+	}
+
+	/**
+	 * Evaluates a batch of moves against the current variables, which are
+	 * only read, so that the batch is split among the threads of the common
+	 * pool when it visits at least {@link #PARALLEL_WORK} coefficients.
+	 * 
+	 * @param count
+	 *            Number of moves.
+	 * @param deltas
+	 *            Receives the variation of each move.
+	 * @param delta
+	 *            Variation of the k-th move.
+	 */
+	private void evaluateBatch(int count, double[] deltas, IntToDoubleFunction delta) {
+
+		if ((long) count * size >= PARALLEL_WORK) {
+			IntStream.range(0, count).parallel().forEach(k -> deltas[k] = delta.applyAsDouble(k));
+		} else {
+			for (int k = 0; k < count; k++) deltas[k] = delta.applyAsDouble(k);
+		}
+
+	}
+
+	/**
+	 * Tells whether the coefficients of A are integers, in which case the
+	 * {@code long} counterparts of the evaluations may be used. They are
+	 * exact, so a move improves the solution if and only if its variation is
+	 * negative, with no tolerance.
+	 * 
+	 * @return true if the {@code long} evaluations are available.
+	 */
+	public boolean isExact() {
+		return A.isIntegral();
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluate(Solution)}, for integer
+	 * coefficients. The value is also stored as the solution cost.
+	 * 
+	 * @param sol
+	 *            the solution which will be evaluated.
+	 * @return The evaluation of the QBF.
+	 */
+	public long evaluateLong(Solution<Integer> sol) {
+
+		setVariables(sol);
+		long value = evaluateQBFLong();
+		sol.cost = (double) value;
+		return value;
+
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateQBF()}.
+	 * 
+	 * @return The value of the QBF.
+	 */
+	public long evaluateQBFLong() {
+
+		return A.evaluateLong(variables);
+
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateInsertionCost(Integer, Solution)}.
+	 */
+	public long evaluateInsertionCostLong(Integer elem, Solution<Integer> sol) {
+
+		setVariables(sol);
+		return evaluateInsertionQBFLong(elem);
+
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateInsertionQBF(int)}.
+	 */
+	public long evaluateInsertionQBFLong(int i) {
+
+		if (variables[i] == 1)
+			return 0L;
+
+		return A.contributionLong(i, variables);
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateRemovalCost(Integer, Solution)}.
+	 */
+	public long evaluateRemovalCostLong(Integer elem, Solution<Integer> sol) {
+
+		setVariables(sol);
+		return evaluateRemovalQBFLong(elem);
+
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateRemovalQBF(int)}.
+	 */
+	public long evaluateRemovalQBFLong(int i) {
+
+		if (variables[i] == 0)
+			return 0L;
+
+		return -A.contributionLong(i, variables);
+	}
+
+	/**
+	 * Exact counterpart of
+	 * {@link #evaluateExchangeCost(Integer, Integer, Solution)}.
+	 */
+	public long evaluateExchangeCostLong(Integer elemIn, Integer elemOut, Solution<Integer> sol) {
+
+		setVariables(sol);
+		return evaluateExchangeQBFLong(elemIn, elemOut);
+
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateExchangeQBF(int, int)}.
+	 */
+	public long evaluateExchangeQBFLong(int in, int out) {
+
+		if (in == out)
+			return 0L;
+
+		long sum = 0L;
+		if (variables[in] == 0)
+			sum += A.contributionLong(in, variables);
+		if (variables[out] == 1)
+			sum -= A.contributionLong(out, variables);
+		if (variables[in] == 0 && variables[out] == 1)
+			sum -= A.couplingLong(in, out);
+
+		return sum;
+	}
+
+	/**
+	 * Exact counterpart of
+	 * {@link #evaluateInsertionCosts(List, Solution, double[])}.
+	 */
+	public void evaluateInsertionCosts(List<Integer> elems, Solution<Integer> sol, long[] deltas) {
+
+		setVariables(sol);
+		evaluateBatch(elems.size(), deltas, k -> evaluateInsertionQBFLong(elems.get(k)));
+
+	}
+
+	/**
+	 * Exact counterpart of
+	 * {@link #evaluateRemovalCosts(List, Solution, double[])}.
+	 */
+	public void evaluateRemovalCosts(List<Integer> elems, Solution<Integer> sol, long[] deltas) {
+
+		setVariables(sol);
+		evaluateBatch(elems.size(), deltas, k -> evaluateRemovalQBFLong(elems.get(k)));
+
+	}
+
+	/**
+	 * Exact counterpart of
+	 * {@link #evaluateExchangeCosts(List, Integer, Solution, double[])}.
+	 */
+	public void evaluateExchangeCosts(List<Integer> elemsIn, Integer elemOut, Solution<Integer> sol, long[] deltas) {
+
+		setVariables(sol);
+		int out = elemOut;
+		evaluateBatch(elemsIn.size(), deltas, k -> evaluateExchangeQBFLong(elemsIn.get(k), out));
+
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateBatch(int, double[], IntToDoubleFunction)}.
+	 */
+	private void evaluateBatch(int count, long[] deltas, IntToLongFunction delta) {
+
+		if ((long) count * size >= PARALLEL_WORK) {
+			IntStream.range(0, count).parallel().forEach(k -> deltas[k] = delta.applyAsLong(k));
+		} else {
+			for (int k = 0; k < count; k++) deltas[k] = delta.applyAsLong(k);
+		}
+
+	}
+
 	/**
 	 * Determines the contribution to the QBF objective function from the
 	 * insertion of an element. This method is faster than evaluating the whole
@@ -246,51 +487,249 @@ public class QBF implements Evaluator<Integer> {
 	 * @return the variation of the objective function resulting from the
 	 *         insertion.
 	 */
-	private Double evaluateContributionQBF(int i) {
+	private double evaluateContributionQBF(int i) {
 
-		Double sum = 0.0;
+		return A.contribution(i, variables);
 
-		for (int j = 0; j < size; j++) {
-			if (i != j)
-				sum += variables[j] * (A[i][j] + A[j][i]);
-		}
-		sum += A[i][i];
+	}
 
-		return sum;
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.IntEvaluator#domainSize()
+	 */
+	@Override
+	public int domainSize() {
+		return size;
 	}
 
 	/**
-	 * Responsible for setting the QBF function parameters by reading the
-	 * necessary input from an external file. This method reads the domain's
-	 * dimension and matrix {@link #A}.
+	 * {@inheritDoc} The primitive evaluation only visits the pairs of elements
+	 * in the solution, instead of the whole matrix A.
 	 * 
-	 * @param filename
-	 *            Name of the file containing the input for setting the black
-	 *            box function.
-	 * @return The dimension of the domain.
-	 * @throws IOException
-	 *             Necessary for I/O operations.
+	 * @return The evaluation of the QBF.
 	 */
-	protected Integer readInput(String filename) throws IOException {
+	@Override
+	public double evaluate(IntSolution sol) {
+		return sol.cost = evaluateQBF(sol);
+	}
 
-		Reader fileInst = new BufferedReader(new FileReader(filename));
-		StreamTokenizer stok = new StreamTokenizer(fileInst);
+	/**
+	 * Evaluates a QBF by summing the coefficients of every pair of elements
+	 * in the solution.
+	 * 
+	 * @param sol
+	 *            the solution which will be evaluated.
+	 * @return The value of the QBF.
+	 */
+	public double evaluateQBF(IntSolution sol) {
 
-		stok.nextToken();
-		Integer _size = (int) stok.nval;
-		A = new Double[_size][_size];
+		return A.evaluate(sol);
 
-		for (int i = 0; i < _size; i++) {
-			for (int j = i; j < _size; j++) {
-				stok.nextToken();
-				A[i][j] = stok.nval;
-				if (j>i)
-					A[j][i] = 0.0;
-			}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.IntEvaluator#evaluateInsertionCost(int,
+	 * solutions.IntSolution)
+	 */
+	@Override
+	public double evaluateInsertionCost(int elem, IntSolution sol) {
+		return evaluateInsertionQBF(elem, sol);
+	}
+
+	/**
+	 * Determines the contribution to the QBF objective function from the
+	 * insertion of an element into a primitive solution.
+	 * 
+	 * @param i
+	 *            Index of the element being inserted into the solution.
+	 * @param sol
+	 *            The solution the element is inserted into.
+	 * @return The variation of the objective function resulting from the
+	 *         insertion.
+	 */
+	public double evaluateInsertionQBF(int i, IntSolution sol) {
+
+		if (sol.contains(i))
+			return 0.0;
+
+		return evaluateContributionQBF(i, sol);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.IntEvaluator#evaluateRemovalCost(int,
+	 * solutions.IntSolution)
+	 */
+	@Override
+	public double evaluateRemovalCost(int elem, IntSolution sol) {
+		return evaluateRemovalQBF(elem, sol);
+	}
+
+	/**
+	 * Determines the contribution to the QBF objective function from the
+	 * removal of an element of a primitive solution.
+	 * 
+	 * @param i
+	 *            Index of the element being removed from the solution.
+	 * @param sol
+	 *            The solution the element is removed from.
+	 * @return The variation of the objective function resulting from the
+	 *         removal.
+	 */
+	public double evaluateRemovalQBF(int i, IntSolution sol) {
+
+		if (!sol.contains(i))
+			return 0.0;
+
+		return -evaluateContributionQBF(i, sol);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.IntEvaluator#evaluateExchangeCost(int, int,
+	 * solutions.IntSolution)
+	 */
+	@Override
+	public double evaluateExchangeCost(int elemIn, int elemOut, IntSolution sol) {
+		return evaluateExchangeQBF(elemIn, elemOut, sol);
+	}
+
+	/**
+	 * Determines the contribution to the QBF objective function from the
+	 * exchange of two elements of a primitive solution, one belonging to the
+	 * solution and the other not.
+	 * 
+	 * @param in
+	 *            The index of the element that is considered entering the
+	 *            solution.
+	 * @param out
+	 *            The index of the element that is considered exiting the
+	 *            solution.
+	 * @param sol
+	 *            The solution the elements are exchanged in.
+	 * @return The variation of the objective function resulting from the
+	 *         exchange.
+	 */
+	public double evaluateExchangeQBF(int in, int out, IntSolution sol) {
+
+		if (in == out)
+			return 0.0;
+		if (sol.contains(in))
+			return sol.contains(out) ? -evaluateContributionQBF(out, sol) : 0.0;
+		if (!sol.contains(out))
+			return evaluateContributionQBF(in, sol);
+
+		return evaluateContributionQBF(in, sol) - evaluateContributionQBF(out, sol)
+			- A.coupling(in, out);
+	}
+
+	/**
+	 * Determines the contribution of an element to the QBF objective function
+	 * given the elements of a primitive solution, disregarding whether the
+	 * element itself is in the solution. Only the couplings with the elements
+	 * in the solution are visited.
+	 * 
+	 * @param i
+	 *            index of the element under consideration.
+	 * @param sol
+	 *            the solution the contribution is computed against.
+	 * @return the contribution of the element.
+	 */
+	private double evaluateContributionQBF(int i, IntSolution sol) {
+
+		return A.contribution(i, sol);
+
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateQBF(IntSolution)}, for integer
+	 * coefficients.
+	 * 
+	 * @param sol
+	 *            the solution which will be evaluated.
+	 * @return The value of the QBF.
+	 */
+	public long evaluateQBFLong(IntSolution sol) {
+
+		return A.evaluateLong(sol);
+
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateInsertionQBF(int, IntSolution)}.
+	 */
+	public long evaluateInsertionQBFLong(int i, IntSolution sol) {
+
+		if (sol.contains(i))
+			return 0L;
+
+		return A.contributionLong(i, sol);
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateRemovalQBF(int, IntSolution)}.
+	 */
+	public long evaluateRemovalQBFLong(int i, IntSolution sol) {
+
+		if (!sol.contains(i))
+			return 0L;
+
+		return -A.contributionLong(i, sol);
+	}
+
+	/**
+	 * Exact counterpart of {@link #evaluateExchangeQBF(int, int, IntSolution)}.
+	 */
+	public long evaluateExchangeQBFLong(int in, int out, IntSolution sol) {
+
+		if (in == out)
+			return 0L;
+
+		boolean setIn = sol.contains(in), setOut = sol.contains(out);
+		long sum = 0L;
+		if (!setIn)
+			sum += A.contributionLong(in, sol);
+		if (setOut)
+			sum -= A.contributionLong(out, sol);
+		if (!setIn && setOut)
+			sum -= A.couplingLong(in, out);
+
+		return sum;
+	}
+
+	/**
+	 * Exact counterpart of
+	 * {@link #evaluateInsertionCosts(int[], int, IntSolution, double[])}.
+	 */
+	public void evaluateInsertionCosts(int[] elems, int count, IntSolution sol, long[] deltas) {
+		for (int k = 0; k < count; k++) {
+			deltas[k] = evaluateInsertionQBFLong(elems[k], sol);
 		}
+	}
 
-		return _size;
+	/**
+	 * Exact counterpart of
+	 * {@link #evaluateRemovalCosts(int[], int, IntSolution, double[])}.
+	 */
+	public void evaluateRemovalCosts(int[] elems, int count, IntSolution sol, long[] deltas) {
+		for (int k = 0; k < count; k++) {
+			deltas[k] = evaluateRemovalQBFLong(elems[k], sol);
+		}
+	}
 
+	/**
+	 * Exact counterpart of
+	 * {@link #evaluateExchangeCosts(int[], int, int, IntSolution, double[])}.
+	 */
+	public void evaluateExchangeCosts(int[] elemsIn, int count, int elemOut, IntSolution sol, long[] deltas) {
+		for (int k = 0; k < count; k++) {
+			deltas[k] = evaluateExchangeQBFLong(elemsIn[k], elemOut, sol);
+		}
 	}
 
 	/**
@@ -299,8 +738,8 @@ public class QBF implements Evaluator<Integer> {
 	 * 
 	 * @return a pointer to the array of domain variables.
 	 */
-	protected Double[] allocateVariables() {
-		Double[] _variables = new Double[size];
+	protected double[] allocateVariables() {
+		double[] _variables = new double[size];
 		return _variables;
 	}
 
@@ -318,7 +757,7 @@ public class QBF implements Evaluator<Integer> {
 
 		for (int i = 0; i < size; i++) {
 			for (int j = i; j < size; j++) {
-				System.out.print(A[i][j] + " ");
+				System.out.print(A.get(i, j) + " ");
 			}
 			System.out.println();
 		}
@@ -0,0 +1,62 @@
+package problems.qbf;
+
+/**
+ * Immutable data of a QBF instance, i.e., its dimension and matrix of
+ * coefficients. An instance can be shared by any number of {@link QBF}
+ * objective functions, each one with its own mutable variables, so that
+ * concurrent solvers on the same instance keep a single copy of the
+ * coefficients. Instances are usually obtained through the
+ * {@link InstanceRegistry}.
+ * 
+ * @author aserpa, einnarelli
+ */
+public final class QBFInstance {
+
+    /**
+     * Dimension of the domain.
+     */
+    private final int size;
+
+    /**
+     * The upper triangular matrix A of coefficients, which is immutable.
+     */
+    private final CoefficientMatrix A;
+
+    /**
+     * Constructor for the QBFInstance class.
+     * 
+     * @param A
+     *      The matrix of coefficients.
+     */
+    public QBFInstance(CoefficientMatrix A) {
+        this.size = A.size();
+        this.A = A;
+    }
+
+    /**
+     * Size getter.
+     * 
+     * @return The dimension of the domain.
+     */
+    public int getSize() { return size; };
+
+    /**
+     * Coefficient getter.
+     * 
+     * @param i
+     *      Row of the coefficient.
+     * @param j
+     *      Column of the coefficient.
+     * 
+     * @return The coefficient a_ij.
+     */
+    public double get(int i, int j) { return A.get(i, j); };
+
+    /**
+     * Matrix getter.
+     * 
+     * @return The matrix of coefficients.
+     */
+    public CoefficientMatrix getMatrix() { return A; };
+
+}
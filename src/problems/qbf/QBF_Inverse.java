@@ -2,6 +2,8 @@ package problems.qbf;
 
 import java.io.IOException;
 
+import solutions.IntSolution;
+
 /**
  * Class representing the inverse of the Quadractic Binary Function
  * ({@link QBF}), which is used since the GRASP is set by
@@ -24,6 +26,16 @@ public class QBF_Inverse extends QBF {
 		super(filename);
 	}
 
+	/**
+	 * Constructor for the QBF_Inverse class from an already loaded instance.
+	 * 
+	 * @param instance
+	 *            The instance for setting the objective function.
+	 */
+	public QBF_Inverse(QBFInstance instance) {
+		super(instance);
+	}
+
 
 	/* (non-Javadoc)
 	 * @see problems.qbf.QBF#evaluate()
@@ -57,4 +69,100 @@ public class QBF_Inverse extends QBF {
 		return -super.evaluateExchangeQBF(in, out);
 	}
 
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateQBF(IntSolution)
+	 */
+	@Override
+	public double evaluateQBF(IntSolution sol) {
+		return -super.evaluateQBF(sol);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateInsertionQBF(int, IntSolution)
+	 */
+	@Override
+	public double evaluateInsertionQBF(int i, IntSolution sol) {
+		return -super.evaluateInsertionQBF(i, sol);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateRemovalQBF(int, IntSolution)
+	 */
+	@Override
+	public double evaluateRemovalQBF(int i, IntSolution sol) {
+		return -super.evaluateRemovalQBF(i, sol);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateExchangeQBF(int, int, IntSolution)
+	 */
+	@Override
+	public double evaluateExchangeQBF(int in, int out, IntSolution sol) {
+		return -super.evaluateExchangeQBF(in, out, sol);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateQBFLong()
+	 */
+	@Override
+	public long evaluateQBFLong() {
+		return -super.evaluateQBFLong();
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateInsertionQBFLong(int)
+	 */
+	@Override
+	public long evaluateInsertionQBFLong(int i) {
+		return -super.evaluateInsertionQBFLong(i);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateRemovalQBFLong(int)
+	 */
+	@Override
+	public long evaluateRemovalQBFLong(int i) {
+		return -super.evaluateRemovalQBFLong(i);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateExchangeQBFLong(int, int)
+	 */
+	@Override
+	public long evaluateExchangeQBFLong(int in, int out) {
+		return -super.evaluateExchangeQBFLong(in, out);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateQBFLong(IntSolution)
+	 */
+	@Override
+	public long evaluateQBFLong(IntSolution sol) {
+		return -super.evaluateQBFLong(sol);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateInsertionQBFLong(int, IntSolution)
+	 */
+	@Override
+	public long evaluateInsertionQBFLong(int i, IntSolution sol) {
+		return -super.evaluateInsertionQBFLong(i, sol);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateRemovalQBFLong(int, IntSolution)
+	 */
+	@Override
+	public long evaluateRemovalQBFLong(int i, IntSolution sol) {
+		return -super.evaluateRemovalQBFLong(i, sol);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateExchangeQBFLong(int, int, IntSolution)
+	 */
+	@Override
+	public long evaluateExchangeQBFLong(int in, int out, IntSolution sol) {
+		return -super.evaluateExchangeQBFLong(in, out, sol);
+	}
+
 }
@@ -0,0 +1,341 @@
+package problems.qbf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import problems.Evaluator;
+import solutions.Solution;
+
+/**
+ * Preprocessing of a QBF that fixes the variables whose value in some
+ * optimal solution (of the maximization) follows from bounds on their rows,
+ * and builds the reduced problem on the other variables. The contribution
+ * of a variable i set to 1 is a_ii plus its couplings with the other
+ * variables set to 1, so it lies within
+ * <ul>
+ * <li>lo_i = a_ii + sum of the negative couplings with the free variables,
+ * plus the couplings with the variables fixed to 1;</li>
+ * <li>hi_i = a_ii + sum of the positive couplings with the free variables,
+ * plus the couplings with the variables fixed to 1.</li>
+ * </ul>
+ * If hi_i <= 0, removing i never makes a solution worse, so i is fixed to
+ * 0; if lo_i >= 0, inserting i never does, so i is fixed to 1. Each fixing
+ * updates the bounds of the other variables in O(n), and the rules are
+ * applied until no variable is fixed.
+ *
+ * Prohibited triples, if any, are taken into account: a variable is only
+ * fixed to 1 if each of its triples has a variable fixed to 0, since
+ * inserting it could otherwise break a triple; and, since the other
+ * members of a live triple of i cannot all be set together with i, hi_i is
+ * tightened by the smallest positive coupling of i with them, over triples
+ * with disjoint members. Fixing a variable to 0 kills its triples, which
+ * may allow others to be fixed to 1. The live triples are kept in the
+ * reduced problem.
+ *
+ * @author aserpa, einnarelli
+ */
+public final class VariableFixing {
+
+    /**
+     * The matrix of coefficients of the original problem.
+     */
+    private final CoefficientMatrix A;
+
+    /**
+     * Value each variable is fixed to, or -1 if it is free.
+     */
+    private final int[] value;
+
+    /**
+     * Bounds of the contribution of each variable.
+     */
+    private final double[] lo, hi;
+
+    /**
+     * Members of the prohibited triples, within [0, n-1], and the triples
+     * of each variable.
+     */
+    private final int[][] triples, triplesOf;
+
+    /**
+     * Number of members of each triple fixed to 0.
+     */
+    private final int[] zeros;
+
+    /**
+     * Marks of the variables counted in the tightening of a bound.
+     */
+    private final int[] mark;
+    private int stamp;
+
+    /**
+     * Original index of each variable of the reduced problem.
+     */
+    private final int[] free;
+
+    /**
+     * Matrix of coefficients of the reduced problem.
+     */
+    private final CoefficientMatrix reduced;
+
+    /**
+     * Live triples, on the variables of the reduced problem.
+     */
+    private final int[][] reducedTriples;
+
+    /**
+     * Value of the QBF on the variables fixed to 1, added to that of the
+     * reduced problem.
+     */
+    private final double offset;
+
+    /**
+     * Number of passes over the variables.
+     */
+    private int passes;
+
+    /**
+     * Constructor for the VariableFixing class, which fixes the variables
+     * and builds the reduced problem.
+     *
+     * @param A
+     *      The matrix of coefficients.
+     * @param triples
+     *      Distinct members of each prohibited triple, within [0, n-1], or
+     *      null if there are none.
+     */
+    public VariableFixing(CoefficientMatrix A, int[][] triples) {
+
+        this.A = A;
+        int n = A.size();
+        this.value = new int[n];
+        this.lo = new double[n];
+        this.hi = new double[n];
+        this.triples = triples == null ? new int[0][] : triples;
+        this.zeros = new int[this.triples.length];
+        this.mark = new int[n];
+        Arrays.fill(value, -1);
+
+        // Triples of each variable.
+        int[] degree = new int[n];
+        for (int[] t : this.triples) for (int m : t) degree[m]++;
+        triplesOf = new int[n][];
+        for (int i = 0; i < n; i++) triplesOf[i] = new int[degree[i]];
+        for (int t = 0; t < this.triples.length; t++) {
+            for (int m : this.triples[t]) triplesOf[m][--degree[m]] = t;
+        }
+
+        // Initial bounds, in O(n^2).
+        for (int i = 0; i < n; i++) {
+            lo[i] += A.get(i, i);
+            hi[i] += A.get(i, i);
+            for (int j = i + 1; j < n; j++) {
+                double c = A.get(i, j);
+                if (c > 0) {
+                    hi[i] += c;
+                    hi[j] += c;
+                } else {
+                    lo[i] += c;
+                    lo[j] += c;
+                }
+            }
+        }
+
+        // Apply the rules until no variable is fixed.
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            passes++;
+            for (int i = 0; i < n; i++) {
+                if (value[i] >= 0) continue;
+                if (hi[i] - tightening(i) <= 0.0) {
+                    fix(i, 0);
+                    changed = true;
+                } else if (lo[i] >= 0.0 && !live(i)) {
+                    fix(i, 1);
+                    changed = true;
+                }
+            }
+        }
+
+        // Reduced problem on the free variables.
+        int[] position = new int[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) position[i] = value[i] < 0 ? m++ : -1;
+        free = new int[m];
+        for (int i = 0; i < n; i++) {
+            if (position[i] >= 0) free[position[i]] = i;
+        }
+
+        CoefficientMatrix.Builder builder = new CoefficientMatrix.Builder(m);
+        double[] row = new double[m];
+        for (int p = 0; p < m; p++) {
+            int i = free[p];
+            row[0] = A.get(i, i);
+            for (int j = 0; j < n; j++) {
+                if (value[j] == 1) row[0] += A.coupling(i, j);
+            }
+            for (int q = p + 1; q < m; q++) row[q - p] = A.get(i, free[q]);
+            builder.setRow(p, row);
+        }
+        reduced = builder.build();
+
+        List<int[]> live = new ArrayList<int[]>();
+        for (int t = 0; t < this.triples.length; t++) {
+            if (zeros[t] > 0) continue;
+            // Members fixed to 1 are always set, so they are dropped.
+            int[] members = Arrays.stream(this.triples[t]).filter(i -> value[i] < 0).map(i -> position[i]).toArray();
+            live.add(members);
+        }
+        reducedTriples = live.toArray(new int[live.size()][]);
+
+        double value1 = 0.0;
+        for (int i = 0; i < n; i++) {
+            if (value[i] != 1) continue;
+            value1 += A.get(i, i);
+            for (int j = i + 1; j < n; j++) {
+                if (value[j] == 1) value1 += A.get(i, j);
+            }
+        }
+        offset = value1;
+
+    }
+
+    /**
+     * Fixes a variable, updating the bounds of the free ones and the
+     * triples.
+     */
+    private void fix(int j, int v) {
+
+        value[j] = v;
+        for (int i = 0; i < value.length; i++) {
+            if (i == j || value[i] >= 0) continue;
+            double c = A.coupling(i, j);
+            if (v == 0) {
+                // The coupling is no longer possible.
+                if (c > 0) hi[i] -= c;
+                else lo[i] -= c;
+            } else {
+                // The coupling is now certain.
+                if (c > 0) lo[i] += c;
+                else hi[i] += c;
+            }
+        }
+
+        if (v == 0) {
+            for (int t : triplesOf[j]) zeros[t]++;
+        }
+
+    }
+
+    /**
+     * Tells whether a variable belongs to a live triple, i.e., one without
+     * a member fixed to 0.
+     */
+    private boolean live(int i) {
+        for (int t : triplesOf[i]) {
+            if (zeros[t] == 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Amount by which the live triples of a free variable tighten its upper
+     * bound: if the variable is set, the other members of each triple
+     * cannot all be set, so the smallest of their positive couplings with
+     * it is lost. Triples sharing a member with one already counted are
+     * skipped, so that no coupling is lost twice.
+     *
+     * @return The tightening, or infinity if a triple cannot be broken but
+     *      by the variable itself.
+     */
+    private double tightening(int i) {
+
+        if (triplesOf[i].length == 0) return 0.0;
+
+        stamp++;
+        double total = 0.0;
+        for (int t : triplesOf[i]) {
+
+            if (zeros[t] > 0) continue;
+
+            double smallest = Double.POSITIVE_INFINITY;
+            boolean counted = false;
+            for (int m : triples[t]) {
+                if (m == i || value[m] == 1) continue;
+                if (mark[m] == stamp) counted = true;
+                smallest = Math.min(smallest, Math.max(0.0, A.coupling(i, m)));
+            }
+            if (smallest == Double.POSITIVE_INFINITY) return smallest;
+            if (counted) continue;
+
+            for (int m : triples[t]) mark[m] = stamp;
+            total += smallest;
+
+        }
+
+        return total;
+
+    }
+
+    /**
+     * Maps a solution of the reduced problem back to the original one.
+     *
+     * @param sol
+     *      A solution of the reduced problem.
+     * @param objFunction
+     *      The objective function of the original problem, which evaluates
+     *      the solution.
+     *
+     * @return The solution of the original problem, evaluated.
+     */
+    public Solution<Integer> expand(Solution<Integer> sol, Evaluator<Integer> objFunction) {
+
+        Solution<Integer> original = new Solution<Integer>();
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] == 1) original.add(i);
+        }
+        for (Integer p : sol) original.add(free[p]);
+
+        objFunction.evaluate(original);
+        return original;
+
+    }
+
+    /**
+     * @return The matrix of coefficients of the reduced problem.
+     */
+    public CoefficientMatrix getReducedMatrix() { return reduced; };
+
+    /**
+     * @return The distinct members of the live triples, on the variables of
+     *      the reduced problem.
+     */
+    public int[][] getReducedTriples() { return reducedTriples; };
+
+    /**
+     * @return The original index of each variable of the reduced problem.
+     */
+    public int[] getFree() { return free.clone(); };
+
+    /**
+     * @param i
+     *      A variable of the original problem.
+     *
+     * @return The value it is fixed to, or -1 if it is free.
+     */
+    public int getValue(int i) { return value[i]; };
+
+    /**
+     * @return The value of the QBF on the variables fixed to 1, which is
+     *      added to that of the reduced problem.
+     */
+    public double getOffset() { return offset; };
+
+    /**
+     * @return The number of passes of the rules over the variables.
+     */
+    public int getPasses() { return passes; };
+
+}
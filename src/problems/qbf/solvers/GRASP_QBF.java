@@ -2,9 +2,11 @@ package problems.qbf.solvers;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 import metaheuristics.grasp.AbstractGRASP;
 import metaheuristics.grasp.bias.RCMap;
+import metaheuristics.grasp.progress.ConsoleListener;
 import problems.qbf.QBF_Inverse;
 import solutions.Solution;
 
@@ -18,6 +20,18 @@ import solutions.Solution;
  */
 public class GRASP_QBF extends AbstractGRASP<Integer> {
 
+	/**
+	 * The objective function, whose exact evaluations are used by the local
+	 * search when its coefficients are integers.
+	 */
+	protected final QBF_Inverse qbf;
+
+	/**
+	 * Variations of the moves of the local search, in double precision or
+	 * exact.
+	 */
+	private final MoveDeltas doubleDeltas = new DoubleDeltas(), exactDeltas = new ExactDeltas();
+
 	/**
 	 * Constructor for the non-reactive GRASP_QBF. An inverse QBF objective 
 	 * function is passed as argument for the superclass constructor.
@@ -34,7 +48,24 @@ public class GRASP_QBF extends AbstractGRASP<Integer> {
 	 *            necessary for I/O operations.
 	 */
 	public GRASP_QBF(Double alpha, Integer iterations, String filename) throws IOException {
-		super(new QBF_Inverse(filename), iterations, alpha);
+		this(alpha, iterations, new QBF_Inverse(filename));
+	}
+
+	/**
+	 * Constructor for the non-reactive GRASP_QBF from an objective function,
+	 * which may share its instance with other solvers.
+	 * 
+	 * @param alpha
+	 *            The GRASP greediness-randomness parameter (within the range
+	 *            [0,1]).
+	 * @param iterations
+	 *            The number of iterations which the GRASP will be executed.
+	 * @param objFunction
+	 *            The inverse QBF objective function, owned by this solver.
+	 */
+	public GRASP_QBF(Double alpha, Integer iterations, QBF_Inverse objFunction) {
+		super(objFunction, iterations, alpha);
+		qbf = objFunction;
 	}
 
 	/**
@@ -52,7 +83,23 @@ public class GRASP_QBF extends AbstractGRASP<Integer> {
 	 *            necessary for I/O operations.
 	 */
 	public GRASP_QBF(Integer numAlphas, Integer iterations, String filename) throws IOException {
-		super(new QBF_Inverse(filename), iterations, numAlphas);
+		this(numAlphas, iterations, new QBF_Inverse(filename));
+	}
+
+	/**
+	 * Constructor for the reactive GRASP_QBF from an objective function,
+	 * which may share its instance with other solvers.
+	 * 
+	 * @param numAlphas
+	 *            Number of possible alphas.
+	 * @param iterations
+	 *            The number of iterations which the GRASP will be executed.
+	 * @param objFunction
+	 *            The inverse QBF objective function, owned by this solver.
+	 */
+	public GRASP_QBF(Integer numAlphas, Integer iterations, QBF_Inverse objFunction) {
+		super(objFunction, iterations, numAlphas);
+		qbf = objFunction;
 	}
 
 
@@ -108,6 +155,29 @@ public class GRASP_QBF extends AbstractGRASP<Integer> {
 
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * A QBF solution is feasible as long as its elements are distinct
+	 * variables, so invalid and repeated elements are dropped.
+	 */
+	@Override
+	public Solution<Integer> repair(Solution<Integer> sol) {
+
+		int n = ObjFunction.getDomainSize();
+		boolean[] seen = new boolean[n];
+		Solution<Integer> _sol = createEmptySol();
+		for (Integer e : sol) {
+			if (e != null && e >= 0 && e < n && !seen[e]) {
+				seen[e] = true;
+				_sol.add(e);
+			}
+		}
+
+		return _sol;
+
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -122,76 +192,238 @@ public class GRASP_QBF extends AbstractGRASP<Integer> {
 		return sol;
 	}
 
+	/**
+	 * Tells whether an element off the solution can replace one of its
+	 * elements. For the QBF every element off the solution can, which the
+	 * problems with side constraints override.
+	 * 
+	 * @param candIn
+	 *            Element entering the solution.
+	 * @param candOut
+	 *            Element leaving the solution.
+	 * @return true if the exchange leads to a feasible solution.
+	 */
+	protected boolean canExchange(Integer candIn, Integer candOut) {
+		return true;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
 	 * The local search operator developed for the QBF objective function is
 	 * composed by the neighborhood moves Insertion, Removal and 2-Exchange.
+	 * Insertions are taken from the CL, whereas any element off the solution
+	 * may enter through an exchange, as long as {@link #canExchange} holds.
+	 * If the coefficients are integers, the moves are evaluated exactly, see
+	 * {@link ExactDeltas}.
 	 */
 	@Override
 	public Solution<Integer> localSearch() {
 
-		Double minDeltaCost;
+		MoveDeltas deltas = qbf.isExact() ? exactDeltas : doubleDeltas;
 		Integer bestCandIn = null, bestCandOut = null;
+		int n = ObjFunction.getDomainSize();
+		boolean[] inSol = new boolean[n];
+		for (Integer e : currentSol) inSol[e] = true;
+		ArrayList<Integer> candsIn = new ArrayList<Integer>(n);
+		deltas.start(n);
 
 		do {
-			minDeltaCost = Double.POSITIVE_INFINITY;
+			deltas.reset();
 			updateCL();
-				
+
 			// Evaluate insertions
-			for (Integer candIn : CL) {
-				double deltaCost = ObjFunction.evaluateInsertionCost(candIn, currentSol);
-				if (deltaCost < minDeltaCost) {
-					minDeltaCost = deltaCost;
-					bestCandIn = candIn;
+			deltas.insertions(CL);
+			for (int k = 0; k < CL.size(); k++) {
+				if (deltas.offer(k)) {
+					bestCandIn = CL.get(k);
 					bestCandOut = null;
 				}
 			}
 			// Evaluate removals
-			for (Integer candOut : currentSol) {
-				double deltaCost = ObjFunction.evaluateRemovalCost(candOut, currentSol);
-				if (deltaCost < minDeltaCost) {
-					minDeltaCost = deltaCost;
+			deltas.removals();
+			for (int k = 0; k < currentSol.size(); k++) {
+				if (deltas.offer(k)) {
 					bestCandIn = null;
-					bestCandOut = candOut;
+					bestCandOut = currentSol.get(k);
 				}
 			}
 			// Evaluate exchanges
-			for (Integer candIn : CL) {
-				for (Integer candOut : currentSol) {
-					double deltaCost = ObjFunction.evaluateExchangeCost(candIn, candOut, currentSol);
-					if (deltaCost < minDeltaCost) {
-						minDeltaCost = deltaCost;
-						bestCandIn = candIn;
+			for (Integer candOut : currentSol) {
+				exchangeCandidates(candOut, inSol, candsIn);
+				deltas.exchanges(candsIn, candOut);
+				for (int k = 0; k < candsIn.size(); k++) {
+					if (deltas.offer(k)) {
+						bestCandIn = candsIn.get(k);
 						bestCandOut = candOut;
 					}
 				}
 			}
 			// Implement the best move, if it reduces the solution cost.
-			if (minDeltaCost < -Double.MIN_VALUE) {
-				if (bestCandOut != null) {
-					currentSol.remove(bestCandOut);
-					CL.add(bestCandOut);
-				}
-				if (bestCandIn != null) {
-					currentSol.add(bestCandIn);
-					CL.remove(bestCandIn);
-				}
-				ObjFunction.evaluate(currentSol);
+			if (deltas.improves()) {
+				move(bestCandIn, bestCandOut, inSol);
+				deltas.apply();
 			}
-		} while (minDeltaCost < -Double.MIN_VALUE);
+		} while (deltas.improves());
 
 		return null;
 	}
 
+	/**
+	 * Variations of the batches of moves of the local search, which are
+	 * evaluated into a buffer, and the update of the solution cost by the
+	 * best move of each step.
+	 */
+	private interface MoveDeltas {
+
+		/**
+		 * Starts a local search from the current solution.
+		 */
+		void start(int n);
+
+		/**
+		 * Starts a step, forgetting the best move of the last one.
+		 */
+		void reset();
+
+		void insertions(List<Integer> elems);
+
+		void removals();
+
+		void exchanges(List<Integer> elemsIn, Integer elemOut);
+
+		/**
+		 * Keeps the k-th variation of the last batch if it is the smallest
+		 * of the step.
+		 * 
+		 * @return true if it is.
+		 */
+		boolean offer(int k);
+
+		/**
+		 * @return true if the best move of the step reduces the cost.
+		 */
+		boolean improves();
+
+		/**
+		 * Updates the cost of the current solution, once the best move of
+		 * the step is applied.
+		 */
+		void apply();
+
+	}
+
+	/**
+	 * Variations in double precision, where the solution is evaluated again
+	 * after each move.
+	 */
+	private final class DoubleDeltas implements MoveDeltas {
+
+		private double[] deltas;
+		private double minDeltaCost;
+
+		public void start(int n) { deltas = deltas(n); }
+		public void reset() { minDeltaCost = Double.POSITIVE_INFINITY; }
+
+		public void insertions(List<Integer> elems) {
+			ObjFunction.evaluateInsertionCosts(elems, currentSol, deltas);
+		}
+
+		public void removals() {
+			ObjFunction.evaluateRemovalCosts(currentSol, currentSol, deltas);
+		}
+
+		public void exchanges(List<Integer> elemsIn, Integer elemOut) {
+			ObjFunction.evaluateExchangeCosts(elemsIn, elemOut, currentSol, deltas);
+		}
+
+		public boolean offer(int k) {
+			if (deltas[k] >= minDeltaCost) return false;
+			minDeltaCost = deltas[k];
+			return true;
+		}
+
+		public boolean improves() { return minDeltaCost < 0; }
+		public void apply() { ObjFunction.evaluate(currentSol); }
+
+	}
+
+	/**
+	 * Exact {@code long} variations, for integer coefficients. A move thus
+	 * improves the solution if and only if its variation is negative, and
+	 * the cost is kept by adding the variation of each move instead of
+	 * evaluating the solution again.
+	 */
+	private final class ExactDeltas implements MoveDeltas {
+
+		private long[] deltas = new long[0];
+		private long minDeltaCost, cost;
+
+		public void start(int n) {
+			if (deltas.length < n) deltas = new long[n];
+			cost = qbf.evaluateLong(currentSol);
+		}
+
+		public void reset() { minDeltaCost = Long.MAX_VALUE; }
+
+		public void insertions(List<Integer> elems) {
+			qbf.evaluateInsertionCosts(elems, currentSol, deltas);
+		}
+
+		public void removals() {
+			qbf.evaluateRemovalCosts(currentSol, currentSol, deltas);
+		}
+
+		public void exchanges(List<Integer> elemsIn, Integer elemOut) {
+			qbf.evaluateExchangeCosts(elemsIn, elemOut, currentSol, deltas);
+		}
+
+		public boolean offer(int k) {
+			if (deltas[k] >= minDeltaCost) return false;
+			minDeltaCost = deltas[k];
+			return true;
+		}
+
+		public boolean improves() { return minDeltaCost < 0; }
+
+		public void apply() {
+			cost += minDeltaCost;
+			currentSol.cost = (double) cost;
+		}
+
+	}
+
+	/**
+	 * Lists the elements off the solution that can replace one of its
+	 * elements.
+	 */
+	private void exchangeCandidates(Integer candOut, boolean[] inSol, ArrayList<Integer> candsIn) {
+		candsIn.clear();
+		for (int e = 0; e < inSol.length; e++) {
+			if (!inSol[e] && canExchange(e, candOut)) candsIn.add(e);
+		}
+	}
+
+	/**
+	 * Applies a move of the local search, keeping the marks of the elements
+	 * in the solution.
+	 */
+	private void move(Integer candIn, Integer candOut, boolean[] inSol) {
+		if (candOut != null) inSol[candOut] = false;
+		if (candIn != null) inSol[candIn] = true;
+		applyMove(candIn, candOut);
+	}
+
 	/**
 	 * A main method used for testing the GRASP metaheuristic.
 	 */
-	public static void main(String[] args) throws IOException {
+	public static void main(String[] args) throws IOException, InterruptedException {
 
 		long startTime = System.currentTimeMillis();
 		GRASP_QBF grasp = new GRASP_QBF(0.2, 1000, "instances/qbf020");
+		grasp.addListener(new ConsoleListener<Integer>());
 		Solution<Integer> bestSol = grasp.solve();
+		grasp.closeProgress(1000);
 		System.out.println("maxVal = " + bestSol);
 		long endTime   = System.currentTimeMillis();
 		long totalTime = endTime - startTime;
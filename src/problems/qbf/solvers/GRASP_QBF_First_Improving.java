@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 
 import metaheuristics.grasp.AbstractGRASP;
+import metaheuristics.grasp.progress.ConsoleListener;
 import problems.qbf.QBF_Inverse;
 import solutions.Solution;
 
@@ -19,6 +20,12 @@ import solutions.Solution;
  */
 public class GRASP_QBF_First_Improving extends GRASP_QBF {
 
+	/**
+	 * Exact cost of the current solution during the local search, if the
+	 * coefficients are integers.
+	 */
+	private long exactCost;
+
 	/**
 	 * Constructor for the GRASP_QBF class. An inverse QBF objective function is
 	 * passed as argument for the superclass constructor.
@@ -38,6 +45,22 @@ public class GRASP_QBF_First_Improving extends GRASP_QBF {
 		super(alpha, iterations, filename);
 	}
 
+	/**
+	 * Constructor for the GRASP_QBF_First_Improving class from an objective
+	 * function, which may share its instance with other solvers.
+	 * 
+	 * @param alpha
+	 *            The GRASP greediness-randomness parameter (within the range
+	 *            [0,1])
+	 * @param iterations
+	 *            The number of iterations which the GRASP will be executed.
+	 * @param objFunction
+	 *            The inverse QBF objective function, owned by this solver.
+	 */
+	public GRASP_QBF_First_Improving(Double alpha, Integer iterations, QBF_Inverse objFunction) {
+		super(alpha, iterations, objFunction);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -100,77 +123,138 @@ public class GRASP_QBF_First_Improving extends GRASP_QBF {
 	 * {@inheritDoc}
 	 * 
 	 * The local search operator developed for the QBF objective function is
-	 * composed by the neighborhood moves Insertion, Removal and 2-Exchange.
+	 * composed by the neighborhood moves Insertion, Removal and 2-Exchange,
+	 * explored in first-improving fashion. Variables are scanned in a random
+	 * circular order: the first improving insertion or removal is applied at
+	 * once and the scan resumes from the next variable, until a whole cycle
+	 * brings no improvement. Then exchanges are scanned the same way, and the
+	 * first improving one sends the search back to insertions and removals.
+	 * It stops at a local optimum of the three neighborhoods. The variables of
+	 * the objective function are set once and kept in sync with the solution
+	 * move by move, so each probe only costs the contribution of the elements
+	 * moved.
 	 */
 	@Override
 	public Solution<Integer> localSearch() {
 
-		Double minDeltaCost;
-		Integer bestCandIn = null, bestCandOut = null;
+		int n = ObjFunction.getDomainSize();
+
+		// Random scan order of the variables.
+		int[] order = new int[n];
+		for (int k = 0; k < n; k++) {
+			int j = rng.nextInt(k + 1);
+			order[k] = order[j];
+			order[j] = k;
+		}
+
+		updateCL();
+		qbf.setVariables(currentSol);
+		double[] inSol = qbf.variables;
+		if (qbf.isExact()) exactCost = qbf.evaluateQBFLong();
+
+		int pos = 0, exPos = 0;
+		boolean improved;
 
 		do {
-			minDeltaCost = Double.POSITIVE_INFINITY;
-			updateCL();
-				
-			// Evaluate insertions
-			for (Integer candIn : CL) {
-				double deltaCost = ObjFunction.evaluateInsertionCost(candIn, currentSol);
-				if (deltaCost < minDeltaCost) {
-					minDeltaCost = deltaCost;
-					bestCandIn = candIn;
-					bestCandOut = null;
-				}
+
+			// Insertions and removals, until a cycle without improvement.
+			for (int idle = 0; idle < n; ) {
+				Integer e = order[pos];
+				pos = (pos + 1) % n;
+				boolean moved = false;
+				if (inSol[e] == 1) moved = tryMove(null, e);
+				else if (isCandidate(e)) moved = tryMove(e, null);
+				idle = moved ? 0 : idle + 1;
 			}
 
-			if (bestCandIn == null)
-				// Evaluate removals
-				for (Integer candOut : currentSol) {
-					double deltaCost = ObjFunction.evaluateRemovalCost(candOut, currentSol);
-					if (deltaCost < minDeltaCost) {
-						minDeltaCost = deltaCost;
-						bestCandIn = null;
-						bestCandOut = candOut;
+			// First improving exchange, resuming from the last one.
+			improved = false;
+			for (int k = 0; k < n && !improved; k++) {
+				Integer candOut = order[(exPos + k) % n];
+				if (inSol[candOut] == 0) continue;
+				for (int q = 1; q < n; q++) {
+					Integer candIn = order[(exPos + k + q) % n];
+					if (inSol[candIn] == 1 || !canExchange(candIn, candOut)) continue;
+					if (tryMove(candIn, candOut)) {
+						exPos = (exPos + k + 1) % n;
+						improved = true;
+						break;
 					}
 				}
-			
-			if (bestCandIn == null && bestCandOut == null)
-				// Evaluate exchanges
-				for (Integer candIn : CL) {
-					for (Integer candOut : currentSol) {
-						double deltaCost = ObjFunction.evaluateExchangeCost(candIn, candOut, currentSol);
-						if (deltaCost < minDeltaCost) {
-							minDeltaCost = deltaCost;
-							bestCandIn = candIn;
-							bestCandOut = candOut;
-						}
-					}
-				}
-			// Implement the best move, if it reduces the solution cost.
-			if (minDeltaCost < -Double.MIN_VALUE) {
-				if (bestCandOut != null) {
-					currentSol.remove(bestCandOut);
-					CL.add(bestCandOut);
-				}
-				if (bestCandIn != null) {
-					currentSol.add(bestCandIn);
-					CL.remove(bestCandIn);
-				}
-				ObjFunction.evaluate(currentSol);
-				break;
 			}
-		} while (minDeltaCost < -Double.MIN_VALUE);
 
-		return null;
+		} while (improved);
+
+		// The double costs were summed move by move, so the local optimum is
+		// evaluated once to drop the rounding errors.
+		if (!qbf.isExact()) ObjFunction.evaluate(currentSol);
+
+		return currentSol;
+	}
+
+	/**
+	 * Tells whether an element off the solution is in the Candidate List,
+	 * i.e., it may be inserted. All elements off a QBF solution are, which
+	 * the problems with side constraints override.
+	 * 
+	 * @param e
+	 *            An element off the solution.
+	 * @return true if the element may be inserted.
+	 */
+	protected boolean isCandidate(int e) {
+		return true;
+	}
+
+	/**
+	 * Applies a move to the current solution if it reduces its cost, which
+	 * is then updated by the variation of the move, and so are the variables
+	 * of the objective function. If the coefficients are integers, the move
+	 * is evaluated exactly, so that it improves if and only if its variation
+	 * is negative.
+	 * 
+	 * @param candIn
+	 *            Element entering the solution, or null.
+	 * @param candOut
+	 *            Element leaving the solution, or null.
+	 * @return true if the move was applied.
+	 */
+	private boolean tryMove(Integer candIn, Integer candOut) {
+
+		if (qbf.isExact()) {
+			long deltaCost;
+			if (candOut == null) deltaCost = qbf.evaluateInsertionQBFLong(candIn);
+			else if (candIn == null) deltaCost = qbf.evaluateRemovalQBFLong(candOut);
+			else deltaCost = qbf.evaluateExchangeQBFLong(candIn, candOut);
+			if (deltaCost >= 0) return false;
+			exactCost += deltaCost;
+			currentSol.cost = (double) exactCost;
+		} else {
+			double deltaCost;
+			if (candOut == null) deltaCost = qbf.evaluateInsertionQBF(candIn);
+			else if (candIn == null) deltaCost = qbf.evaluateRemovalQBF(candOut);
+			else deltaCost = qbf.evaluateExchangeQBF(candIn, candOut);
+			if (deltaCost >= 0) return false;
+			currentSol.cost += deltaCost;
+		}
+
+		if (candOut != null) qbf.variables[candOut] = 0.0;
+		if (candIn != null) qbf.variables[candIn] = 1.0;
+		applyMove(candIn, candOut);
+		updateCL();
+		return true;
+
 	}
 
 	/**
 	 * A main method used for testing the GRASP metaheuristic.
 	 */
-	public static void main(String[] args) throws IOException {
+	public static void main(String[] args) throws IOException, InterruptedException {
 
 		long startTime = System.currentTimeMillis();
 		GRASP_QBF_First_Improving grasp = new GRASP_QBF_First_Improving(0.2, 1000, "instances/qbf020");
+		grasp.addListener(new ConsoleListener<Integer>());
 		Solution<Integer> bestSol = grasp.solve();
+		grasp.closeProgress(1000);
 		System.out.println("maxVal = " + bestSol);
 		long endTime   = System.currentTimeMillis();
 		long totalTime = endTime - startTime;
@@ -0,0 +1,343 @@
+package problems.qbf.solvers;
+
+import java.io.IOException;
+
+import metaheuristics.grasp.AbstractIntGRASP;
+import metaheuristics.grasp.progress.ConsoleListener;
+import problems.qbf.QBF_Inverse;
+import solutions.IntSolution;
+
+/**
+ * Primitive counterpart of the {@link GRASP_QBF}, built on the
+ * {@link AbstractIntGRASP}, where the inverse QBF is evaluated through its
+ * {@link problems.IntEvaluator} methods. The search is the same, but its
+ * loops neither box elements and costs nor allocate lists.
+ * 
+ * @author aserpa, einnarelli
+ */
+public class IntGRASP_QBF extends AbstractIntGRASP {
+
+	/**
+	 * The objective function, whose exact evaluations are used by the local
+	 * search when its coefficients are integers.
+	 */
+	private final QBF_Inverse qbf;
+
+	/**
+	 * Variations of the moves of the local search, in double precision or
+	 * exact.
+	 */
+	private final MoveDeltas doubleDeltas, exactDeltas;
+
+	/**
+	 * Constructor for the non-reactive IntGRASP_QBF.
+	 * 
+	 * @param alpha
+	 *            The GRASP greediness-randomness parameter (within the range
+	 *            [0,1]).
+	 * @param iterations
+	 *            The number of iterations which the GRASP will be executed.
+	 * @param filename
+	 *            Name of the file for which the objective function parameters
+	 *            should be read.
+	 * @throws IOException
+	 *            necessary for I/O operations.
+	 */
+	public IntGRASP_QBF(double alpha, int iterations, String filename) throws IOException {
+		this(alpha, iterations, new QBF_Inverse(filename));
+	}
+
+	/**
+	 * Constructor for the non-reactive IntGRASP_QBF from an objective
+	 * function, which may share its instance with other solvers.
+	 * 
+	 * @param alpha
+	 *            The GRASP greediness-randomness parameter (within the range
+	 *            [0,1]).
+	 * @param iterations
+	 *            The number of iterations which the GRASP will be executed.
+	 * @param objFunction
+	 *            The inverse QBF objective function, owned by this solver.
+	 */
+	public IntGRASP_QBF(double alpha, int iterations, QBF_Inverse objFunction) {
+		super(objFunction, iterations, alpha);
+		qbf = objFunction;
+		doubleDeltas = new DoubleDeltas();
+		exactDeltas = new ExactDeltas();
+	}
+
+	/**
+	 * Constructor for the reactive IntGRASP_QBF.
+	 * 
+	 * @param numAlphas
+	 *            Number of possible alphas.
+	 * @param iterations
+	 *            The number of iterations which the GRASP will be executed.
+	 * @param filename
+	 *            Name of the file for which the objective function parameters
+	 *            should be read.
+	 * @throws IOException
+	 *            necessary for I/O operations.
+	 */
+	public IntGRASP_QBF(int numAlphas, int iterations, String filename) throws IOException {
+		this(numAlphas, iterations, new QBF_Inverse(filename));
+	}
+
+	/**
+	 * Constructor for the reactive IntGRASP_QBF from an objective function,
+	 * which may share its instance with other solvers.
+	 * 
+	 * @param numAlphas
+	 *            Number of possible alphas.
+	 * @param iterations
+	 *            The number of iterations which the GRASP will be executed.
+	 * @param objFunction
+	 *            The inverse QBF objective function, owned by this solver.
+	 */
+	public IntGRASP_QBF(int numAlphas, int iterations, QBF_Inverse objFunction) {
+		super(objFunction, iterations, numAlphas);
+		qbf = objFunction;
+		doubleDeltas = new DoubleDeltas();
+		exactDeltas = new ExactDeltas();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see metaheuristics.grasp.AbstractIntGRASP#makeCL()
+	 */
+	@Override
+	public void makeCL() {
+		for (int i = 0; i < n; i++) {
+			addToCL(i);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see metaheuristics.grasp.AbstractIntGRASP#updateCL()
+	 */
+	@Override
+	public void updateCL() {
+
+		// do nothing since all elements off the solution are viable candidates.
+
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The empty solution has a zero cost, since it is known that a QBF
+	 * solution with all variables set to zero has also zero cost.
+	 */
+	@Override
+	public void createEmptySol() {
+		currentSol.clear();
+		currentSol.cost = 0.0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The local search operator developed for the QBF objective function is
+	 * composed by the neighborhood moves Insertion, Removal and 2-Exchange.
+	 * If the coefficients are integers, the moves are evaluated exactly, see
+	 * {@link ExactDeltas}.
+	 */
+	@Override
+	public void localSearch() {
+
+		MoveDeltas deltas = qbf.isExact() ? exactDeltas : doubleDeltas;
+		int bestCandIn = -1, bestCandOut = -1;
+		deltas.start();
+
+		do {
+			deltas.reset();
+			updateCL();
+
+			// Evaluate insertions
+			deltas.insertions(CL, CLSize);
+			for (int k = 0; k < CLSize; k++) {
+				if (deltas.offer(k)) {
+					bestCandIn = CL[k];
+					bestCandOut = -1;
+				}
+			}
+			// Evaluate removals
+			deltas.removals();
+			for (int p = 0; p < currentSol.size(); p++) {
+				if (deltas.offer(p)) {
+					bestCandIn = -1;
+					bestCandOut = currentSol.get(p);
+				}
+			}
+			// Evaluate exchanges
+			for (int p = 0; p < currentSol.size(); p++) {
+				int candOut = currentSol.get(p);
+				deltas.exchanges(CL, CLSize, candOut);
+				for (int k = 0; k < CLSize; k++) {
+					if (deltas.offer(k)) {
+						bestCandIn = CL[k];
+						bestCandOut = candOut;
+					}
+				}
+			}
+			// Implement the best move, if it reduces the solution cost.
+			if (deltas.improves()) {
+				if (bestCandOut >= 0) {
+					currentSol.remove(bestCandOut);
+					addToCL(bestCandOut);
+				}
+				if (bestCandIn >= 0) {
+					currentSol.add(bestCandIn);
+					removeFromCL(bestCandIn);
+				}
+				deltas.apply();
+			}
+		} while (deltas.improves());
+
+		deltas.finish();
+
+	}
+
+	/**
+	 * Variations of the batches of moves of the local search, which are
+	 * evaluated into a buffer, and the update of the solution cost by the
+	 * best move of each step.
+	 */
+	private interface MoveDeltas {
+
+		/**
+		 * Starts a local search from the current solution.
+		 */
+		void start();
+
+		/**
+		 * Starts a step, forgetting the best move of the last one.
+		 */
+		void reset();
+
+		void insertions(int[] elems, int count);
+
+		void removals();
+
+		void exchanges(int[] elemsIn, int count, int elemOut);
+
+		/**
+		 * Keeps the k-th variation of the last batch if it is the smallest
+		 * of the step.
+		 * 
+		 * @return true if it is.
+		 */
+		boolean offer(int k);
+
+		/**
+		 * @return true if the best move of the step reduces the cost.
+		 */
+		boolean improves();
+
+		/**
+		 * Adds the variation of the best move of the step to the cost, once
+		 * the move is applied.
+		 */
+		void apply();
+
+		/**
+		 * Sets the cost of the local optimum.
+		 */
+		void finish();
+
+	}
+
+	/**
+	 * Variations in double precision, where the local optimum is evaluated
+	 * again to drop the rounding errors of the variations summed.
+	 */
+	private final class DoubleDeltas implements MoveDeltas {
+
+		private double minDeltaCost;
+
+		public void start() {}
+		public void reset() { minDeltaCost = Double.POSITIVE_INFINITY; }
+
+		public void insertions(int[] elems, int count) {
+			ObjFunction.evaluateInsertionCosts(elems, count, currentSol, deltas);
+		}
+
+		public void removals() {
+			ObjFunction.evaluateRemovalCosts(currentSol.elements(), currentSol.size(), currentSol, deltas);
+		}
+
+		public void exchanges(int[] elemsIn, int count, int elemOut) {
+			ObjFunction.evaluateExchangeCosts(elemsIn, count, elemOut, currentSol, deltas);
+		}
+
+		public boolean offer(int k) {
+			if (deltas[k] >= minDeltaCost) return false;
+			minDeltaCost = deltas[k];
+			return true;
+		}
+
+		public boolean improves() { return minDeltaCost < 0; }
+		public void apply() { currentSol.cost += minDeltaCost; }
+		public void finish() { ObjFunction.evaluate(currentSol); }
+
+	}
+
+	/**
+	 * Exact {@code long} variations, for integer coefficients. A move thus
+	 * improves the solution if and only if its variation is negative, and
+	 * the cost accumulated from the variations needs no evaluation of the
+	 * local optimum.
+	 */
+	private final class ExactDeltas implements MoveDeltas {
+
+		private final long[] exact = new long[n];
+		private long minDeltaCost, cost;
+
+		public void start() { cost = qbf.evaluateQBFLong(currentSol); }
+		public void reset() { minDeltaCost = Long.MAX_VALUE; }
+
+		public void insertions(int[] elems, int count) {
+			qbf.evaluateInsertionCosts(elems, count, currentSol, exact);
+		}
+
+		public void removals() {
+			qbf.evaluateRemovalCosts(currentSol.elements(), currentSol.size(), currentSol, exact);
+		}
+
+		public void exchanges(int[] elemsIn, int count, int elemOut) {
+			qbf.evaluateExchangeCosts(elemsIn, count, elemOut, currentSol, exact);
+		}
+
+		public boolean offer(int k) {
+			if (exact[k] >= minDeltaCost) return false;
+			minDeltaCost = exact[k];
+			return true;
+		}
+
+		public boolean improves() { return minDeltaCost < 0; }
+		public void apply() { cost += minDeltaCost; }
+		public void finish() { currentSol.cost = (double) cost; }
+
+	}
+
+	/**
+	 * A main method used for testing the GRASP metaheuristic.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		long startTime = System.currentTimeMillis();
+		IntGRASP_QBF grasp = new IntGRASP_QBF(0.2, 1000, "instances/qbf020");
+		grasp.addListener(new ConsoleListener<Integer>());
+		IntSolution bestSol = grasp.solve();
+		grasp.closeProgress(1000);
+		System.out.println("maxVal = " + bestSol);
+		long endTime   = System.currentTimeMillis();
+		long totalTime = endTime - startTime;
+		System.out.println("Time = "+(double)totalTime/(double)1000+" seg");
+
+	}
+
+}
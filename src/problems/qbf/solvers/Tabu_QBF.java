@@ -0,0 +1,195 @@
+package problems.qbf.solvers;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import metaheuristics.grasp.LocalSearch;
+import problems.qbf.FlipConstraint;
+import problems.qbf.FlipState;
+import problems.qbf.QBF;
+import problems.qbf.QBF_Inverse;
+import solutions.Solution;
+
+/**
+ * One-flip tabu search for QBF problems, to be plugged into a GRASP through
+ * {@link metaheuristics.grasp.AbstractGRASP#setLocalSearch} in place of its
+ * descent. At each step it applies the best allowed flip, even if it worsens
+ * the solution; a flipped variable is then tabu, and cannot be flipped back,
+ * for a tenure of a fixed number of steps plus a random number of up to as
+ * many, unless the flip leads to a solution better than the best one found
+ * (aspiration). Flips that would break the side constraint are never
+ * allowed, so every visited solution is feasible.
+ *
+ * Flips are evaluated in O(1) from the gains of a {@link FlipState} and
+ * applied in O(n), so a step costs O(n). The search stops after a number of
+ * steps or a time budget, and returns the best solution visited.
+ *
+ * @author aserpa, einnarelli
+ */
+public class Tabu_QBF implements LocalSearch<Integer> {
+
+    /**
+     * Smallest improvement over the best solution.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Variables with their flip gains.
+     */
+    private final FlipState state;
+
+    /**
+     * Side constraint of the problem, or null.
+     */
+    private final FlipConstraint constraint;
+
+    /**
+     * 1 if the GRASP minimizes the inverse QBF (i.e., maximizes the QBF), -1
+     * if it minimizes the QBF.
+     */
+    private final double direction;
+
+    /**
+     * Fixed part of the tabu tenure, in steps.
+     */
+    private final int tenure;
+
+    /**
+     * Maximum number of steps of a search.
+     */
+    private final int steps;
+
+    /**
+     * Time budget of a search in milliseconds, or null.
+     */
+    private final Long timeLimit;
+
+    /**
+     * Random part of the tenure, and ties between the flips.
+     */
+    private final Random rng;
+
+    /**
+     * Step until which each variable is tabu.
+     */
+    private final int[] tabuUntil;
+
+    /**
+     * Variables of the best solution visited.
+     */
+    private final boolean[] best;
+
+    /**
+     * Number of steps over all searches.
+     */
+    private long stepsDone;
+
+    /**
+     * Constructor for a tabu search of 10n steps with a tenure of n/20 + 5
+     * steps.
+     *
+     * @param objFunction
+     *      The objective function of the GRASP.
+     * @param constraint
+     *      Side constraint of the problem, or null.
+     */
+    public Tabu_QBF(QBF objFunction, FlipConstraint constraint) {
+        this(objFunction, constraint, objFunction.getDomainSize() / 20 + 5, 10 * objFunction.getDomainSize(), null,
+            0);
+    }
+
+    /**
+     * Constructor for the Tabu_QBF class.
+     *
+     * @param objFunction
+     *      The objective function of the GRASP, whose matrix is shared.
+     * @param constraint
+     *      Side constraint of the problem, or null.
+     * @param tenure
+     *      Fixed part of the tabu tenure, in steps.
+     * @param steps
+     *      Maximum number of steps of a search.
+     * @param timeLimit
+     *      Time budget of a search in milliseconds, or null.
+     * @param seed
+     *      Seed of the random part of the tenure.
+     */
+    public Tabu_QBF(QBF objFunction, FlipConstraint constraint, int tenure, int steps, Long timeLimit,
+            long seed) {
+
+        assert tenure >= 0 && steps >= 0 : "tenure and steps should be non-negative integers.";
+        this.state = new FlipState(objFunction.getMatrix());
+        this.constraint = constraint;
+        this.direction = objFunction instanceof QBF_Inverse ? 1.0 : -1.0;
+        this.tenure = tenure;
+        this.steps = steps;
+        this.timeLimit = timeLimit;
+        this.rng = new Random(seed);
+        this.tabuUntil = new int[state.size()];
+        this.best = new boolean[state.size()];
+
+    }
+
+    @Override
+    public Solution<Integer> improve(Solution<Integer> sol) {
+
+        long startTime = System.currentTimeMillis();
+        int n = state.size();
+        boolean[] x = state.variables();
+
+        state.load(sol);
+        System.arraycopy(x, 0, best, 0, n);
+        double current = direction * state.value(), bestValue = current;
+
+        Arrays.fill(tabuUntil, 0);
+
+        for (int step = 0; step < steps; step++) {
+
+            if (timeLimit != null && (step & 63) == 0 && System.currentTimeMillis() - startTime >= timeLimit) break;
+            stepsDone++;
+
+            // Best allowed flip, with ties broken at random.
+            int move = -1, ties = 0;
+            double moveImprovement = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                double imp = direction * state.gain(i);
+                if (imp < moveImprovement) continue;
+                if (tabuUntil[i] > step && current + imp <= bestValue + EPSILON) continue;
+                if (!x[i] && constraint != null && !constraint.canAdd(i, x)) continue;
+                if (imp > moveImprovement) {
+                    move = i;
+                    moveImprovement = imp;
+                    ties = 1;
+                } else if (rng.nextInt(++ties) == 0) {
+                    move = i;
+                }
+            }
+            if (move < 0) break;
+
+            state.flip(move);
+            current += moveImprovement;
+            tabuUntil[move] = step + 1 + tenure + rng.nextInt(tenure + 1);
+
+            if (current > bestValue + EPSILON) {
+                bestValue = current;
+                System.arraycopy(x, 0, best, 0, n);
+            }
+
+        }
+
+        // Return the best solution visited.
+        sol.clear();
+        for (int i = 0; i < n; i++) {
+            if (best[i]) sol.add(i);
+        }
+        sol.cost = -bestValue;
+        return sol;
+
+    }
+
+    /**
+     * @return The number of steps over all searches.
+     */
+    public long getStepsDone() { return stepsDone; };
+
+}
@@ -0,0 +1,309 @@
+package problems.qbf.solvers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import metaheuristics.grasp.LocalSearch;
+import problems.qbf.FlipConstraint;
+import problems.qbf.FlipState;
+import problems.qbf.QBF;
+import problems.qbf.QBF_Inverse;
+import solutions.Solution;
+
+/**
+ * Variable Neighborhood Descent for QBF problems, to be plugged into a GRASP
+ * through {@link metaheuristics.grasp.AbstractGRASP#setLocalSearch}. It
+ * explores, in this order, the neighborhoods:
+ * <ol>
+ * <li>1-flip: insertion or removal of an element (best improvement);</li>
+ * <li>swap: an element enters and another one leaves;</li>
+ * <li>2-flip: two elements enter, or two elements leave;</li>
+ * <li>compound: a chain of up to {@link #depth} 1-flips, each one the best
+ * flip after the previous ones, which is applied if the chain as a whole
+ * improves even though its first flip does not.</li>
+ * </ol>
+ * Whenever a neighborhood improves the solution, the descent returns to the
+ * first one, and it stops when the last one is exhausted. Moves are
+ * evaluated in O(1) from the gains of a {@link FlipState}, and applied in
+ * O(n), so steps of the 1-flip neighborhood cost O(n); the pair and chain
+ * neighborhoods, which cost O(n^2) to exhaust, are only explored at local
+ * optima of the smaller ones, and are scanned in first-improvement fashion
+ * from where the last scan stopped.
+ *
+ * @author aserpa, einnarelli
+ */
+public class VND_QBF implements LocalSearch<Integer> {
+
+    /**
+     * Smallest improvement of a move.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Variables with their flip gains.
+     */
+    private final FlipState state;
+
+    /**
+     * Side constraint of the problem, or null.
+     */
+    private final FlipConstraint constraint;
+
+    /**
+     * 1 if the GRASP minimizes the inverse QBF (i.e., maximizes the QBF), -1
+     * if it minimizes the QBF.
+     */
+    private final double direction;
+
+    /**
+     * Maximum number of flips of a compound move.
+     */
+    private final int depth;
+
+    /**
+     * Random scan order of the variables.
+     */
+    private final int[] order;
+
+    /**
+     * Where the scans of the pair and compound neighborhoods resume.
+     */
+    private int swapPos, pairPos, chainPos;
+
+    /**
+     * Number of moves applied in each neighborhood.
+     */
+    private final long[] moves = new long[4];
+
+    /**
+     * Constructor for a VND without side constraints and compound moves of
+     * up to 3 flips.
+     *
+     * @param objFunction
+     *      The objective function of the GRASP.
+     */
+    public VND_QBF(QBF objFunction) {
+        this(objFunction, null, 3, 0);
+    }
+
+    /**
+     * Constructor for the VND_QBF class.
+     *
+     * @param objFunction
+     *      The objective function of the GRASP, whose matrix is shared.
+     * @param constraint
+     *      Side constraint of the problem, or null.
+     * @param depth
+     *      Maximum number of flips of a compound move, or 1 to disable them.
+     * @param seed
+     *      Seed of the scan order.
+     */
+    public VND_QBF(QBF objFunction, FlipConstraint constraint, int depth, long seed) {
+
+        assert depth >= 1 : "depth should be a positive integer.";
+        this.state = new FlipState(objFunction.getMatrix());
+        this.constraint = constraint;
+        this.direction = objFunction instanceof QBF_Inverse ? 1.0 : -1.0;
+        this.depth = depth;
+
+        int n = state.size();
+        Random rng = new Random(seed);
+        order = new int[n];
+        for (int k = 0; k < n; k++) {
+            int j = rng.nextInt(k + 1);
+            order[k] = order[j];
+            order[j] = k;
+        }
+
+    }
+
+    @Override
+    public Solution<Integer> improve(Solution<Integer> sol) {
+
+        state.load(sol);
+
+        int k = 0;
+        while (k < 4) {
+            boolean improved;
+            switch (k) {
+                case 0: improved = oneFlip(); break;
+                case 1: improved = swap(); break;
+                case 2: improved = twoFlip(); break;
+                default: improved = compound();
+            }
+            if (improved) {
+                moves[k]++;
+                k = 0;
+            } else {
+                k++;
+            }
+        }
+
+        state.store(sol);
+        sol.cost = -direction * state.value();
+        return sol;
+
+    }
+
+    /**
+     * Improvement of the cost caused by flipping a variable.
+     */
+    private double improvement(int i) {
+        return direction * state.gain(i);
+    }
+
+    /**
+     * Tells whether a variable can be flipped.
+     */
+    private boolean allowed(int i) {
+        return state.get(i) || constraint == null || constraint.canAdd(i, state.variables());
+    }
+
+    /**
+     * Applies the best improving 1-flip, if any.
+     */
+    private boolean oneFlip() {
+
+        int best = -1;
+        double bestImprovement = EPSILON;
+        for (int i = 0; i < order.length; i++) {
+            double imp = improvement(i);
+            if (imp > bestImprovement && allowed(i)) {
+                best = i;
+                bestImprovement = imp;
+            }
+        }
+
+        if (best < 0) return false;
+        state.flip(best);
+        return true;
+
+    }
+
+    /**
+     * Applies the first improving swap, scanning the leaving elements from
+     * where the last scan stopped.
+     */
+    private boolean swap() {
+
+        int n = order.length;
+        boolean[] x = state.variables();
+
+        for (int p = 0; p < n; p++) {
+            int out = order[(swapPos + p) % n];
+            if (!x[out]) continue;
+            for (int in = 0; in < n; in++) {
+                if (x[in]) continue;
+                if (direction * state.gain(in, out) > EPSILON
+                        && (constraint == null || constraint.canSwap(in, out, x))) {
+                    state.flip(out);
+                    state.flip(in);
+                    swapPos = (swapPos + p + 1) % n;
+                    return true;
+                }
+            }
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Applies the first improving 2-flip that inserts or removes two
+     * elements, scanning from where the last scan stopped.
+     */
+    private boolean twoFlip() {
+
+        int n = order.length;
+        boolean[] x = state.variables();
+
+        for (int p = 0; p < n; p++) {
+            int i = order[(pairPos + p) % n];
+            for (int j = 0; j < n; j++) {
+                if (j == i || x[j] != x[i]) continue;
+                if (direction * state.gain(i, j) > EPSILON
+                        && (x[i] || constraint == null || constraint.canAddPair(i, j, x))) {
+                    state.flip(i);
+                    state.flip(j);
+                    pairPos = (pairPos + p + 1) % n;
+                    return true;
+                }
+            }
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Applies the first improving compound move, trying the chains started
+     * by each variable from where the last scan stopped. A chain that does
+     * not improve is undone.
+     */
+    private boolean compound() {
+
+        if (depth < 2) return false;
+
+        int n = order.length;
+        List<Integer> chain = new ArrayList<Integer>(depth);
+
+        for (int p = 0; p < n; p++) {
+
+            int start = order[(chainPos + p) % n];
+            if (!allowed(start)) continue;
+
+            double total = improvement(start), bestTotal = EPSILON;
+            int bestLength = 0;
+            chain.clear();
+            chain.add(start);
+            state.flip(start);
+
+            while (chain.size() < depth) {
+
+                // Best allowed flip of a variable not in the chain yet.
+                int next = -1;
+                double nextImprovement = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < n; i++) {
+                    double imp = improvement(i);
+                    if (imp > nextImprovement && !chain.contains(i) && allowed(i)) {
+                        next = i;
+                        nextImprovement = imp;
+                    }
+                }
+                if (next < 0) break;
+
+                total += nextImprovement;
+                chain.add(next);
+                state.flip(next);
+                if (total > bestTotal) {
+                    bestTotal = total;
+                    bestLength = chain.size();
+                }
+
+            }
+
+            // Keep the best prefix of the chain, undoing the other flips in
+            // reverse order, so that every intermediate state is feasible.
+            for (int k = chain.size() - 1; k >= bestLength; k--) state.flip(chain.get(k));
+
+            if (bestLength > 0) {
+                chainPos = (chainPos + p + 1) % n;
+                return true;
+            }
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Moves getter.
+     *
+     * @return The number of moves applied in the 1-flip, swap, 2-flip and
+     *      compound neighborhoods, in this order.
+     */
+    public long[] getMoves() { return moves.clone(); };
+
+}
@@ -0,0 +1,302 @@
+package problems.qbf.solvers;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import metaheuristics.grasp.LocalSearch;
+import problems.qbf.CoefficientMatrix;
+import problems.qbf.FlipConstraint;
+import problems.qbf.FlipState;
+import problems.qbf.QBF;
+import problems.qbf.QBF_Inverse;
+import solutions.Solution;
+
+/**
+ * Exact intensification of local optima for QBF problems, to be plugged
+ * into a GRASP through {@link metaheuristics.grasp.AbstractGRASP#setLocalSearch},
+ * alone or after another local search. It picks windows of k strongly
+ * coupled variables, each grown from a seed variable by adding the variable
+ * most coupled to those already in the window, and enumerates all 2^k
+ * assignments of a window, with the other variables fixed, keeping the best
+ * feasible one.
+ *
+ * The assignments are visited in Gray-code order, so that consecutive ones
+ * differ by a single flip, whose gain is read in O(1) from gains restricted
+ * to the window, and updated in O(k) from the couplings between the window
+ * variables. Feasibility under the side constraint is only checked for the
+ * assignments that would improve the best one found, in O(k * deg), so a
+ * window costs O(2^k * k), a few milliseconds for k = 16. Whenever a round
+ * of windows improves the solution, the inner local search, if any, runs
+ * again, followed by another round.
+ *
+ * @author aserpa, einnarelli
+ */
+public class WindowSearch_QBF implements LocalSearch<Integer> {
+
+    /**
+     * Smallest improvement of a window assignment.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Maximum number of variables of a window.
+     */
+    public static final int MAX_WINDOW = 20;
+
+    /**
+     * The matrix of coefficients.
+     */
+    private final CoefficientMatrix A;
+
+    /**
+     * Variables with their flip gains.
+     */
+    private final FlipState state;
+
+    /**
+     * Side constraint of the problem, or null.
+     */
+    private final FlipConstraint constraint;
+
+    /**
+     * Local search run before the windows, or null.
+     */
+    private final LocalSearch<Integer> inner;
+
+    /**
+     * 1 if the GRASP minimizes the inverse QBF (i.e., maximizes the QBF), -1
+     * if it minimizes the QBF.
+     */
+    private final double direction;
+
+    /**
+     * Number of variables of a window, and of windows per round.
+     */
+    private final int k, windows;
+
+    /**
+     * Random order of the seed variables of the windows.
+     */
+    private final int[] order;
+
+    /**
+     * Where the next round takes its seed variables.
+     */
+    private int seedPos;
+
+    /**
+     * Variables of the current window, their couplings, and their
+     * improvements of the cost when flipped.
+     */
+    private final int[] window;
+    private final double[][] coupling;
+    private final double[] gain;
+
+    /**
+     * Copy of the variables, followed through the enumeration.
+     */
+    private final boolean[] x;
+
+    /**
+     * Coupling of every variable with the current window, to grow it.
+     */
+    private final double[] score;
+
+    /**
+     * Number of windows enumerated, and of those that improved.
+     */
+    private long enumerated, improved;
+
+    /**
+     * Constructor for the WindowSearch_QBF class.
+     *
+     * @param objFunction
+     *      The objective function of the GRASP, whose matrix is shared.
+     * @param constraint
+     *      Side constraint of the problem, or null.
+     * @param inner
+     *      Local search run before the windows, or null to only polish the
+     *      solutions received.
+     * @param k
+     *      Number of variables of a window, up to {@link #MAX_WINDOW}.
+     * @param windows
+     *      Number of windows per round.
+     * @param seed
+     *      Seed of the order of the windows.
+     */
+    public WindowSearch_QBF(QBF objFunction, FlipConstraint constraint, LocalSearch<Integer> inner, int k,
+            int windows, long seed) {
+
+        this.A = objFunction.getMatrix();
+        this.state = new FlipState(A);
+        this.constraint = constraint;
+        this.inner = inner;
+        this.direction = objFunction instanceof QBF_Inverse ? 1.0 : -1.0;
+
+        int n = state.size();
+        assert k >= 1 && k <= Math.min(MAX_WINDOW, n) : "k should be within [1, min(20, n)].";
+        assert windows >= 1 : "windows should be a positive integer.";
+        this.k = k;
+        this.windows = windows;
+
+        Random rng = new Random(seed);
+        order = new int[n];
+        for (int p = 0; p < n; p++) {
+            int j = rng.nextInt(p + 1);
+            order[p] = order[j];
+            order[j] = p;
+        }
+
+        window = new int[k];
+        coupling = new double[k][k];
+        gain = new double[k];
+        x = new boolean[n];
+        score = new double[n];
+
+    }
+
+    @Override
+    public Solution<Integer> improve(Solution<Integer> sol) {
+
+        boolean better = true;
+        while (better) {
+
+            if (inner != null) sol = inner.improve(sol);
+            state.load(sol);
+
+            better = false;
+            for (int w = 0; w < windows; w++) {
+                grow(order[seedPos]);
+                seedPos = (seedPos + 1) % order.length;
+                better |= enumerate();
+            }
+
+            state.store(sol);
+            sol.cost = -direction * state.value();
+
+        }
+
+        return sol;
+
+    }
+
+    /**
+     * Grows the window from a seed variable, adding each time the variable
+     * with the largest absolute coupling to those already in it.
+     */
+    private void grow(int seed) {
+
+        int n = order.length;
+        Arrays.fill(score, 0.0);
+        window[0] = seed;
+        score[seed] = Double.NEGATIVE_INFINITY;
+
+        for (int m = 1; m < k; m++) {
+            int last = window[m - 1], next = -1;
+            for (int j = 0; j < n; j++) {
+                if (score[j] == Double.NEGATIVE_INFINITY) continue;
+                score[j] += Math.abs(A.coupling(last, j));
+                if (next < 0 || score[j] > score[next]) next = j;
+            }
+            window[m] = next;
+            score[next] = Double.NEGATIVE_INFINITY;
+        }
+
+    }
+
+    /**
+     * Enumerates the assignments of the window in Gray-code order, and
+     * applies the best feasible one if it improves the solution.
+     *
+     * @return true if the solution was improved.
+     */
+    private boolean enumerate() {
+
+        enumerated++;
+        System.arraycopy(state.variables(), 0, x, 0, x.length);
+
+        // Gains and couplings restricted to the window, signed so that
+        // flipping p changes the gain of q by coupling[p][q] while both are
+        // at their values in x.
+        for (int p = 0; p < k; p++) {
+            gain[p] = direction * state.gain(window[p]);
+            for (int q = 0; q < p; q++) {
+                double c = direction * A.coupling(window[p], window[q]);
+                coupling[p][q] = coupling[q][p] = x[window[p]] == x[window[q]] ? c : -c;
+            }
+        }
+
+        double current = 0.0, best = EPSILON;
+        int code = 0, bestCode = 0;
+        for (int s = 1; s < 1 << k; s++) {
+
+            // The s-th Gray code differs from the previous one in bit p.
+            int p = Integer.numberOfTrailingZeros(s);
+            current += gain[p];
+            gain[p] = -gain[p];
+            double[] row = coupling[p];
+            for (int q = 0; q < k; q++) {
+                if (q == p) continue;
+                gain[q] += row[q];
+                row[q] = -row[q];
+                coupling[q][p] = row[q];
+            }
+            x[window[p]] = !x[window[p]];
+            code ^= 1 << p;
+
+            if (current > best && feasible()) {
+                best = current;
+                bestCode = code;
+            }
+
+        }
+
+        if (bestCode == 0) return false;
+
+        // Set the variables to 0 before the others to 1, so that every
+        // intermediate state is feasible.
+        boolean[] y = state.variables();
+        for (int p = 0; p < k; p++) {
+            if ((bestCode >> p & 1) != 0 && y[window[p]]) {
+                state.flip(window[p]);
+                bestCode ^= 1 << p;
+            }
+        }
+        for (int p = 0; p < k; p++) {
+            if ((bestCode >> p & 1) != 0) state.flip(window[p]);
+        }
+        improved++;
+        return true;
+
+    }
+
+    /**
+     * Tells whether the assignment of the window in {@link #x} satisfies the
+     * side constraint, knowing the other variables do.
+     */
+    private boolean feasible() {
+
+        if (constraint == null) return true;
+        for (int p = 0; p < k; p++) {
+            int v = window[p];
+            if (!x[v]) continue;
+            x[v] = false;
+            boolean ok = constraint.canAdd(v, x);
+            x[v] = true;
+            if (!ok) return false;
+        }
+        return true;
+
+    }
+
+    /**
+     * @return The number of windows enumerated.
+     */
+    public long getEnumerated() { return enumerated; };
+
+    /**
+     * @return The number of windows that improved the solution.
+     */
+    public long getImproved() { return improved; };
+
+}
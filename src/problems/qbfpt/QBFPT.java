@@ -2,10 +2,16 @@ package problems.qbfpt;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import problems.qbf.QBFInstance;
 import problems.qbf.QBF_Inverse;
+import problems.qbf.VariableFixing;
+import solutions.Solution;
 
 /**
  * Quadractic binary function with prohibited triples, which extends the 
@@ -18,10 +24,28 @@ import problems.qbf.QBF_Inverse;
 public class QBFPT extends QBF_Inverse {
 
     /**
-     * The set T of prohibited triples.
+     * Prohibited triples sets by instance dimension. Since T only depends on
+     * n, it is generated once and shared by every QBFPT of that dimension.
+     */
+    private static final Map<Integer, Set<List<Integer>>> triples = 
+        new ConcurrentHashMap<Integer, Set<List<Integer>>>();
+
+    /**
+     * Indexes of the prohibited triples by instance dimension.
+     */
+    private static final Map<Integer, TripleIndex> indexes = 
+        new ConcurrentHashMap<Integer, TripleIndex>();
+
+    /**
+     * The set T of prohibited triples, which is immutable.
      */
     private final Set<List<Integer>> T;
 
+    /**
+     * The triples of T as arrays, shared as T is.
+     */
+    private final TripleIndex index;
+
     /**
      * Constructor for the QBFPT class.
      * 
@@ -34,7 +58,73 @@ public class QBFPT extends QBF_Inverse {
      */
     public QBFPT(String filename) throws IOException {
         super(filename);
-        T = generateTriples();
+        T = triples.computeIfAbsent(size, n -> generateTriples());
+        index = indexes.computeIfAbsent(size, n -> new TripleIndex(T, n));
+    }
+
+    /**
+     * Constructor for the QBFPT class from an already loaded instance.
+     * 
+     * @param instance
+     *      The instance for setting the objective function.
+     */
+    public QBFPT(QBFInstance instance) {
+        super(instance);
+        T = triples.computeIfAbsent(size, n -> generateTriples());
+        index = indexes.computeIfAbsent(size, n -> new TripleIndex(T, n));
+    }
+
+    /**
+     * Constructor for a QBFPT with explicit prohibited triples, such as the
+     * reduced problem of a {@link VariableFixing}, instead of those generated
+     * from n.
+     * 
+     * @param instance
+     *      The instance for setting the objective function.
+     * @param triples
+     *      The elements of each triple, within [0, n-1]. A triple may have
+     *      fewer than three distinct elements, which cannot all be in a
+     *      solution either.
+     */
+    public QBFPT(QBFInstance instance, int[][] triples) {
+        super(instance);
+        index = new TripleIndex(triples, size);
+
+        // T as sorted triples within [1, n], repeating the last element of
+        // the smaller ones.
+        Set<List<Integer>> _T = new HashSet<List<Integer>>();
+        for (int t = 0; t < index.size(); t++) {
+            int[] m = index.members(t);
+            Integer[] triple = new Integer[3];
+            for (int k = 0; k < 3; k++) triple[k] = m[Math.min(k, m.length - 1)] + 1;
+            _T.add(Collections.unmodifiableList(Arrays.asList(triple)));
+        }
+        T = Collections.unmodifiableSet(_T);
+    }
+
+    /**
+     * Fixes the variables whose value in some optimal solution follows from
+     * the bounds of their rows and the prohibited triples.
+     * 
+     * @return The fixing, with the reduced problem.
+     */
+    public VariableFixing preprocess() {
+        int[][] triples = new int[index.size()][];
+        for (int t = 0; t < triples.length; t++) triples[t] = index.members(t);
+        return new VariableFixing(A, triples);
+    }
+
+    /**
+     * Builds the reduced problem of a fixing of this problem, whose
+     * solutions are mapped back by {@link VariableFixing#expand}.
+     * 
+     * @param fixing
+     *      The fixing, from {@link #preprocess()}.
+     * 
+     * @return The QBFPT on the free variables, with the live triples.
+     */
+    public static QBFPT reduce(VariableFixing fixing) {
+        return new QBFPT(new QBFInstance(fixing.getReducedMatrix()), fixing.getReducedTriples());
     }
 
     /**
@@ -43,12 +133,58 @@ public class QBFPT extends QBF_Inverse {
      * @return {@link #T}.
      */
     public Set<List<Integer>> getT() { return T; };
+
+    /**
+     * Triple index getter.
+     * 
+     * @return The triples of T as arrays.
+     */
+    public TripleIndex getTripleIndex() { return index; };
+
+    /**
+     * Makes a solution feasible by removing elements until no prohibited
+     * triple is entirely in it. For each violated triple, the element whose
+     * removal costs the least is removed, which may also fix other triples.
+     * 
+     * @param sol
+     *      The solution to be repaired, which is modified.
+     * 
+     * @return The repaired solution, not evaluated.
+     */
+    public Solution<Integer> repair(Solution<Integer> sol) {
+
+        Set<Integer> in = new HashSet<Integer>(sol);
+
+        for (List<Integer> t : T) {
+
+            // Elements of T are in [1, n], those of sol in [0, n-1].
+            Integer e1 = t.get(0) - 1, e2 = t.get(1) - 1, e3 = t.get(2) - 1;
+            if (!in.contains(e1) || !in.contains(e2) || !in.contains(e3)) continue;
+
+            Integer out = e1;
+            Double outCost = evaluateRemovalCost(e1, sol);
+            for (Integer e : new Integer[] {e2, e3}) {
+                Double cost = evaluateRemovalCost(e, sol);
+                if (cost < outCost) {
+                    out = e;
+                    outCost = cost;
+                }
+            }
+
+            sol.remove(out);
+            in.remove(out);
+
+        }
+
+        return sol;
+
+    }
     
     /**
      * Generates the prohibited triples set T, where:
      * T = {(i, j, k) ∈ T : ∀ u ∈ [1, n], (i, j, k) = sort({u, g(u), h(u)})}.
      *  
-     * @return The prohibited triples.
+     * @return The prohibited triples, as an unmodifiable set.
      */
     private Set<List<Integer>> generateTriples() {
 
@@ -64,10 +200,10 @@ public class QBFPT extends QBF_Inverse {
         for (int u = 1; u <= size; u++) {
             triple = new Integer[] {u, g(u), h(u)};
             Arrays.sort(triple);
-            _T.add((List<Integer>)Arrays.asList(triple));
+            _T.add(Collections.unmodifiableList(Arrays.asList(triple)));
         }
 
-        return _T;
+        return Collections.unmodifiableSet(_T);
 
     }
 
@@ -0,0 +1,69 @@
+package problems.qbfpt;
+
+import problems.qbf.FlipConstraint;
+
+/**
+ * The prohibited triples of a {@link QBFPT} as a {@link FlipConstraint}: a
+ * variable cannot be set to 1 if it completes a triple whose other elements
+ * are already set. The triples of each element come from the
+ * {@link TripleIndex} of the problem, so that a move is checked in O(deg),
+ * the number of triples of the elements set.
+ *
+ * @author aserpa, einnarelli
+ */
+public class TripleConstraint implements FlipConstraint {
+
+    /**
+     * Triples of the problem.
+     */
+    private final TripleIndex index;
+
+    /**
+     * Constructor for the TripleConstraint class.
+     *
+     * @param qbfpt
+     *      The problem whose triples are prohibited.
+     */
+    public TripleConstraint(QBFPT qbfpt) {
+        index = qbfpt.getTripleIndex();
+    }
+
+    /**
+     * Tells whether every element of a triple is set, counting the given
+     * elements as set and the removed one as not set.
+     */
+    private boolean complete(int t, int in1, int in2, int out, boolean[] x) {
+        for (int m : index.members(t)) {
+            if (m != in1 && m != in2 && (m == out || !x[m])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean canAdd(int i, boolean[] x) {
+        for (int t : index.triplesOf(i)) {
+            if (complete(t, i, i, -1, x)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean canSwap(int in, int out, boolean[] x) {
+        for (int t : index.triplesOf(in)) {
+            if (complete(t, in, in, out, x)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean canAddPair(int i, int j, boolean[] x) {
+        for (int t : index.triplesOf(i)) {
+            if (complete(t, i, j, -1, x)) return false;
+        }
+        for (int t : index.triplesOf(j)) {
+            if (complete(t, i, j, -1, x)) return false;
+        }
+        return true;
+    }
+
+}
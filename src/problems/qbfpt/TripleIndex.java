@@ -0,0 +1,98 @@
+package problems.qbfpt;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The prohibited triples of a {@link QBFPT} as arrays: the distinct elements
+ * of each triple, within [0, n-1], and the triples each element belongs to,
+ * so that the triples of an element are visited in O(deg), its number of
+ * triples. Like T, it only depends on n and is shared by every QBFPT of that
+ * dimension, so the returned arrays must not be modified. A QBFPT with
+ * explicit triples, such as a reduced problem, has an index of its own, and
+ * its triples may have fewer than three distinct elements.
+ *
+ * @author aserpa, einnarelli
+ */
+public final class TripleIndex {
+
+    /**
+     * Distinct elements of each triple, in increasing order.
+     */
+    private final int[][] members;
+
+    /**
+     * Indexes of the triples of each element.
+     */
+    private final int[][] triplesOf;
+
+    /**
+     * Constructor for the TripleIndex class.
+     *
+     * @param T
+     *      The prohibited triples, whose elements are in [1, n] and sorted.
+     * @param n
+     *      Dimension of the instance.
+     */
+    TripleIndex(Set<List<Integer>> T, int n) {
+        // Elements of T are in [1, n], variables in [0, n-1].
+        this(T.stream()
+            .map(t -> new int[] {t.get(0) - 1, t.get(1) - 1, t.get(2) - 1})
+            .toArray(int[][]::new), n);
+    }
+
+    /**
+     * Constructor for a TripleIndex of explicit triples.
+     *
+     * @param triples
+     *      The elements of each triple, within [0, n-1].
+     * @param n
+     *      Dimension of the instance.
+     */
+    TripleIndex(int[][] triples, int n) {
+
+        members = new int[triples.length][];
+        int[] degree = new int[n];
+
+        for (int t = 0; t < triples.length; t++) {
+            int[] m = triples[t].clone();
+            Arrays.sort(m);
+            int distinct = m.length == 0 ? 0 : 1;
+            for (int k = 1; k < m.length; k++) {
+                if (m[k] != m[distinct - 1]) m[distinct++] = m[k];
+            }
+            members[t] = Arrays.copyOf(m, distinct);
+            for (int k = 0; k < distinct; k++) degree[m[k]]++;
+        }
+
+        triplesOf = new int[n][];
+        for (int i = 0; i < n; i++) triplesOf[i] = new int[degree[i]];
+        for (int t = 0; t < members.length; t++) {
+            for (int i : members[t]) triplesOf[i][--degree[i]] = t;
+        }
+
+    }
+
+    /**
+     * @return The number of triples.
+     */
+    public int size() { return members.length; };
+
+    /**
+     * @param t
+     *      Index of a triple.
+     *
+     * @return The distinct elements of the triple.
+     */
+    public int[] members(int t) { return members[t]; };
+
+    /**
+     * @param i
+     *      An element, within [0, n-1].
+     *
+     * @return The indexes of the triples of the element.
+     */
+    public int[] triplesOf(int i) { return triplesOf[i]; };
+
+}
@@ -0,0 +1,149 @@
+package problems.qbfpt;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+/**
+ * Solution tracked against the prohibited triples of a {@link QBFPT}: for
+ * every triple, the number of its elements in the solution, so that moves
+ * are checked and applied in O(deg), the number of triples of the elements
+ * moved. The {@link TripleIndex} is shared, but the counts are the state of
+ * a single search, so each solver holds a tracker of its own, while the
+ * QBFPT itself stays free to be shared.
+ *
+ * @author aserpa, einnarelli
+ */
+public class TripleTracker {
+
+    /**
+     * Triples of the problem.
+     */
+    private final TripleIndex index;
+
+    /**
+     * Number of elements of each triple in the tracked solution.
+     */
+    private final int[] tripleCount;
+
+    /**
+     * Whether each element is in the tracked solution.
+     */
+    private final boolean[] tracked;
+
+    /**
+     * Constructor for the TripleTracker class, tracking the empty solution.
+     *
+     * @param qbfpt
+     *      The problem whose triples are prohibited.
+     */
+    public TripleTracker(QBFPT qbfpt) {
+        index = qbfpt.getTripleIndex();
+        tripleCount = new int[index.size()];
+        tracked = new boolean[qbfpt.getDomainSize()];
+    }
+
+    /**
+     * Starts tracking a solution: for every triple, the number of its
+     * elements in the solution is counted, so that moves are then checked
+     * and applied in O(deg), the number of triples of the elements moved.
+     * 
+     * @param sol
+     *      The solution to be tracked, which should be feasible.
+     */
+    public void track(Collection<Integer> sol) {
+        Arrays.fill(tripleCount, 0);
+        Arrays.fill(tracked, false);
+        for (Integer e : sol) trackInsertion(e, null);
+    }
+
+    /**
+     * @param i
+     *      An element, within [0, n-1].
+     * 
+     * @return true if the element is in the tracked solution.
+     */
+    public boolean isTracked(int i) { return tracked[i]; };
+
+    /**
+     * Tells whether an element off the tracked solution can be inserted, i.e.,
+     * it does not complete any triple.
+     * 
+     * @param i
+     *      The element to be inserted.
+     * 
+     * @return true if the insertion keeps the solution feasible.
+     */
+    public boolean canInsert(int i) {
+        for (int t : index.triplesOf(i)) {
+            if (tripleCount[t] == index.members(t).length - 1) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether an element off the tracked solution can replace one in
+     * it, i.e., it does not complete any triple once the leaving element is
+     * gone.
+     * 
+     * @param in
+     *      The element to be inserted.
+     * @param out
+     *      The element to be removed.
+     * 
+     * @return true if the exchange keeps the solution feasible.
+     */
+    public boolean canExchange(int in, int out) {
+        for (int t : index.triplesOf(in)) {
+            int count = tripleCount[t];
+            for (int m : index.members(t)) {
+                if (m == out) count--;
+            }
+            if (count == index.members(t).length - 1) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Inserts an element into the tracked solution.
+     * 
+     * @param i
+     *      The element inserted, which should be feasible.
+     * @param blocked
+     *      Receives the elements off the solution that can no longer be
+     *      inserted, possibly more than once, or null.
+     */
+    public void trackInsertion(int i, IntConsumer blocked) {
+        tracked[i] = true;
+        for (int t : index.triplesOf(i)) {
+            int[] members = index.members(t);
+            if (++tripleCount[t] == members.length - 1 && blocked != null) {
+                for (int m : members) {
+                    if (!tracked[m]) blocked.accept(m);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes an element from the tracked solution.
+     * 
+     * @param i
+     *      The element removed.
+     * @param freed
+     *      Receives the elements off the solution, other than i, that can
+     *      be inserted again, possibly more than once, or null.
+     */
+    public void trackRemoval(int i, IntConsumer freed) {
+        tracked[i] = false;
+        for (int t : index.triplesOf(i)) {
+            int[] members = index.members(t);
+            if (tripleCount[t]-- == members.length - 1 && freed != null) {
+                for (int m : members) {
+                    if (m != i && !tracked[m] && canInsert(m)) freed.accept(m);
+                }
+            }
+        }
+    }
+
+}
@@ -1,11 +1,8 @@
 package problems.qbfpt.solvers;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Set;
-import java.util.ArrayList;
-import java.util.HashSet;
 
+import metaheuristics.grasp.progress.ConsoleListener;
 import problems.qbf.solvers.GRASP_QBF;
 import problems.qbfpt.QBFPT;
 import solutions.Solution;
@@ -20,9 +17,9 @@ import solutions.Solution;
 public class GRASP_QBFPT extends GRASP_QBF {
 
     /**
-     * The set T of prohibited triples.
+     * The CL, updated in place by the moves.
      */
-    private final Set<List<Integer>> T;
+    private final TripleCandidateList candidates;
 
     /**
      * Constructor for the non-reactive GRASP_QBFPT class.
@@ -44,12 +41,26 @@ public class GRASP_QBFPT extends GRASP_QBF {
         String filename
     ) throws IOException {
 
-        super(alpha, iterations, filename);
+        this(alpha, iterations, new QBFPT(filename));
 
-        // Instantiate QBFPT problem, store T and update objective reference.
-        QBFPT qbfpt = new QBFPT(filename);
-        T = qbfpt.getT();
-        ObjFunction = qbfpt;
+    }
+
+    /**
+     * Constructor for the non-reactive GRASP_QBFPT class from an objective
+     * function, which may share its instance with other solvers.
+     * 
+     * @param alpha
+     *            The GRASP greediness-randomness parameter (within the range
+     *            [0,1]).
+     * @param iterations
+     *            The number of iterations which the GRASP will be executed.
+     * @param qbfpt
+     *            The QBFPT objective function, owned by this solver.
+     */
+    public GRASP_QBFPT(Double alpha, Integer iterations, QBFPT qbfpt) {
+
+        super(alpha, iterations, qbfpt);
+        this.candidates = new TripleCandidateList(qbfpt);
 
     }
 
@@ -72,63 +83,79 @@ public class GRASP_QBFPT extends GRASP_QBF {
         String filename
     ) throws IOException {
 
-        super(numAlphas, iterations, filename);
-
-        // Instantiate QBFPT problem, store T and update objective reference.
-        QBFPT qbfpt = new QBFPT(filename);
-        T = qbfpt.getT();
-        ObjFunction = qbfpt;
+        this(numAlphas, iterations, new QBFPT(filename));
 
     }
 
-    /*
-     * (non-Javadoc)
+    /**
+     * Constructor for the reactive GRASP_QBFPT class from an objective
+     * function, which may share its instance with other solvers.
      * 
-     * @see grasp.abstracts.AbstractGRASP#updateCL()
+     * @param numAlphas
+     *            Number of possible alphas.
+     * @param iterations
+     *            The number of iterations which the GRASP will be executed.
+     * @param qbfpt
+     *            The QBFPT objective function, owned by this solver.
      */
-    @Override
-    public void updateCL() {
-
-        // Store numbers in solution and _CL as hash sets.
-        Set<Integer> sol = new HashSet<Integer>(currentSol);
-        Set<Integer> _CL = new HashSet<Integer>(CL);
+    public GRASP_QBFPT(Integer numAlphas, Integer iterations, QBFPT qbfpt) {
 
-        // Initialize _CL with all elements not in solution.
-        for (Integer e = 0; e < ObjFunction.getDomainSize(); e++) {
-            if (!sol.contains(e)) {
-                _CL.add(e);
-            }
-        }
+        super(numAlphas, iterations, qbfpt);
+        this.candidates = new TripleCandidateList(qbfpt);
 
-        for (List<Integer> t : T) {
+    }
 
-            /**
-             * Detach elements from (e1, e2, e3). They are stored as numbers 
-             * from [0, n-1] in sol. and CL, different than in T ([1, n]).
-             */
-            Integer e1, e2, e3;
-            e1 = t.get(0) - 1;
-            e2 = t.get(1) - 1;
-            e3 = t.get(2) - 1;
+    /**
+     * {@inheritDoc}
+     * 
+     * Besides dropping invalid elements, prohibited triples are broken by
+     * {@link QBFPT#repair(Solution)}.
+     */
+    @Override
+    public Solution<Integer> repair(Solution<Integer> sol) {
+        return ((QBFPT) ObjFunction).repair(super.repair(sol));
+    }
 
-            // e1 and e2 in solution -> remove e3 from CL.
-            if (sol.contains(e1) && sol.contains(e2)) {
-                _CL.remove(e3); // if not in CL this has no effect
-            }
+    /**
+     * {@inheritDoc}
+     * 
+     * The CL is rebuilt with the elements off the solution that complete no
+     * prohibited triple, once per solution, see {@link TripleCandidateList}.
+     */
+    @Override
+    protected void solutionChanged() {
+        CL = candidates.rebuild(currentSol);
+    }
 
-            // e1 and e3 in solution -> remove e2 from CL.
-            else if (sol.contains(e1) && sol.contains(e3)) {
-                _CL.remove(e2); // if not in CL this has no effect
-            }
+    /**
+     * {@inheritDoc}
+     * 
+     * The CL is updated in place, in O(deg).
+     */
+    @Override
+    protected void applyMove(Integer in, Integer out) {
+        candidates.applyMove(currentSol, in, out);
+    }
 
-            // e2 and e3 in solution -> remove e1 from CL.
-            else if (sol.contains(e2) && sol.contains(e3)) {
-                _CL.remove(e1); // if not in CL this has no effect
-            }
+    /**
+     * {@inheritDoc}
+     * 
+     * The leaving element may be the one that prevented the insertion.
+     */
+    @Override
+    protected boolean canExchange(Integer candIn, Integer candOut) {
+        return candidates.canExchange(candIn, candOut);
+    }
 
-        }
+    /*
+     * (non-Javadoc)
+     * 
+     * @see grasp.abstracts.AbstractGRASP#updateCL()
+     */
+    @Override
+    public void updateCL() {
 
-        CL = new ArrayList<Integer>(_CL);
+        // do nothing since the CL is kept up to date by applyMove.
 
     }
 
@@ -145,11 +172,13 @@ public class GRASP_QBFPT extends GRASP_QBF {
     /**
      * A main method used for testing the GRASP metaheuristic.
      */
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
 
         long startTime = System.currentTimeMillis();
         GRASP_QBF grasp = new GRASP_QBFPT(0.2, 1000, "instances/qbf400");
+        grasp.addListener(new ConsoleListener<Integer>());
         Solution<Integer> bestSol = grasp.solve();
+        grasp.closeProgress(1000);
         System.out.println("maxVal = " + bestSol);
         long endTime   = System.currentTimeMillis();
         long totalTime = endTime - startTime;
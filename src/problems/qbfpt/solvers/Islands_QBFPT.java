@@ -0,0 +1,131 @@
+package problems.qbfpt.solvers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import problems.qbf.InstanceReader;
+import metaheuristics.grasp.island.Island;
+import metaheuristics.grasp.island.MigrationCoordinator;
+import solutions.Solution;
+
+/**
+ * Island model runner for the {@link GRASP_QBFPT}, where each island is a
+ * separate JVM. It has three modes:
+ * <ul>
+ * <li>{@code coordinator <port> <islands> <instance>}: runs a standalone
+ * coordinator, listening on all interfaces, for islands on other nodes;</li>
+ * <li>{@code island <host> <port> <seed> <instance> <epochs> <iterations>
+ * <alpha>}: runs a single island connected to a coordinator;</li>
+ * <li>{@code <instance> <islands> <epochs> <iterations> <alpha>}: runs a
+ * coordinator on the loopback interface and spawns one JVM per island.</li>
+ * </ul>
+ *
+ * @author aserpa, einnarelli
+ */
+public class Islands_QBFPT {
+
+    /**
+     * Runs a single island and prints its best solution.
+     */
+    private static void island(String[] args) throws IOException {
+
+        String host = args[1];
+        int port = Integer.parseInt(args[2]);
+        long seed = Long.parseLong(args[3]);
+        String filename = args[4];
+        int epochs = Integer.parseInt(args[5]);
+        int iterations = Integer.parseInt(args[6]);
+        double alpha = Double.parseDouble(args[7]);
+        GRASP_QBFPT grasp = new GRASP_QBFPT(alpha, iterations, filename);
+        grasp.setSeed(seed);
+
+        try (Island island = new Island(grasp, host, port)) {
+            Solution<Integer> best = island.run(epochs);
+            System.out.println("(Island " + seed + ") migrants = " + island.getReceived() + ", bestSol = " + best);
+        }
+
+    }
+
+    /**
+     * Runs a standalone coordinator and prints the best solution overall.
+     */
+    private static void coordinator(String[] args) throws IOException {
+
+        int port = Integer.parseInt(args[1]);
+        int islands = Integer.parseInt(args[2]);
+        int n = InstanceReader.readDimension(args[3]);
+
+        try (MigrationCoordinator coordinator = new MigrationCoordinator(null, port, islands, n)) {
+            coordinator.run();
+            System.out.println("maxVal = " + coordinator.getBest());
+        }
+
+    }
+
+    /**
+     * Time, in milliseconds, given to the coordinator to relay the last
+     * messages once every island process has exited.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 10000;
+
+    /**
+     * Runs a loopback coordinator and one child JVM per island. If an island
+     * exits without connecting, the coordinator is closed once every island
+     * has exited, instead of waiting for it.
+     */
+    private static void loopback(String[] args) throws IOException, InterruptedException {
+
+        String filename = args.length > 0 ? args[0] : "instances/qbf200";
+        int islands = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        String epochs = args.length > 2 ? args[2] : "5";
+        String iterations = args.length > 3 ? args[3] : "100";
+        String alpha = args.length > 4 ? args[4] : "0.2";
+
+        MigrationCoordinator coordinator = new MigrationCoordinator(0, islands, InstanceReader.readDimension(filename));
+        Thread coordinatorThread = new Thread(coordinator, "coordinator");
+        coordinatorThread.start();
+
+        // Islands run on the same JVM binary and classpath as this one.
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classpath = System.getProperty("java.class.path");
+
+        List<Process> processes = new ArrayList<Process>();
+        for (int k = 0; k < islands; k++) {
+            processes.add(new ProcessBuilder(
+                java, "-cp", classpath, Islands_QBFPT.class.getName(),
+                "island", coordinator.getAddress().getHostAddress(), String.valueOf(coordinator.getPort()),
+                String.valueOf(k), filename, epochs, iterations, alpha
+            ).inheritIO().start());
+        }
+
+        for (Process p : processes) {
+            p.waitFor();
+        }
+        coordinatorThread.join(SHUTDOWN_TIMEOUT);
+        coordinator.close();
+        coordinatorThread.join();
+
+        System.out.println("maxVal = " + coordinator.getBest());
+
+    }
+
+    /**
+     * A main method used for testing the island model.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        long startTime = System.currentTimeMillis();
+
+        if (args.length > 0 && args[0].equals("island")) island(args);
+        else if (args.length > 0 && args[0].equals("coordinator")) coordinator(args);
+        else loopback(args);
+
+        long endTime   = System.currentTimeMillis();
+        long totalTime = endTime - startTime;
+        System.out.println("Time = "+(double)totalTime/(double)1000+" seg");
+
+    }
+
+}
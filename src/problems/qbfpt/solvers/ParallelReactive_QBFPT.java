@@ -0,0 +1,50 @@
+package problems.qbfpt.solvers;
+
+import java.io.IOException;
+
+import metaheuristics.grasp.ParallelReactiveGRASP;
+import problems.qbf.InstanceRegistry;
+import problems.qbf.QBFInstance;
+import problems.qbfpt.QBFPT;
+import solutions.Solution;
+
+/**
+ * Runner of the {@link ParallelReactiveGRASP} for the {@link GRASP_QBFPT},
+ * whose workers share a single instance.
+ *
+ * Usage: {@code ParallelReactive_QBFPT [instance] [seconds] [numAlphas]
+ * [threads] [batchSize]}.
+ *
+ * @author aserpa, einnarelli
+ */
+public class ParallelReactive_QBFPT {
+
+    /**
+     * A main method used for testing the parallel Reactive GRASP.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        String filename = args.length > 0 ? args[0] : "instances/qbf200";
+        long timeLimit = (long) (1000 * (args.length > 1 ? Double.parseDouble(args[1]) : 10));
+        int numAlphas = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : 4 * threads;
+
+        QBFInstance instance = InstanceRegistry.load(filename);
+        ParallelReactiveGRASP<Integer> grasp = new ParallelReactiveGRASP<Integer>(
+            () -> new GRASP_QBFPT(0.5, Integer.MAX_VALUE, new QBFPT(instance)),
+            numAlphas, threads, batchSize);
+        grasp.setTimeLimit(timeLimit);
+
+        long startTime = System.currentTimeMillis();
+        Solution<Integer> bestSol = grasp.solve();
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("iterations = " + grasp.getIterationsDone());
+        System.out.println("alphas = " + grasp.getAlphaMap().values());
+        System.out.println("maxVal = " + bestSol);
+        System.out.println("Time = " + (double) totalTime / (double) 1000 + " seg");
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package problems.qbfpt.solvers;
+
+import java.io.IOException;
+
+import metaheuristics.grasp.LocalSearchFilter;
+import metaheuristics.grasp.PipelinedGRASP;
+import problems.qbf.InstanceRegistry;
+import problems.qbf.QBFInstance;
+import problems.qbfpt.QBFPT;
+import solutions.Solution;
+
+/**
+ * Runner of the {@link PipelinedGRASP} for the {@link GRASP_QBFPT}, whose
+ * threads share a single instance.
+ *
+ * Usage: {@code Pipelined_QBFPT [instance] [seconds] [constructors]
+ * [searchers] [alpha] [filter]}, where filter is "true" to skip the
+ * unpromising constructions.
+ *
+ * @author aserpa, einnarelli
+ */
+public class Pipelined_QBFPT {
+
+    /**
+     * A main method used for testing the pipelined GRASP.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        String filename = args.length > 0 ? args[0] : "instances/qbf200";
+        long timeLimit = (long) (1000 * (args.length > 1 ? Double.parseDouble(args[1]) : 10));
+        int cores = Runtime.getRuntime().availableProcessors();
+        int constructors = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(1, cores / 4);
+        int searchers = args.length > 3 ? Integer.parseInt(args[3]) : Math.max(1, cores - cores / 4);
+        double alpha = args.length > 4 ? Double.parseDouble(args[4]) : 0.2;
+        boolean filter = args.length > 5 && Boolean.parseBoolean(args[5]);
+
+        QBFInstance instance = InstanceRegistry.load(filename);
+        PipelinedGRASP<Integer> pipeline = new PipelinedGRASP<Integer>(
+            () -> new GRASP_QBFPT(alpha, Integer.MAX_VALUE, new QBFPT(instance)),
+            constructors, searchers, 4 * (constructors + searchers));
+        pipeline.setTimeLimit(timeLimit);
+        if (filter) pipeline.setFilter(new LocalSearchFilter());
+
+        long startTime = System.currentTimeMillis();
+        Solution<Integer> bestSol = pipeline.solve();
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("constructions = " + pipeline.getConstructions() + ", duplicates = "
+            + pipeline.getDuplicates() + ", filtered = " + pipeline.getFiltered() + ", searches = "
+            + pipeline.getSearches());
+        System.out.println("maxVal = " + bestSol);
+        System.out.println("Time = " + (double) totalTime / (double) 1000 + " seg");
+
+    }
+
+}
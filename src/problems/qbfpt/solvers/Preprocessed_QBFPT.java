@@ -0,0 +1,48 @@
+package problems.qbfpt.solvers;
+
+import java.io.IOException;
+
+import problems.qbf.VariableFixing;
+import problems.qbfpt.QBFPT;
+import solutions.Solution;
+
+/**
+ * Runner of the {@link GRASP_QBFPT} on the reduced problem of a
+ * {@link VariableFixing}, whose solution is mapped back to the instance.
+ *
+ * Usage: {@code Preprocessed_QBFPT [instance] [seconds] [alpha]}.
+ *
+ * @author aserpa, einnarelli
+ */
+public class Preprocessed_QBFPT {
+
+    /**
+     * A main method used for testing the preprocessing.
+     */
+    public static void main(String[] args) throws IOException {
+
+        String filename = args.length > 0 ? args[0] : "instances/qbf200";
+        long timeLimit = (long) (1000 * (args.length > 1 ? Double.parseDouble(args[1]) : 10));
+        double alpha = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+
+        long startTime = System.currentTimeMillis();
+        QBFPT qbfpt = new QBFPT(filename);
+        VariableFixing fixing = qbfpt.preprocess();
+        int n = qbfpt.getDomainSize(), m = fixing.getFree().length;
+        System.out.println("fixed = " + (n - m) + "/" + n + ", passes = " + fixing.getPasses());
+
+        Solution<Integer> reducedSol = new Solution<Integer>();
+        if (m > 0) {
+            GRASP_QBFPT grasp = new GRASP_QBFPT(alpha, Integer.MAX_VALUE, QBFPT.reduce(fixing));
+            grasp.setTimeLimit(timeLimit);
+            reducedSol = grasp.solve();
+        }
+        Solution<Integer> bestSol = fixing.expand(reducedSol, qbfpt);
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("maxVal = " + bestSol);
+        System.out.println("Time = " + (double) totalTime / (double) 1000 + " seg");
+
+    }
+
+}
@@ -0,0 +1,135 @@
+package problems.qbfpt.solvers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import problems.qbfpt.QBFPT;
+import problems.qbfpt.TripleTracker;
+import solutions.Solution;
+
+/**
+ * Candidate List of the GRASPs for the {@link QBFPT}, which holds the
+ * elements off the solution that complete no prohibited triple. It is
+ * rebuilt once per solution, after which the solution is tracked by a
+ * {@link TripleTracker} and the list is updated in place by each move: a
+ * removal may free the elements of the triples of the leaving element, an
+ * insertion may block those of the triples of the entering one. The
+ * position of each element in the list is kept, and elements are removed by
+ * swapping them with the last one, so that a move costs O(deg), the number
+ * of triples of the elements moved.
+ *
+ * @author aserpa, einnarelli
+ */
+final class TripleCandidateList {
+
+    /**
+     * Tracks the solution against the triples.
+     */
+    private final TripleTracker tracker;
+
+    /**
+     * Position of each element in the list, or -1.
+     */
+    private final int[] position;
+
+    /**
+     * The list, shared with the solver as its CL.
+     */
+    private ArrayList<Integer> CL = new ArrayList<Integer>();
+
+    /**
+     * Constructor for the TripleCandidateList class.
+     *
+     * @param qbfpt
+     *      The problem whose triples are prohibited.
+     */
+    TripleCandidateList(QBFPT qbfpt) {
+        tracker = new TripleTracker(qbfpt);
+        position = new int[qbfpt.getDomainSize()];
+    }
+
+    /**
+     * Starts tracking a solution and rebuilds the list for it.
+     *
+     * @param sol
+     *      The solution, which should be feasible.
+     *
+     * @return The new list, to be used as the CL of the solver.
+     */
+    ArrayList<Integer> rebuild(Solution<Integer> sol) {
+
+        tracker.track(sol);
+        CL = new ArrayList<Integer>();
+        Arrays.fill(position, -1);
+        for (int e = 0; e < position.length; e++) {
+            if (!tracker.isTracked(e) && tracker.canInsert(e)) add(e);
+        }
+        return CL;
+
+    }
+
+    /**
+     * Applies a move to the solution, updating the list.
+     *
+     * @param sol
+     *      The tracked solution.
+     * @param in
+     *      Element entering the solution, or null.
+     * @param out
+     *      Element leaving the solution, or null.
+     */
+    void applyMove(Solution<Integer> sol, Integer in, Integer out) {
+
+        if (out != null) {
+            sol.remove(out);
+            tracker.trackRemoval(out, this::add);
+            add(out);
+        }
+        if (in != null) {
+            sol.add(in);
+            tracker.trackInsertion(in, this::remove);
+            remove(in);
+        }
+
+    }
+
+    /**
+     * Tells whether an element off the solution can replace one of its
+     * elements, which may be the one that prevented the insertion.
+     */
+    boolean canExchange(int in, int out) {
+        return tracker.canExchange(in, out);
+    }
+
+    /**
+     * @return true if the element is in the list, in O(1).
+     */
+    boolean contains(int e) {
+        return position[e] >= 0;
+    }
+
+    /**
+     * Appends an element, unless it is in the list.
+     */
+    private void add(int e) {
+        if (position[e] >= 0) return;
+        position[e] = CL.size();
+        CL.add(e);
+    }
+
+    /**
+     * Removes an element, if it is in the list, moving the last one to its
+     * position.
+     */
+    private void remove(int e) {
+        int p = position[e];
+        if (p < 0) return;
+        Integer last = CL.remove(CL.size() - 1);
+        if (last != e) {
+            CL.set(p, last);
+            position[last] = p;
+        }
+        position[e] = -1;
+    }
+
+}
@@ -0,0 +1,417 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import metaheuristics.grasp.AbstractGRASP;
+import metaheuristics.grasp.progress.ProgressEvent;
+import metaheuristics.grasp.progress.ProgressListener;
+import problems.qbf.InstanceRegistry;
+import problems.qbf.QBFInstance;
+import problems.qbf.QBF_Inverse;
+import problems.qbf.solvers.GRASP_QBF;
+import problems.qbf.solvers.GRASP_QBF_First_Improving;
+import problems.qbfpt.QBFPT;
+import problems.qbfpt.solvers.GRASP_QBFPT;
+import problems.qbfpt.solvers.GRASP_QBFPT_First_Improving;
+import solutions.Solution;
+
+/**
+ * A solve job of the {@link SolveService}: a GRASP run on an instance file,
+ * with its parameters, status, incumbent updates and final solution. The
+ * status and events are written by the thread running the job and read by
+ * the threads serving the HTTP requests.
+ *
+ * @author aserpa, einnarelli
+ */
+public final class SolveJob {
+
+    /**
+     * Status of a job.
+     */
+    public enum Status { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    /**
+     * Identifier of the job.
+     */
+    final String id;
+
+    /**
+     * Problem solved, either "qbf" or "qbfpt".
+     */
+    final String problem;
+
+    /**
+     * Local search of the solver, either "best" or "first" improving.
+     */
+    final String localSearch;
+
+    /**
+     * Name of the instance file.
+     */
+    final String instance;
+
+    /**
+     * Whether the instance file was uploaded, in which case it is deleted
+     * when the job ends.
+     */
+    final boolean uploaded;
+
+    /**
+     * The GRASP greediness-randomness parameter, or null in the reactive
+     * GRASP.
+     */
+    final Double alpha;
+
+    /**
+     * Number of possible alphas of the reactive GRASP, or null.
+     */
+    final Integer numAlphas;
+
+    /**
+     * Maximum number of iterations.
+     */
+    final int iterations;
+
+    /**
+     * Time budget in milliseconds.
+     */
+    final long timeLimit;
+
+    /**
+     * Target cost, or null.
+     */
+    final Double targetCost;
+
+    /**
+     * Seed of the solver random number generator.
+     */
+    final long seed;
+
+    /**
+     * Current status.
+     */
+    private volatile Status status = Status.QUEUED;
+
+    /**
+     * Whether the job was cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * The solver, once the job is running.
+     */
+    private volatile AbstractGRASP<Integer> grasp;
+
+    /**
+     * Incumbent and final events, as JSON objects, guarded by this job.
+     */
+    private final List<String> events = new ArrayList<String>();
+
+    /**
+     * Best solution found, once the job is finished.
+     */
+    private volatile Solution<Integer> best;
+
+    /**
+     * Error message of a failed job.
+     */
+    private volatile String error;
+
+    /**
+     * Number of iterations executed, once the job is finished.
+     */
+    private volatile int iterationsDone;
+
+    /**
+     * Time the job started and finished running, in milliseconds.
+     */
+    private volatile long startTime, endTime;
+
+    /**
+     * Constructor for the SolveJob class.
+     */
+    SolveJob(
+        String id,
+        String problem,
+        String localSearch,
+        String instance,
+        boolean uploaded,
+        Double alpha,
+        Integer numAlphas,
+        int iterations,
+        long timeLimit,
+        Double targetCost,
+        long seed
+    ) {
+        this.id = id;
+        this.problem = problem;
+        this.localSearch = localSearch;
+        this.instance = instance;
+        this.uploaded = uploaded;
+        this.alpha = alpha;
+        this.numAlphas = numAlphas;
+        this.iterations = iterations;
+        this.timeLimit = timeLimit;
+        this.targetCost = targetCost;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates the solver of the job.
+     *
+     * @throws IOException
+     *      If the instance cannot be loaded.
+     */
+    private AbstractGRASP<Integer> createSolver() throws IOException {
+
+        QBFInstance data = InstanceRegistry.load(instance);
+        boolean first = localSearch.equals("first");
+
+        if (problem.equals("qbfpt")) {
+            QBFPT qbfpt = new QBFPT(data);
+            if (numAlphas != null) return new GRASP_QBFPT(numAlphas, iterations, qbfpt);
+            return first
+                ? new GRASP_QBFPT_First_Improving(alpha, iterations, qbfpt)
+                : new GRASP_QBFPT(alpha, iterations, qbfpt);
+        }
+
+        QBF_Inverse qbf = new QBF_Inverse(data);
+        if (numAlphas != null) return new GRASP_QBF(numAlphas, iterations, qbf);
+        return first
+            ? new GRASP_QBF_First_Improving(alpha, iterations, qbf)
+            : new GRASP_QBF(alpha, iterations, qbf);
+
+    }
+
+    /**
+     * Runs the job, once one of the permits of the running solvers is
+     * available.
+     *
+     * @param running
+     *      Permits of the solvers allowed to run at the same time.
+     */
+    void run(Semaphore running) {
+
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            finish(Status.CANCELLED, null, "Interrupted while queued.");
+            return;
+        }
+
+        try {
+            if (cancelled) {
+                finish(Status.CANCELLED, null, null);
+                return;
+            }
+
+            startTime = System.currentTimeMillis();
+            status = Status.RUNNING;
+
+            AbstractGRASP<Integer> grasp = createSolver();
+            grasp.setSeed(seed);
+            grasp.setTimeLimit(timeLimit);
+            grasp.setTargetCost(targetCost);
+            grasp.addListener(new ProgressListener<Integer>() {
+                public void onIncumbent(ProgressEvent<Integer> event) {
+                    publishProgress("{\"event\":\"incumbent\",\"iteration\":" + event.getIteration()
+                        + ",\"elapsed\":" + event.getElapsed() + ",\"solution\":" + toJson(event.getIncumbent()) + "}");
+                }
+            });
+            this.grasp = grasp;
+            grasp.getStats().register("job-" + id);
+            if (cancelled) grasp.interrupt();
+
+            Solution<Integer> sol = grasp.solve();
+
+            // Events are delivered asynchronously, so the final event waits
+            // for the incumbent events still in flight.
+            grasp.closeProgress(1000);
+            iterationsDone = grasp.getIterationsDone();
+            finish(cancelled ? Status.CANCELLED : Status.DONE, sol, null);
+
+        } catch (InterruptedException e) {
+            closeProgress();
+            finish(Status.CANCELLED, null, "Interrupted while running.");
+        } catch (Throwable e) {
+            // Errors (e.g., out of memory) fail the job too, so that it is
+            // not left running forever, and are then rethrown.
+            closeProgress();
+            finish(Status.FAILED, null, String.valueOf(e.getMessage()));
+            if (e instanceof Error) throw (Error) e;
+        } finally {
+            running.release();
+            AbstractGRASP<Integer> grasp = this.grasp;
+            if (grasp != null) grasp.getStats().unregister();
+            if (uploaded) {
+                try {
+                    InstanceRegistry.release(instance);
+                } catch (IOException e) {
+                    // The file is deleted anyway.
+                }
+                new File(instance).delete();
+            }
+        }
+
+    }
+
+    /**
+     * Cancels the job. A queued job is dropped when its turn comes, a running
+     * one stops at the end of its current iteration with its best solution.
+     */
+    void cancel() {
+        cancelled = true;
+        AbstractGRASP<Integer> grasp = this.grasp;
+        if (grasp != null) grasp.interrupt();
+    }
+
+    /**
+     * Closes the progress events of a failed solver, waiting briefly for the
+     * incumbent events still in flight.
+     */
+    private void closeProgress() {
+        AbstractGRASP<Integer> grasp = this.grasp;
+        if (grasp == null) return;
+        try {
+            grasp.closeProgress(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records the end of the job and publishes the final event, after which
+     * no other event is published.
+     */
+    private synchronized void finish(Status status, Solution<Integer> sol, String error) {
+        this.best = sol;
+        this.error = error;
+        this.endTime = System.currentTimeMillis();
+        this.status = status;
+        publish("{\"event\":\"final\"," + fields() + "}");
+    }
+
+    /**
+     * Publishes a progress event, unless the job is finished.
+     */
+    private synchronized void publishProgress(String event) {
+        if (!isFinished()) publish(event);
+    }
+
+    /**
+     * Appends an event and wakes up the threads streaming the events.
+     */
+    private synchronized void publish(String event) {
+        events.add(event);
+        notifyAll();
+    }
+
+    /**
+     * Waits for an event.
+     *
+     * @param index
+     *      Index of the event, in order of publication.
+     * @param timeout
+     *      Maximum time to wait, in milliseconds.
+     *
+     * @return The event, an empty string on timeout, or null if the job is
+     *      finished and there are no more events.
+     *
+     * @throws InterruptedException
+     *      If the thread is interrupted while waiting.
+     */
+    synchronized String awaitEvent(int index, long timeout) throws InterruptedException {
+        if (index >= events.size() && !isFinished()) wait(timeout);
+        if (index < events.size()) return events.get(index);
+        return isFinished() ? null : "";
+    }
+
+    /**
+     * @return The current status.
+     */
+    public Status getStatus() { return status; };
+
+    /**
+     * @return The time the job finished, in milliseconds, or 0 if it is not
+     *      finished.
+     */
+    long getEndTime() { return isFinished() ? endTime : 0; };
+
+    /**
+     * @return true if the job is done, failed or was cancelled.
+     */
+    public boolean isFinished() {
+        Status s = status;
+        return s == Status.DONE || s == Status.FAILED || s == Status.CANCELLED;
+    }
+
+    /**
+     * @return The status of the job as a JSON object.
+     */
+    String toJson() {
+        return "{" + fields() + "}";
+    }
+
+    /**
+     * Fields of the JSON status.
+     */
+    private String fields() {
+        Status s = status;
+        long elapsed = startTime == 0 ? 0
+            : (isFinished() ? endTime : System.currentTimeMillis()) - startTime;
+        StringBuilder json = new StringBuilder();
+        json.append("\"id\":").append(quote(id));
+        json.append(",\"status\":").append(quote(s.name()));
+        json.append(",\"problem\":").append(quote(problem));
+        json.append(",\"elapsed\":").append(elapsed);
+        if (isFinished()) json.append(",\"iterations\":").append(iterationsDone);
+        if (best != null) json.append(",\"solution\":").append(toJson(best));
+        if (error != null) json.append(",\"error\":").append(quote(error));
+        return json.toString();
+    }
+
+    /**
+     * Writes a solution as a JSON object. Since the solvers minimize the
+     * inverse QBF, the value of the QBF is the negated cost.
+     *
+     * @param sol
+     *      The solution.
+     *
+     * @return The JSON object.
+     */
+    static String toJson(Solution<Integer> sol) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"cost\":").append(sol.cost);
+        json.append(",\"value\":").append(-sol.cost);
+        json.append(",\"elements\":[");
+        for (int k = 0; k < sol.size(); k++) {
+            if (k > 0) json.append(',');
+            json.append(sol.get(k));
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Writes a string as a JSON string literal.
+     *
+     * @param s
+     *      The string.
+     *
+     * @return The quoted and escaped string.
+     */
+    static String quote(String s) {
+        StringBuilder json = new StringBuilder("\"");
+        for (int k = 0; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (c == '"' || c == '\\') json.append('\\').append(c);
+            else if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+            else json.append(c);
+        }
+        return json.append('"').toString();
+    }
+
+}
@@ -0,0 +1,477 @@
+package service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ * Embedded HTTP service that runs GRASP solve jobs, so that other local
+ * services can call the solvers without wrapping their {@code main} methods.
+ * It only depends on the JDK HTTP server and answers in JSON:
+ * <ul>
+ * <li>{@code POST /jobs?instance=<file>&...}: submits a job on an instance
+ * file, or on the instance uploaded as the request body if there is no
+ * {@code instance} parameter. The other parameters are {@code problem}
+ * ({@code qbf} or {@code qbfpt}), {@code search} ({@code best} or
+ * {@code first} improving), {@code alpha}, {@code alphas} (number of alphas
+ * of the reactive GRASP), {@code iterations}, {@code time} (budget in
+ * seconds), {@code target} and {@code seed}. Answers 202 with the job, or 503
+ * if the queue is full;</li>
+ * <li>{@code GET /jobs/<id>}: status of a job, with its solution once
+ * finished;</li>
+ * <li>{@code GET /jobs/<id>/events}: streams the incumbent updates of a job,
+ * one {@code data:} line per event, ending with the final event;</li>
+ * <li>{@code DELETE /jobs/<id>}: cancels a job, or forgets a finished one.</li>
+ * </ul>
+ * Finished jobs are forgotten on their own after {@link #RETENTION}
+ * milliseconds, and the oldest ones as soon as there are more than
+ * {@link #MAX_FINISHED}, so that a long-running service does not keep every
+ * solution it found.
+ *
+ * Admission control bounds the number of jobs running and waiting, and each
+ * job has a time budget, capped by the service (it is checked between GRASP
+ * iterations). Jobs and requests run on virtual threads when the JVM has
+ * them (Java 21+), and on a cached thread pool otherwise; in both cases only
+ * a bounded number of solvers run at the same time. While a job runs, the
+ * live statistics of its solver are registered as the MBean
+ * {@code metaheuristics.grasp:type=SolverStats,name="job-<id>"}.
+ *
+ * @author aserpa, einnarelli
+ */
+public class SolveService implements Closeable {
+
+    /**
+     * Largest instance accepted as an upload, in bytes.
+     */
+    private static final long MAX_UPLOAD_SIZE = 1L << 30;
+
+    /**
+     * How long an event stream waits for an event before sending a keep-alive
+     * comment, in milliseconds.
+     */
+    private static final long KEEP_ALIVE = 15000;
+
+    /**
+     * How long a finished job is kept, in milliseconds.
+     */
+    static final long RETENTION = 10 * 60 * 1000;
+
+    /**
+     * Maximum number of finished jobs kept.
+     */
+    static final int MAX_FINISHED = 1000;
+
+    /**
+     * The HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Executor of the jobs and of the HTTP requests.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Permits of the jobs admitted, i.e., running or waiting to run.
+     */
+    private final Semaphore admitted;
+
+    /**
+     * Permits of the jobs running.
+     */
+    private final Semaphore running;
+
+    /**
+     * Largest time budget of a job, in milliseconds.
+     */
+    private final long maxTimeLimit;
+
+    /**
+     * Jobs by identifier.
+     */
+    private final ConcurrentMap<String, SolveJob> jobs = new ConcurrentHashMap<String, SolveJob>();
+
+    /**
+     * Generator of job identifiers.
+     */
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * Constructor for the SolveService class, which is started by
+     * {@link #start()}.
+     *
+     * @param address
+     *      Address to listen on.
+     * @param maxRunning
+     *      Maximum number of jobs running at the same time.
+     * @param maxQueued
+     *      Maximum number of jobs waiting to run.
+     * @param maxTimeLimit
+     *      Largest time budget of a job, in milliseconds, which is also the
+     *      budget of the jobs that do not ask for one.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public SolveService(
+        InetSocketAddress address,
+        int maxRunning,
+        int maxQueued,
+        long maxTimeLimit
+    ) throws IOException {
+        this.admitted = new Semaphore(maxRunning + maxQueued);
+        this.running = new Semaphore(maxRunning);
+        this.maxTimeLimit = maxTimeLimit;
+        this.executor = newExecutor();
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext("/jobs", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Creates an executor with a virtual thread per task, if the JVM has
+     * them, or a cached pool of daemon threads otherwise.
+     *
+     * @return The executor.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "solve-service");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Starts listening.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Port getter.
+     *
+     * @return The port the service listens on.
+     */
+    public int getPort() { return server.getAddress().getPort(); };
+
+    /**
+     * Stops the service, cancelling the jobs still running.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        for (SolveJob job : jobs.values()) job.cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Routes a request to {@code /jobs}.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+
+        evict();
+
+        try {
+            String method = exchange.getRequestMethod();
+            String[] path = exchange.getRequestURI().getPath().split("/");
+
+            // path is {"", "jobs", id, "events"}, with optional trailing parts.
+            if (path.length == 2 && method.equals("POST")) {
+                submit(exchange);
+                return;
+            }
+
+            SolveJob job = path.length > 2 ? jobs.get(path[2]) : null;
+            if (job == null) {
+                respond(exchange, 404, "{\"error\":\"Job not found.\"}");
+            } else if (path.length == 3 && method.equals("GET")) {
+                respond(exchange, 200, job.toJson());
+            } else if (path.length == 4 && path[3].equals("events") && method.equals("GET")) {
+                stream(exchange, job);
+            } else if (path.length == 3 && method.equals("DELETE")) {
+                if (job.isFinished()) jobs.remove(job.id);
+                else job.cancel();
+                respond(exchange, 200, job.toJson());
+            } else {
+                respond(exchange, 405, "{\"error\":\"Method not allowed.\"}");
+            }
+        } catch (RuntimeException e) {
+            // An event stream may fail after its headers are sent, in which
+            // case the exchange is just closed.
+            if (exchange.getResponseCode() < 0)
+                respond(exchange, 500, "{\"error\":" + SolveJob.quote(String.valueOf(e.getMessage())) + "}");
+        } finally {
+            exchange.close();
+        }
+
+    }
+
+    /**
+     * Forgets the jobs finished for longer than {@link #RETENTION}, and the
+     * oldest finished ones beyond {@link #MAX_FINISHED}.
+     */
+    private void evict() {
+
+        long now = System.currentTimeMillis();
+        List<SolveJob> finished = new ArrayList<SolveJob>();
+        for (SolveJob job : jobs.values()) {
+            long endTime = job.getEndTime();
+            if (endTime == 0) continue;
+            if (now - endTime >= RETENTION) jobs.remove(job.id, job);
+            else finished.add(job);
+        }
+
+        if (finished.size() > MAX_FINISHED) {
+            finished.sort(Comparator.comparingLong(SolveJob::getEndTime));
+            for (SolveJob job : finished.subList(0, finished.size() - MAX_FINISHED)) jobs.remove(job.id, job);
+        }
+
+    }
+
+    /**
+     * Admits, creates and queues a job.
+     */
+    private void submit(HttpExchange exchange) throws IOException {
+
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        SolveJob job;
+
+        if (!admitted.tryAcquire()) {
+            respond(exchange, 503, "{\"error\":\"Too many jobs, try again later.\"}");
+            return;
+        }
+
+        try {
+            job = createJob(params, exchange.getRequestBody());
+        } catch (IllegalArgumentException e) {
+            admitted.release();
+            respond(exchange, 400, "{\"error\":" + SolveJob.quote(String.valueOf(e.getMessage())) + "}");
+            return;
+        } catch (IOException | RuntimeException e) {
+            admitted.release();
+            throw e;
+        }
+
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> {
+                try {
+                    job.run(running);
+                } finally {
+                    admitted.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            admitted.release();
+            throw e;
+        }
+
+        respond(exchange, 202, job.toJson());
+
+    }
+
+    /**
+     * Creates a job from the query parameters, saving the uploaded instance,
+     * if any, to a temporary file.
+     *
+     * @throws IllegalArgumentException
+     *      If a parameter is invalid.
+     */
+    private SolveJob createJob(Map<String, String> params, InputStream body) throws IOException {
+
+        String problem = params.getOrDefault("problem", "qbf");
+        String search = params.getOrDefault("search", "best");
+        if (!problem.equals("qbf") && !problem.equals("qbfpt"))
+            throw new IllegalArgumentException("problem should be qbf or qbfpt.");
+        if (!search.equals("best") && !search.equals("first"))
+            throw new IllegalArgumentException("search should be best or first.");
+
+        Integer numAlphas = params.containsKey("alphas") ? Integer.valueOf(params.get("alphas")) : null;
+        Double alpha = numAlphas == null ? Double.valueOf(params.getOrDefault("alpha", "0.2")) : null;
+        if (numAlphas != null && (numAlphas < 2 || search.equals("first")))
+            throw new IllegalArgumentException("alphas should be at least 2, with the best improving search.");
+        if (alpha != null && (alpha < 0.0 || alpha > 1.0))
+            throw new IllegalArgumentException("alpha should be in [0, 1].");
+
+        int iterations = Integer.parseInt(params.getOrDefault("iterations", String.valueOf(Integer.MAX_VALUE)));
+        long timeLimit = maxTimeLimit;
+        if (params.containsKey("time"))
+            timeLimit = Math.min(maxTimeLimit, (long) (1000 * Double.parseDouble(params.get("time"))));
+        Double target = params.containsKey("target") ? Double.valueOf(params.get("target")) : null;
+        long seed = Long.parseLong(params.getOrDefault("seed", "0"));
+
+        String instance = params.get("instance");
+        boolean uploaded = instance == null;
+        if (uploaded) instance = upload(body);
+        else if (!new File(instance).isFile())
+            throw new IllegalArgumentException("instance " + instance + " not found.");
+
+        String id = Long.toString(ids.incrementAndGet());
+        return new SolveJob(id, problem, search, instance, uploaded, alpha, numAlphas,
+            iterations, timeLimit, target, seed);
+
+    }
+
+    /**
+     * Saves an uploaded instance to a temporary file.
+     *
+     * @return The name of the file.
+     *
+     * @throws IllegalArgumentException
+     *      If the upload is empty or too large.
+     */
+    private static String upload(InputStream body) throws IOException {
+
+        File file = File.createTempFile("qbf-upload-", "");
+        file.deleteOnExit();
+
+        long size;
+        try (InputStream in = body) {
+            size = Files.copy(new LimitedInputStream(in, MAX_UPLOAD_SIZE + 1), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (size == 0 || size > MAX_UPLOAD_SIZE) {
+            file.delete();
+            throw new IllegalArgumentException(size == 0
+                ? "instance parameter or upload required."
+                : "upload larger than " + MAX_UPLOAD_SIZE + " bytes.");
+        }
+
+        return file.getPath();
+
+    }
+
+    /**
+     * Streams the events of a job until it is finished.
+     */
+    private static void stream(HttpExchange exchange, SolveJob job) throws IOException {
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int k = 0; ; ) {
+                String event = job.awaitEvent(k, KEEP_ALIVE);
+                if (event == null) break;
+                if (event.isEmpty()) {
+                    out.write(":\n\n".getBytes(StandardCharsets.UTF_8));
+                } else {
+                    out.write(("data: " + event + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    k++;
+                }
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * Sends a JSON response.
+     */
+    private static void respond(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] bytes = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Parses the query string of a request.
+     */
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<String, String>();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Input stream that ends after a maximum number of bytes.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int r = super.read(b, off, (int) Math.min(len, remaining));
+            if (r > 0) remaining -= r;
+            return r;
+        }
+
+    }
+
+    /**
+     * Runs the service from the command line: {@code [port] [running]
+     * [queued] [seconds]}, listening on the loopback interface.
+     */
+    public static void main(String[] args) throws IOException {
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int maxRunning = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxQueued = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        long maxTimeLimit = (long) (1000 * (args.length > 3 ? Double.parseDouble(args[3]) : 60));
+        SolveService service = new SolveService(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port), maxRunning, maxQueued, maxTimeLimit);
+        service.start();
+        System.out.println("Listening on port " + service.getPort());
+
+    }
+
+}
@@ -0,0 +1,171 @@
+package solutions;
+
+import java.util.Arrays;
+
+/**
+ * Solution over an integer-indexed domain {0, ..., n-1}, stored in primitive
+ * arrays. It is the unboxed counterpart of {@link Solution}, with constant
+ * time insertion, removal and membership test, and no allocation after
+ * construction.
+ *
+ * @author aserpa, einnarelli
+ */
+public class IntSolution {
+
+    /**
+     * The solution cost.
+     */
+    public double cost = Double.POSITIVE_INFINITY;
+
+    /**
+     * Elements in the solution, in the first {@link #size} positions.
+     */
+    private final int[] elements;
+
+    /**
+     * Position of each domain element in {@link #elements}, or -1 if the
+     * element is not in the solution.
+     */
+    private final int[] position;
+
+    /**
+     * Number of elements in the solution.
+     */
+    private int size;
+
+    /**
+     * Constructor for an empty solution.
+     *
+     * @param domainSize
+     *      Size of the problem domain.
+     */
+    public IntSolution(int domainSize) {
+        elements = new int[domainSize];
+        position = new int[domainSize];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param sol
+     *      The solution to be copied.
+     */
+    public IntSolution(IntSolution sol) {
+        elements = sol.elements.clone();
+        position = sol.position.clone();
+        size = sol.size;
+        cost = sol.cost;
+    }
+
+    /**
+     * Copies another solution of the same domain into this one, without
+     * allocating.
+     *
+     * @param sol
+     *      The solution to be copied.
+     */
+    public void copyFrom(IntSolution sol) {
+        clear();
+        for (int k = 0; k < sol.size; k++) {
+            add(sol.elements[k]);
+        }
+        cost = sol.cost;
+    }
+
+    /**
+     * Size getter.
+     *
+     * @return The number of elements in the solution.
+     */
+    public int size() { return size; };
+
+    /**
+     * Element getter.
+     *
+     * @param k
+     *      Index of the element, in [0, {@link #size()}).
+     *
+     * @return The k-th element of the solution.
+     */
+    public int get(int k) { return elements[k]; };
+
+    /**
+     * Elements getter, for batch evaluations. The array is backed by the
+     * solution, so it must not be modified, and it is only valid until the
+     * solution changes.
+     *
+     * @return The elements of the solution, in the first {@link #size()}
+     *      positions.
+     */
+    public int[] elements() { return elements; };
+
+    /**
+     * Membership test.
+     *
+     * @param e
+     *      A domain element.
+     *
+     * @return true if the element is in the solution.
+     */
+    public boolean contains(int e) { return position[e] >= 0; };
+
+    /**
+     * Inserts an element into the solution, if it is not there yet.
+     *
+     * @param e
+     *      The element to be inserted.
+     */
+    public void add(int e) {
+        if (position[e] >= 0) return;
+        position[e] = size;
+        elements[size++] = e;
+    }
+
+    /**
+     * Removes an element from the solution, if it is there. The last element
+     * takes its place, so the order of the elements is not kept.
+     *
+     * @param e
+     *      The element to be removed.
+     */
+    public void remove(int e) {
+        int k = position[e];
+        if (k < 0) return;
+        int last = elements[--size];
+        elements[k] = last;
+        position[last] = k;
+        position[e] = -1;
+    }
+
+    /**
+     * Removes every element from the solution.
+     */
+    public void clear() {
+        for (int k = 0; k < size; k++) {
+            position[elements[k]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Converts this solution into a boxed {@link Solution}, e.g., to be
+     * reported or handed to code of the generic path.
+     *
+     * @return A new solution with the same elements and cost.
+     */
+    public Solution<Integer> toSolution() {
+        Solution<Integer> sol = new Solution<Integer>();
+        for (int k = 0; k < size; k++) {
+            sol.add(elements[k]);
+        }
+        sol.cost = cost;
+        return sol;
+    }
+
+    @Override
+    public String toString() {
+        return toSolution().toString();
+    }
+
+}
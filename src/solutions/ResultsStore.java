@@ -0,0 +1,485 @@
+package solutions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only store of solver runs in a directory. Each run is a line of the
+ * CSV log {@value #LOG}, with its instance, solver, configuration, seed,
+ * iterations, time, cost and solution, encoded as a base64
+ * {@link SolutionCodec} bitset. The index {@value #INDEX} keeps the offset
+ * of the best-known run of each instance (the one with the lowest cost,
+ * since the solvers minimize), along with the log length it covers. It is
+ * rewritten atomically whenever a best-known run changes; when the store is
+ * opened, the runs appended after the covered length are scanned, and the
+ * whole log if the index is missing or does not match it, so the log is the
+ * only ground truth. A last line cut by a crash is dropped when the store is
+ * opened.
+ *
+ * Instances are keyed by the name given by the caller, e.g. the instance
+ * file name. The store is safe for the threads of one process, but not for
+ * several processes appending to the same directory.
+ *
+ * @author aserpa, einnarelli
+ */
+public final class ResultsStore {
+
+    /**
+     * Name of the log file.
+     */
+    public static final String LOG = "runs.csv";
+
+    /**
+     * Name of the index file.
+     */
+    public static final String INDEX = "best.idx";
+
+    /**
+     * Header of the log.
+     */
+    private static final String HEADER = "timestamp,instance,solver,config,seed,iterations,time_ms,cost,solution";
+
+    /**
+     * A run of a solver on an instance.
+     */
+    public static final class Run {
+
+        public final long timestamp;
+        public final String instance;
+        public final String solver;
+        public final String config;
+        public final long seed;
+        public final int iterations;
+        public final long timeMillis;
+        public final double cost;
+
+        /**
+         * Solution bitset, as encoded by {@link SolutionCodec#encode}.
+         */
+        private final byte[] bits;
+
+        /**
+         * Constructor for a run finished now.
+         *
+         * @param instance
+         *      Name of the instance.
+         * @param solver
+         *      Name of the solver.
+         * @param config
+         *      Parameters of the solver, e.g. "alpha=0.2".
+         * @param seed
+         *      Seed of the solver.
+         * @param iterations
+         *      Number of iterations executed.
+         * @param timeMillis
+         *      Running time, in milliseconds.
+         * @param sol
+         *      Best solution found, with its cost.
+         */
+        public Run(String instance, String solver, String config, long seed, int iterations,
+                long timeMillis, Solution<Integer> sol) {
+            this(System.currentTimeMillis(), instance, solver, config, seed, iterations, timeMillis,
+                sol.cost, SolutionCodec.encode(sol));
+        }
+
+        private Run(long timestamp, String instance, String solver, String config, long seed,
+                int iterations, long timeMillis, double cost, byte[] bits) {
+            this.timestamp = timestamp;
+            this.instance = instance;
+            this.solver = solver;
+            this.config = config;
+            this.seed = seed;
+            this.iterations = iterations;
+            this.timeMillis = timeMillis;
+            this.cost = cost;
+            this.bits = bits;
+        }
+
+        /**
+         * @return The solution of the run, with its cost.
+         */
+        public Solution<Integer> getSolution() {
+            Solution<Integer> sol = SolutionCodec.decode(bits);
+            sol.cost = cost;
+            return sol;
+        }
+
+        /**
+         * @return The run as a line of the log, without the line break.
+         */
+        String toLine() {
+            return timestamp + "," + quote(instance) + "," + quote(solver) + "," + quote(config)
+                + "," + seed + "," + iterations + "," + timeMillis + "," + cost
+                + "," + Base64.getEncoder().encodeToString(bits);
+        }
+
+        /**
+         * Parses a line of the log.
+         *
+         * @throws IllegalArgumentException
+         *      If the line is malformed.
+         */
+        static Run parse(String line) {
+            List<String> f = split(line);
+            if (f.size() != 9) throw new IllegalArgumentException("Malformed run: " + line);
+            try {
+                return new Run(Long.parseLong(f.get(0)), f.get(1), f.get(2), f.get(3),
+                    Long.parseLong(f.get(4)), Integer.parseInt(f.get(5)), Long.parseLong(f.get(6)),
+                    Double.parseDouble(f.get(7)), Base64.getDecoder().decode(f.get(8)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed run: " + line, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return instance + " " + solver + " [" + config + "] seed=" + seed + " cost=" + cost
+                + " iterations=" + iterations + " time=" + timeMillis + "ms";
+        }
+
+    }
+
+    /**
+     * The log file.
+     */
+    private final Path log;
+
+    /**
+     * The index file.
+     */
+    private final Path index;
+
+    /**
+     * Best-known run of each instance, by instance name.
+     */
+    private final Map<String, Run> best = new TreeMap<String, Run>();
+
+    /**
+     * Offset of the best-known run of each instance in the log.
+     */
+    private final Map<String, Long> offsets = new TreeMap<String, Long>();
+
+    /**
+     * Opens the store in a directory, creating it if necessary.
+     *
+     * @param dir
+     *      The directory of the store.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public ResultsStore(String dir) throws IOException {
+
+        Path path = Paths.get(dir);
+        Files.createDirectories(path);
+        log = path.resolve(LOG);
+        index = path.resolve(INDEX);
+
+        if (!Files.exists(log)) {
+            Files.write(log, (HEADER + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
+        } else {
+            truncateTornLine();
+        }
+
+        // The runs appended after the index was last written are scanned.
+        long covered = loadIndex();
+        if (covered < 0) {
+            best.clear();
+            offsets.clear();
+            covered = 0;
+        }
+        long length = Files.size(log);
+        if (covered < length) {
+            scan(covered);
+            writeIndex(length);
+        }
+
+    }
+
+    /**
+     * Appends a run to the log, and updates the best-known run of its
+     * instance.
+     *
+     * @param run
+     *      The run to be recorded.
+     *
+     * @return true if the run is the new best-known one of its instance.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public synchronized boolean append(Run run) throws IOException {
+
+        long offset = Files.size(log);
+        Files.write(log, (run.toLine() + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Run known = best.get(run.instance);
+        if (known != null && known.cost <= run.cost) return false;
+        best.put(run.instance, run);
+        offsets.put(run.instance, offset);
+        writeIndex(offset + run.toLine().getBytes(StandardCharsets.UTF_8).length + 1);
+        return true;
+
+    }
+
+    /**
+     * @param instance
+     *      Name of the instance.
+     *
+     * @return The best-known run of the instance, or null if there is none.
+     */
+    public synchronized Run bestKnown(String instance) {
+        return best.get(instance);
+    }
+
+    /**
+     * @return The best-known run of each instance, by instance name.
+     */
+    public synchronized Map<String, Run> bestKnown() {
+        return new TreeMap<String, Run>(best);
+    }
+
+    /**
+     * Relative gap of a cost to the best-known cost of an instance, i.e.,
+     * (cost - best) / |best|, which is 0 at the best-known cost and positive
+     * above it.
+     *
+     * @param instance
+     *      Name of the instance.
+     * @param cost
+     *      The cost, of the same objective function as the recorded runs.
+     *
+     * @return The gap, or NaN if the instance has no run or a best-known
+     *      cost of 0.
+     */
+    public synchronized double gap(String instance, double cost) {
+        Run known = best.get(instance);
+        if (known == null || known.cost == 0.0) return Double.NaN;
+        return (cost - known.cost) / Math.abs(known.cost);
+    }
+
+    /**
+     * Reads the runs of an instance from the log, in order of recording.
+     *
+     * @param instance
+     *      Name of the instance, or null for every instance.
+     *
+     * @return The runs.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public synchronized List<Run> runs(String instance) throws IOException {
+
+        List<Run> runs = new ArrayList<Run>();
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty()) continue;
+                try {
+                    Run run = Run.parse(line);
+                    if (instance == null || instance.equals(run.instance)) runs.add(run);
+                } catch (IllegalArgumentException e) {
+                    // Not a run.
+                }
+            }
+        }
+
+        return runs;
+
+    }
+
+    /**
+     * Loads the index.
+     *
+     * @return The length of the log covered by the index, or -1 if the index
+     *      is missing, malformed or does not match the log.
+     */
+    private long loadIndex() throws IOException {
+
+        if (!Files.exists(index)) return -1;
+        List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+
+        try (FileChannel file = FileChannel.open(log)) {
+            long covered = Long.parseLong(lines.get(0));
+            if (covered > file.size()) return -1;
+            for (String line : lines.subList(1, lines.size())) {
+                int tab = line.lastIndexOf('\t');
+                long offset = Long.parseLong(line.substring(tab + 1));
+                Run run = Run.parse(readLine(Channels.newInputStream(file.position(offset))));
+                if (!run.instance.equals(line.substring(0, tab))) return -1;
+                best.put(run.instance, run);
+                offsets.put(run.instance, offset);
+            }
+            return covered;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+
+    }
+
+    /**
+     * Drops the end of the log after its last line break, i.e., a line cut
+     * by a crash, so that the next run is not appended to it. The header is
+     * written again if it was the line cut.
+     */
+    private void truncateTornLine() throws IOException {
+
+        try (FileChannel file = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long end = file.size(), length = 0;
+            while (end > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end));
+                long start = end - buffer.limit();
+                while (buffer.hasRemaining()) {
+                    if (file.read(buffer, start + buffer.position()) < 0) break;
+                }
+                int k = buffer.position() - 1;
+                while (k >= 0 && buffer.get(k) != '\n') k--;
+                if (k >= 0) {
+                    length = start + k + 1;
+                    break;
+                }
+                end = start;
+            }
+
+            if (length == file.size()) return;
+            file.truncate(length);
+            if (length == 0) file.write(ByteBuffer.wrap((HEADER + "\n").getBytes(StandardCharsets.UTF_8)), 0);
+
+        }
+
+    }
+
+    /**
+     * Scans the log from an offset, at the start of a line, updating the
+     * best-known runs. Malformed lines, e.g. a line cut by a crash, are
+     * skipped.
+     *
+     * @param from
+     *      Offset from which the log is scanned, 0 for the whole log.
+     */
+    private void scan(long from) throws IOException {
+
+        try (FileChannel file = FileChannel.open(log)) {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(file.position(from)));
+            long offset = from;
+            for (String line = readLine(in); line != null; line = readLine(in)) {
+                if (offset > 0 && !line.isEmpty()) {
+                    try {
+                        Run run = Run.parse(line);
+                        Run known = best.get(run.instance);
+                        if (known == null || run.cost < known.cost) {
+                            best.put(run.instance, run);
+                            offsets.put(run.instance, offset);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        // Not a run.
+                    }
+                }
+                offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        }
+
+    }
+
+    /**
+     * Writes the index to a temporary file, which then replaces the index.
+     *
+     * @param logLength
+     *      Length of the log covered by the index.
+     */
+    private void writeIndex(long logLength) throws IOException {
+
+        StringBuilder text = new StringBuilder().append(logLength).append('\n');
+        for (Map.Entry<String, Long> e : offsets.entrySet()) {
+            text.append(e.getKey()).append('\t').append(e.getValue()).append('\n');
+        }
+
+        Path tmp = index.resolveSibling(INDEX + ".tmp");
+        Files.write(tmp, text.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    }
+
+    /**
+     * Reads a UTF-8 line from a stream, or null at its end.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int b = in.read();
+        if (b < 0) return null;
+        for (; b >= 0 && b != '\n'; b = in.read()) bytes.write(b);
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Quotes a CSV field if it contains commas, quotes or line breaks.
+     */
+    static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) return field;
+        return "\"" + field.replace("\"", "\"\"").replace("\n", " ") + "\"";
+    }
+
+    /**
+     * Splits a CSV line into its fields.
+     */
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int k = 0; k < line.length(); k++) {
+            char c = line.charAt(k);
+            if (quoted) {
+                if (c != '"') field.append(c);
+                else if (k + 1 < line.length() && line.charAt(k + 1) == '"') field.append(line.charAt(++k));
+                else quoted = false;
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Prints the best-known run of each instance of a store, or the gap of a
+     * cost to the best-known cost of an instance.
+     *
+     * Usage: {@code ResultsStore <dir> [instance cost]}.
+     */
+    public static void main(String[] args) throws IOException {
+
+        ResultsStore store = new ResultsStore(args[0]);
+        if (args.length > 2) {
+            System.out.println("gap = " + store.gap(args[1], Double.parseDouble(args[2])));
+            return;
+        }
+        for (Run run : store.bestKnown().values()) System.out.println(run);
+
+    }
+
+}
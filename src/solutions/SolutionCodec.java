@@ -0,0 +1,119 @@
+package solutions;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * Compact encoding of solutions over integer-indexed domains, where each
+ * element is a bit set in a bitset. Used to exchange and store solutions
+ * without shipping their element lists.
+ *
+ * @author aserpa, einnarelli
+ */
+public final class SolutionCodec {
+
+    /**
+     * No instances, only static helpers.
+     */
+    private SolutionCodec() {}
+
+    /**
+     * Encodes the elements of a solution as a little-endian bitset.
+     *
+     * @param sol
+     *      The solution to be encoded.
+     *
+     * @return The bitset bytes, where bit i is set iff element i is in the
+     *      solution.
+     */
+    public static byte[] encode(Solution<Integer> sol) {
+
+        BitSet bits = new BitSet();
+        for (Integer e : sol) {
+            bits.set(e);
+        }
+
+        return bits.toByteArray();
+
+    }
+
+    /**
+     * Decodes a bitset back into a solution. The cost of the decoded
+     * solution is left unset, since it depends on the objective function.
+     *
+     * @param bytes
+     *      The bitset bytes, as returned by {@link #encode(Solution)}.
+     *
+     * @return The decoded solution, with elements in increasing order.
+     */
+    public static Solution<Integer> decode(byte[] bytes) {
+
+        BitSet bits = BitSet.valueOf(bytes);
+        Solution<Integer> sol = new Solution<Integer>();
+        for (int e = bits.nextSetBit(0); e >= 0; e = bits.nextSetBit(e + 1)) {
+            sol.add(e);
+        }
+
+        return sol;
+
+    }
+
+    /**
+     * Writes a solution and its cost to a stream, as the cost followed by the
+     * length of the bitset and the bitset itself.
+     *
+     * @param out
+     *      The stream the solution is written to.
+     * @param sol
+     *      The solution to be written.
+     *
+     * @throws IOException
+     *      Necessary for I/O operations.
+     */
+    public static void write(DataOutputStream out, Solution<Integer> sol) throws IOException {
+
+        byte[] bytes = encode(sol);
+        out.writeDouble(sol.cost);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+
+    }
+
+    /**
+     * Reads a solution written by {@link #write(DataOutputStream, Solution)}.
+     * Since the stream may come from an untrusted peer, the bitset is checked
+     * against the domain size before it is allocated.
+     *
+     * @param in
+     *      The stream the solution is read from.
+     * @param domainSize
+     *      Size of the domain of the solution, whose elements must be smaller.
+     *
+     * @return The solution, with the cost it had when it was written.
+     *
+     * @throws IOException
+     *      If the solution is malformed, or necessary for I/O operations.
+     */
+    public static Solution<Integer> read(DataInputStream in, int domainSize) throws IOException {
+
+        double cost = in.readDouble();
+        int length = in.readInt();
+        if (length < 0 || length > (domainSize + 7) / 8) {
+            throw new IOException("Malformed solution: bitset of " + length + " bytes for a domain of size " + domainSize);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        if (BitSet.valueOf(bytes).length() > domainSize) {
+            throw new IOException("Malformed solution: element out of a domain of size " + domainSize);
+        }
+        Solution<Integer> sol = decode(bytes);
+        sol.cost = cost;
+
+        return sol;
+
+    }
+
+}
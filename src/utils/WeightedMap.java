@@ -15,7 +15,8 @@ import java.util.TreeMap;
 public abstract class WeightedMap<E, T> extends TreeMap<E, WeightedItem<T>> {
 
     /**
-     * A random number generator.
+     * A random number generator, shared by the maps selecting without one of
+     * their own.
      */
 	static Random rng = new Random(0);
 
@@ -34,6 +35,22 @@ public abstract class WeightedMap<E, T> extends TreeMap<E, WeightedItem<T>> {
      *      The selected item.
      */
     public T selectItem() {
+        return selectItem(rng);
+    }
+
+    /**
+     * Randomly select an item from the map, taking it's weight into account,
+     * with the given random number generator. Solvers pass their own, so
+     * that their runs are reproducible from their seeds and do not share a
+     * generator between threads.
+     * 
+     * @param rng
+     *      The random number generator.
+     * 
+     * @return
+     *      The selected item.
+     */
+    public T selectItem(Random rng) {
 
         Double total = 0.0;
         NavigableMap<Double, T> navMap = new TreeMap<Double, T>();